@@ -20,14 +20,12 @@ import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
 import org.apache.hc.core5.reactor.ssl.TlsDetails;
 import org.apache.hc.core5.ssl.SSLContextBuilder;
-import org.opensearch.client.ResponseException;
 import org.opensearch.client.RestClient;
 import org.opensearch.client.RestClientBuilder;
 import org.opensearch.cluster.metadata.IndexMetadata;
 import org.opensearch.common.settings.Settings;
 import org.opensearch.core.common.Strings;
 import org.opensearch.index.codec.customcodecs.Lucene104QatCodec;
-import org.opensearch.index.codec.customcodecs.QatZipperFactory;
 import org.opensearch.test.rest.OpenSearchRestTestCase;
 
 import javax.net.ssl.SSLEngine;
@@ -46,7 +44,6 @@ import static org.opensearch.index.codec.customcodecs.CustomAdditionalCodecs.QAT
 import static org.opensearch.index.codec.customcodecs.CustomAdditionalCodecs.ZSTD_CODEC;
 import static org.opensearch.index.codec.customcodecs.CustomAdditionalCodecs.ZSTD_NO_DICT_CODEC;
 import static org.hamcrest.Matchers.is;
-import static org.junit.Assume.assumeThat;
 
 public class CreateIndexWithCodecIT extends OpenSearchRestTestCase {
     public void testCreateIndexWithZstdCodec() throws IOException {
@@ -70,59 +67,8 @@ public class CreateIndexWithCodecIT extends OpenSearchRestTestCase {
         }
     }
 
-    public void testCreateIndexWithQatCodecWithQatHardwareUnavailable() throws IOException {
-
-        assumeThat("Qat library is not available", QatZipperFactory.isQatAvailable(), is(false));
-        final String index = "custom-codecs-test-index";
-
-        // creating index
-        final ResponseException e = expectThrows(
-            ResponseException.class,
-            () -> createIndex(
-                index,
-                Settings.builder()
-                    .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
-                    .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
-                    .put("index.codec", randomFrom(QAT_DEFLATE_CODEC, QAT_LZ4_CODEC, QAT_ZSTD_CODEC))
-                    .put("index.codec.compression_level", randomIntBetween(1, 6))
-                    .build()
-            )
-        );
-        assertTrue(e.getResponse().toString().contains("400 Bad Request"));
-    }
-
-    public void testCreateIndexWithQatSPICodecWithQatHardwareUnavailable() throws IOException {
-
-        assumeThat("Qat library is not available", QatZipperFactory.isQatAvailable(), is(false));
-        final String index = "custom-codecs-test-index";
-
-        // creating index
-        final ResponseException e = expectThrows(
-            ResponseException.class,
-            () -> createIndex(
-                index,
-                Settings.builder()
-                    .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
-                    .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
-                    .put(
-                        "index.codec",
-                        randomFrom(
-                            Lucene104QatCodec.Mode.QAT_LZ4.getCodec(),
-                            Lucene104QatCodec.Mode.QAT_DEFLATE.getCodec(),
-                            Lucene104QatCodec.Mode.QAT_ZSTD.getCodec()
-                        )
-                    )
-                    .put("index.codec.compression_level", randomIntBetween(1, 6))
-                    .build()
-            )
-        );
-        assertTrue(e.getResponse().toString().contains("400 Bad Request"));
-
-    }
-
     public void testCreateIndexWithQatCodec() throws IOException {
-        assumeThat("Qat library is available", QatZipperFactory.isQatAvailable(), is(true));
-
+        // nodes without QAT hardware compress in software
         final String index = "custom-codecs-test-index";
 
         // creating index
@@ -131,7 +77,17 @@ public class CreateIndexWithCodecIT extends OpenSearchRestTestCase {
             Settings.builder()
                 .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
                 .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
-                .put("index.codec", randomFrom(QAT_DEFLATE_CODEC, QAT_LZ4_CODEC, QAT_ZSTD_CODEC))
+                .put(
+                    "index.codec",
+                    randomFrom(
+                        QAT_DEFLATE_CODEC,
+                        QAT_LZ4_CODEC,
+                        QAT_ZSTD_CODEC,
+                        Lucene104QatCodec.Mode.QAT_LZ4.getCodec(),
+                        Lucene104QatCodec.Mode.QAT_DEFLATE.getCodec(),
+                        Lucene104QatCodec.Mode.QAT_ZSTD.getCodec()
+                    )
+                )
                 .put("index.codec.compression_level", randomIntBetween(1, 6))
                 .build()
         );
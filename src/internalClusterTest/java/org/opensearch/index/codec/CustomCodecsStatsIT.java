@@ -0,0 +1,68 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec;
+
+import org.opensearch.common.xcontent.XContentHelper;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.common.bytes.BytesReference;
+import org.opensearch.core.xcontent.MediaTypeRegistry;
+import org.opensearch.core.xcontent.ToXContent;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.index.codec.customcodecs.CustomCodecPlugin;
+import org.opensearch.index.codec.customcodecs.CustomCodecsStatsAction;
+import org.opensearch.index.codec.customcodecs.CustomCodecsStatsRequest;
+import org.opensearch.index.codec.customcodecs.CustomCodecsStatsResponse;
+import org.opensearch.plugins.Plugin;
+import org.opensearch.test.OpenSearchIntegTestCase;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+@OpenSearchIntegTestCase.ClusterScope(scope = OpenSearchIntegTestCase.Scope.TEST, numDataNodes = 2)
+public class CustomCodecsStatsIT extends OpenSearchIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singletonList(CustomCodecPlugin.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testStatsOfEveryNode() throws IOException {
+        final CustomCodecsStatsResponse response = client().execute(CustomCodecsStatsAction.INSTANCE, new CustomCodecsStatsRequest())
+            .actionGet();
+        assertFalse(response.hasFailures());
+        assertEquals(cluster().size(), response.getNodes().size());
+
+        final XContentBuilder builder = JsonXContent.contentBuilder().startObject();
+        response.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        final Map<String, Object> nodes = (Map<String, Object>) XContentHelper.convertToMap(
+            BytesReference.bytes(builder),
+            false,
+            MediaTypeRegistry.JSON
+        ).v2().get("nodes");
+        assertEquals(cluster().size(), nodes.size());
+        for (Object node : nodes.values()) {
+            final Map<String, Object> breaker = (Map<String, Object>) ((Map<String, Object>) node).get("qat_circuit_breaker");
+            assertEquals("closed", breaker.get("state"));
+            assertEquals(0, breaker.get("trips"));
+            final Map<String, Object> blockCache = (Map<String, Object>) ((Map<String, Object>) node).get("stored_fields_block_cache");
+            assertEquals(0, blockCache.get("count"));
+            assertNotNull(((Map<String, Object>) node).get("zstd_dictionary_cache"));
+        }
+
+        final String nodeId = response.getNodes().get(0).getNode().getId();
+        final CustomCodecsStatsResponse single = client().execute(CustomCodecsStatsAction.INSTANCE, new CustomCodecsStatsRequest(nodeId))
+            .actionGet();
+        assertEquals(1, single.getNodes().size());
+        assertEquals(nodeId, single.getNodes().get(0).getNode().getId());
+    }
+}
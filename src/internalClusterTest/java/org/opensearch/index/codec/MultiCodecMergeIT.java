@@ -58,6 +58,9 @@ public class MultiCodecMergeIT extends OpenSearchIntegTestCase {
                 put("best_compression", "BEST_COMPRESSION");
                 put("zlib", "BEST_COMPRESSION");
                 put("zstd_no_dict", "ZSTD_NO_DICT");
+                put("zstd_trained_dict", "ZSTD_TRAINED_DICT");
+                put("zstd_hybrid", "ZSTD_HYBRID");
+                put("zstd_fast", "ZSTD_FAST");
                 put("zstd", "ZSTD");
                 put("default", "BEST_SPEED");
                 put("lz4", "BEST_SPEED");
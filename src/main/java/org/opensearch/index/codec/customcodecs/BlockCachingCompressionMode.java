@@ -0,0 +1,174 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.SetOnce;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compression mode that serves decompressed blocks from a {@link StoredFieldsBlockCache}, and decompresses through
+ * the wrapped mode otherwise. The on-disk format is the one of the wrapped mode.
+ *
+ * @opensearch.internal
+ */
+final class BlockCachingCompressionMode extends CompressionMode {
+
+    private final StoredFieldsBlockCache cache;
+    private final CompressionMode delegate;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param cache the cache of the node.
+     * @param delegate the mode that compresses and decompresses blocks.
+     */
+    BlockCachingCompressionMode(StoredFieldsBlockCache cache, CompressionMode delegate) {
+        this.cache = cache;
+        this.delegate = delegate;
+    }
+
+    /** Creates a new compressor instance. */
+    @Override
+    public Compressor newCompressor() {
+        return delegate.newCompressor();
+    }
+
+    /** Creates a new decompressor instance. */
+    @Override
+    public Decompressor newDecompressor() {
+        return new BlockCachingDecompressor(cache, delegate.newDecompressor(), new SetOnce<>());
+    }
+
+    /** Returns the mode that compresses and decompresses blocks. */
+    CompressionMode getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    /**
+     * decompressor that looks blocks up in the cache first; an instance that reads from the block it read last, such as
+     * the clone that the fetch of several hits of a segment reads through, decompresses the block in full and keeps it
+     * until it moves to another block
+     */
+    private static final class BlockCachingDecompressor extends Decompressor {
+
+        private final StoredFieldsBlockCache cache;
+        private final Decompressor delegate;
+        private final SetOnce<BytesRef> segmentId;
+        private long lastBlockOffset = -1;
+        private long retainedBlockOffset = -1;
+        private StoredFieldsBlockCache.Block retainedBlock;
+
+        BlockCachingDecompressor(StoredFieldsBlockCache cache, Decompressor delegate, SetOnce<BytesRef> segmentId) {
+            this.cache = cache;
+            this.delegate = delegate;
+            this.segmentId = segmentId;
+        }
+
+        /*
+         * the segment id is read from the header of the stored fields data, it is shared by all clones; the segment
+         * suffix is appended, so that the blocks of segments with several stored fields files have distinct keys
+         */
+        private BytesRef segmentId(IndexInput in) throws IOException {
+            BytesRef id = segmentId.get();
+            if (id == null) {
+                final IndexInput header = in.clone();
+                header.seek(0);
+                if (CodecUtil.readBEInt(header) != CodecUtil.CODEC_MAGIC) {
+                    throw new CorruptIndexException("codec header mismatch", header);
+                }
+                header.readString();
+                CodecUtil.readBEInt(header);
+                final byte[] bytes = new byte[StringHelper.ID_LENGTH];
+                header.readBytes(bytes, 0, bytes.length);
+                final int suffixLength = header.readByte() & 0xFF;
+                final byte[] key = ArrayUtil.growExact(bytes, StringHelper.ID_LENGTH + suffixLength);
+                header.readBytes(key, StringHelper.ID_LENGTH, suffixLength);
+                segmentId.trySet(new BytesRef(key));
+                id = segmentId.get();
+            }
+            return id;
+        }
+
+        @Override
+        public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
+            // blocks are only kept if their position in the file is known
+            if (length == 0 || (in instanceof IndexInput) == false) {
+                delegate.decompress(in, originalLength, offset, length, bytes);
+                return;
+            }
+
+            final IndexInput input = (IndexInput) in;
+            final long blockOffset = input.getFilePointer();
+            if (blockOffset == retainedBlockOffset && retainedBlock.length() == originalLength) {
+                copy(retainedBlock, input, offset, length, bytes);
+                return;
+            }
+            final BytesRef id = cache.isEnabled() ? segmentId(input) : null;
+            final StoredFieldsBlockCache.Block block = id == null ? null : cache.get(id, blockOffset);
+            if (block != null && block.length() == originalLength) {
+                copy(block, input, offset, length, bytes);
+            } else {
+                final boolean admitted = id != null && cache.admit(id, blockOffset);
+                final boolean retained = blockOffset == lastBlockOffset;
+                if (admitted || retained) {
+                    delegate.decompress(in, originalLength, 0, originalLength, bytes);
+                    // admitted blocks are copied off heap, a block that is only kept by this instance stays on heap
+                    final StoredFieldsBlockCache.Block decompressedBlock = admitted
+                        ? cache.put(id, blockOffset, bytes, input.getFilePointer())
+                        : new StoredFieldsBlockCache.Block(
+                            ByteBuffer.wrap(ArrayUtil.copyOfSubArray(bytes.bytes, bytes.offset, bytes.offset + bytes.length)),
+                            input.getFilePointer()
+                        );
+                    if (retained) {
+                        retainedBlockOffset = blockOffset;
+                        retainedBlock = decompressedBlock;
+                    }
+                    bytes.offset += offset;
+                    bytes.length = length;
+                } else {
+                    delegate.decompress(in, originalLength, offset, length, bytes);
+                }
+            }
+            lastBlockOffset = blockOffset;
+        }
+
+        private static void copy(StoredFieldsBlockCache.Block block, IndexInput input, int offset, int length, BytesRef bytes)
+            throws IOException {
+            // the caller may reuse the array, so a kept block is never handed out
+            bytes.bytes = ArrayUtil.growNoCopy(bytes.bytes, length);
+            block.bytes().get(offset, bytes.bytes, 0, length);
+            bytes.offset = 0;
+            bytes.length = length;
+            // callers that read large documents in slices expect the input to be after the block
+            input.seek(block.endPointer());
+        }
+
+        @Override
+        public Decompressor clone() {
+            return new BlockCachingDecompressor(cache, delegate.clone(), segmentId);
+        }
+    }
+}
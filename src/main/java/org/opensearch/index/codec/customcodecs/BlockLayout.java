@@ -0,0 +1,73 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+/**
+ * Layouts of the sub-blocks that a compressed block is split into. The layout of a segment is recorded as a segment
+ * attribute and is part of the name of its stored fields format, so that readers which do not know a layout fail
+ * cleanly instead of misreading it.
+ *
+ * @opensearch.internal
+ */
+public enum BlockLayout {
+    /**
+     * The compressed length of every sub-block precedes its data, so earlier sub-blocks have to be skipped one by one.
+     * This is the layout of segments that do not record one.
+     */
+    INTERLEAVED(""),
+    /**
+     * The compressed lengths of all sub-blocks precede the data of the first one, so the needed sub-blocks can be
+     * reached with a single skip and read with a single read.
+     */
+    OFFSET_TABLE("OffsetTable"),
+    /**
+     * Like {@link #OFFSET_TABLE}, but sub-blocks that do not get smaller when compressed are stored raw, which the offset
+     * table flags, so that reading them is a copy rather than a decompression.
+     */
+    FLAGGED_OFFSET_TABLE("FlaggedOffsetTable");
+
+    /** The layout of new segments. */
+    public static final BlockLayout CURRENT = FLAGGED_OFFSET_TABLE;
+
+    private final String formatSuffix;
+
+    BlockLayout(String formatSuffix) {
+        this.formatSuffix = formatSuffix;
+    }
+
+    /**
+     * Returns the suffix that is appended to the name of the stored fields format.
+     */
+    public String getFormatSuffix() {
+        return formatSuffix;
+    }
+
+    /**
+     * Returns whether the compressed lengths of all sub-blocks precede the data of the first one.
+     */
+    public boolean hasOffsetTable() {
+        return this != INTERLEAVED;
+    }
+
+    /**
+     * Returns whether sub-blocks that do not get smaller when compressed are stored raw.
+     */
+    public boolean hasRawSubBlocks() {
+        return this == FLAGGED_OFFSET_TABLE;
+    }
+
+    /**
+     * Returns the layout recorded in a segment attribute.
+     *
+     * @param value the value of the attribute, or {@code null} if the segment does not record a layout.
+     */
+    public static BlockLayout fromAttribute(String value) {
+        return value == null ? INTERLEAVED : valueOf(value);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.common.cache.Cache;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.common.unit.ByteSizeValue;
+import org.opensearch.core.xcontent.ToXContentFragment;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * The outcomes of a cache of the custom codecs since the node started.
+ *
+ * @param sizeInBytes the size of the cached entries
+ * @param count the number of cached entries
+ * @param hits the number of reads that found their entry in the cache
+ * @param misses the number of reads that did not
+ * @param evictions the number of entries that were evicted to make room for others
+ *
+ * @opensearch.internal
+ */
+record CodecCacheStats(long sizeInBytes, long count, long hits, long misses, long evictions) implements Writeable, ToXContentFragment {
+
+    /**
+     * Returns the current stats of a cache.
+     *
+     * @param cache the cache.
+     */
+    static CodecCacheStats of(Cache<?, ?> cache) {
+        final Cache.CacheStats stats = cache.stats();
+        return new CodecCacheStats(cache.weight(), cache.count(), stats.getHits(), stats.getMisses(), stats.getEvictions());
+    }
+
+    /**
+     * Reads the stats from a stream.
+     *
+     * @param in the stream.
+     */
+    CodecCacheStats(StreamInput in) throws IOException {
+        this(in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(sizeInBytes);
+        out.writeVLong(count);
+        out.writeVLong(hits);
+        out.writeVLong(misses);
+        out.writeVLong(evictions);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.humanReadableField("size_in_bytes", "size", new ByteSizeValue(sizeInBytes));
+        builder.field("count", count);
+        builder.field("hits", hits);
+        builder.field("misses", misses);
+        return builder.field("evictions", evictions);
+    }
+}
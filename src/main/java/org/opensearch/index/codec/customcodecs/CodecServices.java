@@ -0,0 +1,197 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.threadpool.ThreadPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intel.qat.QatZipper;
+
+/**
+ * The services that the custom codecs share across the indices of a node: the executor of sub-blocks, the caches of
+ * stored fields blocks and zstd dictionaries, and the QAT circuit breaker, sessions and polling policy.
+ * <p>
+ * The plugin creates them from the node settings in {@code createComponents}, and passes them to the codecs of every
+ * index through {@link CustomAdditionalCodecs}. Codecs that are instantiated by name, which read the segments that a
+ * shard opens from a commit, resolve the services of the node whose data path holds the segment through {@link #of}.
+ * Codecs outside of a node, e.g. in tools and tests, use {@link #DEFAULT}, which is built from the default settings.
+ *
+ * @opensearch.internal
+ */
+final class CodecServices implements Closeable {
+
+    /** The services of segments that no node holds. */
+    static final CodecServices DEFAULT = new CodecServices(Settings.EMPTY, null);
+
+    /* the services of the nodes of this JVM, by data path */
+    private static final Map<Path, CodecServices> NODES = new ConcurrentHashMap<>();
+
+    private final SubBlockExecutor subBlockExecutor;
+    private final StoredFieldsBlockCache blockCache;
+    private final ZstdDictionaryCache dictionaryCache;
+    private final QatCircuitBreaker qatCircuitBreaker;
+    private final SessionPool<QatCompressionMode.SessionKey, QatZipper> qatSessions;
+    private final QatCompressionMode.PollingPolicy qatPollingPolicy;
+    private final Path[] dataPaths;
+
+    /**
+     * Creates the services of the given settings, which are not registered for any data path.
+     *
+     * @param settings the node settings.
+     * @param threadPool the thread pool that holds the executor of sub-blocks, if any.
+     */
+    CodecServices(Settings settings, ThreadPool threadPool) {
+        this(settings, threadPool, new Path[0]);
+    }
+
+    private CodecServices(Settings settings, ThreadPool threadPool, Path[] dataPaths) {
+        subBlockExecutor = new SubBlockExecutor();
+        subBlockExecutor.setParallelDecompressionThreshold(
+            SubBlockExecutor.PARALLEL_DECOMPRESSION_THRESHOLD_SETTING.get(settings).getBytes()
+        );
+        if (threadPool != null) {
+            subBlockExecutor.setThreadPool(threadPool);
+        }
+        blockCache = new StoredFieldsBlockCache(StoredFieldsBlockCache.BLOCK_CACHE_SIZE_SETTING.get(settings).getBytes());
+        dictionaryCache = new ZstdDictionaryCache(ZstdDictionaryCache.DEFAULT_MAX_WEIGHT);
+        qatCircuitBreaker = new QatCircuitBreaker(System::nanoTime);
+        qatCircuitBreaker.setEnabled(QatCircuitBreaker.ENABLED_SETTING.get(settings));
+        qatCircuitBreaker.setSlowCallThreshold(QatCircuitBreaker.SLOW_CALL_THRESHOLD_SETTING.get(settings));
+        qatCircuitBreaker.setOpenDuration(QatCircuitBreaker.OPEN_DURATION_SETTING.get(settings));
+        qatSessions = QatCompressionMode.newSessionPool(settings);
+        qatPollingPolicy = QatCompressionMode.POLLING_MODE_SETTING.get(settings);
+        this.dataPaths = dataPaths;
+    }
+
+    /**
+     * Creates the services of a node, which the segments under its data paths resolve until they are closed.
+     *
+     * @param settings the node settings.
+     * @param threadPool the node's thread pool.
+     * @param dataPaths the data paths of the node.
+     */
+    static CodecServices forNode(Settings settings, ThreadPool threadPool, Path[] dataPaths) {
+        final Path[] realPaths = new Path[dataPaths.length];
+        for (int i = 0; i < dataPaths.length; ++i) {
+            realPaths[i] = realPath(dataPaths[i]);
+        }
+        final CodecServices services = new CodecServices(settings, threadPool, realPaths);
+        for (Path path : realPaths) {
+            NODES.put(path, services);
+        }
+        return services;
+    }
+
+    /**
+     * Returns the services of the node whose data path holds the given directory, or {@link #DEFAULT} if there is none.
+     *
+     * @param directory the directory of a segment.
+     */
+    static CodecServices of(Directory directory) {
+        if (NODES.isEmpty() == false && FilterDirectory.unwrap(directory) instanceof FSDirectory fsDirectory) {
+            final Path path = fsDirectory.getDirectory();
+            for (Map.Entry<Path, CodecServices> entry : NODES.entrySet()) {
+                if (path.startsWith(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return DEFAULT;
+    }
+
+    /* file system directories resolve their path, so the data paths are resolved the same way */
+    private static Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    /** Returns the executor that compresses and decompresses sub-blocks concurrently. */
+    SubBlockExecutor subBlockExecutor() {
+        return subBlockExecutor;
+    }
+
+    /** Returns the cache of decompressed stored fields blocks. */
+    StoredFieldsBlockCache blockCache() {
+        return blockCache;
+    }
+
+    /** Returns the cache of the dictionaries of zstd blocks. */
+    ZstdDictionaryCache dictionaryCache() {
+        return dictionaryCache;
+    }
+
+    /** Returns the breaker that moves QAT compression to software while the accelerator degrades. */
+    QatCircuitBreaker qatCircuitBreaker() {
+        return qatCircuitBreaker;
+    }
+
+    /** Returns the pool of QAT sessions. */
+    SessionPool<QatCompressionMode.SessionKey, QatZipper> qatSessions() {
+        return qatSessions;
+    }
+
+    /** Returns how QAT sessions poll for completed requests. */
+    QatCompressionMode.PollingPolicy qatPollingPolicy() {
+        return qatPollingPolicy;
+    }
+
+    /**
+     * Wraps the stored fields reader of a segment, so that the caches keep the entries of the segment while it is open
+     * and invalidate them once all its readers are closed.
+     *
+     * @param reader the stored fields reader.
+     * @param si the segment.
+     */
+    StoredFieldsReader wrap(StoredFieldsReader reader, SegmentInfo si) {
+        final BytesRef segmentId = new BytesRef(si.getId());
+        // the block cache does not track segments while it is disabled
+        final boolean cacheBlocks = blockCache.isEnabled();
+        if (cacheBlocks) {
+            blockCache.acquire(segmentId);
+        }
+        dictionaryCache.acquire(segmentId);
+        return new SegmentReleasingStoredFieldsReader(reader, () -> {
+            dictionaryCache.release(segmentId);
+            if (cacheBlocks) {
+                blockCache.release(segmentId);
+            }
+        });
+    }
+
+    /**
+     * Unregisters the data paths of the node and frees the cached blocks and dictionaries, the compression modes and
+     * the QAT sessions.
+     */
+    @Override
+    public void close() {
+        for (Path path : dataPaths) {
+            NODES.remove(path, this);
+        }
+        CompressionModes.remove(this);
+        subBlockExecutor.close();
+        blockCache.clear();
+        dictionaryCache.clear();
+        qatSessions.clear();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the compression modes of the zstd stored fields formats, so that there is a single instance per set of
+ * compression parameters.
+ * <p>
+ * Merges only copy compressed chunks as-is if the reader of a segment and the writer of the merged segment use the same
+ * compression mode instance. Codecs are instantiated per index and by name when segments are read back, so without
+ * interning, segments that were compressed with the same parameters would still be decompressed and recompressed.
+ * Modes are interned per {@link CodecServices}, since they hand sub-blocks off to the executor of a node and cache the
+ * blocks they decompress in the cache of a node.
+ *
+ * @opensearch.internal
+ */
+final class CompressionModes {
+
+    private record Key(CodecServices services, Lucene104CustomCodec.Mode mode, int compressionLevel, BlockLayout layout, int subBlockLength,
+        ZstdParameters parameters) {
+    }
+
+    private static final Map<Key, CompressionMode> MODES = new ConcurrentHashMap<>();
+
+    private CompressionModes() {}
+
+    /**
+     * Returns the compression mode for the given parameters and the default advanced zstd parameters.
+     *
+     * @param services the services of the node.
+     * @param mode the mode, any but {@link Lucene104CustomCodec.Mode#ZSTD_TRAINED_DICT}.
+     * @param compressionLevel the compression level.
+     * @param layout the layout of the sub-blocks.
+     * @param subBlockLength the target decompressed length of a sub-block, or zero.
+     */
+    static CompressionMode get(
+        CodecServices services,
+        Lucene104CustomCodec.Mode mode,
+        int compressionLevel,
+        BlockLayout layout,
+        int subBlockLength
+    ) {
+        return get(services, mode, compressionLevel, layout, subBlockLength, ZstdParameters.DEFAULT);
+    }
+
+    /**
+     * Returns the compression mode for the given parameters, which is shared by all formats.
+     *
+     * @param services the services of the node.
+     * @param mode the mode, any but {@link Lucene104CustomCodec.Mode#ZSTD_TRAINED_DICT}.
+     * @param compressionLevel the compression level.
+     * @param layout the layout of the sub-blocks.
+     * @param subBlockLength the target decompressed length of a sub-block, or zero.
+     * @param parameters the advanced zstd parameters, only {@link Lucene104CustomCodec.Mode#ZSTD} supports others than
+     *                   the default ones.
+     */
+    static CompressionMode get(
+        CodecServices services,
+        Lucene104CustomCodec.Mode mode,
+        int compressionLevel,
+        BlockLayout layout,
+        int subBlockLength,
+        ZstdParameters parameters
+    ) {
+        return MODES.computeIfAbsent(
+            new Key(services, mode, compressionLevel, layout, subBlockLength, parameters),
+            CompressionModes::create
+        );
+    }
+
+    /**
+     * Forgets the compression modes of the given services, once their node is closed.
+     *
+     * @param services the services of the node.
+     */
+    static void remove(CodecServices services) {
+        MODES.keySet().removeIf(key -> key.services() == services);
+    }
+
+    private static CompressionMode create(Key key) {
+        final SubBlockExecutor executor = key.services().subBlockExecutor();
+        final StoredFieldsBlockCache cache = key.services().blockCache();
+        final ZstdDictionaryCache dictionaryCache = key.services().dictionaryCache();
+        switch (key.mode()) {
+            case ZSTD:
+                return new BlockCachingCompressionMode(
+                    cache,
+                    new ZstdCompressionMode(
+                        key.compressionLevel(),
+                        key.layout(),
+                        key.subBlockLength(),
+                        key.parameters(),
+                        executor,
+                        dictionaryCache
+                    )
+                );
+            case ZSTD_NO_DICT:
+            case ZSTD_FAST:
+                return new BlockCachingCompressionMode(
+                    cache,
+                    new ZstdNoDictCompressionMode(key.compressionLevel(), key.layout(), key.subBlockLength(), executor)
+                );
+            case ZSTD_HYBRID:
+                return new BlockCachingCompressionMode(
+                    cache,
+                    new HybridCompressionMode(key.compressionLevel(), key.layout(), key.subBlockLength(), executor, dictionaryCache)
+                );
+            default:
+                throw new IllegalArgumentException("Compression modes of " + key.mode() + " are bound to a segment");
+        }
+    }
+}
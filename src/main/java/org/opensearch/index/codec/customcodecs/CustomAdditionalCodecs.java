@@ -9,6 +9,7 @@
 package org.opensearch.index.codec.customcodecs;
 
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.lucene104.Lucene104Codec;
 import org.opensearch.common.collect.MapBuilder;
 import org.opensearch.index.IndexSettings;
 import org.opensearch.index.codec.AdditionalCodecs;
@@ -17,10 +18,18 @@ import org.opensearch.index.mapper.MapperService;
 import java.util.Map;
 import java.util.function.Supplier;
 
+import com.intel.qat.QatZipper;
+
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING;
 import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99QatCodec.INDEX_CODEC_QAT_MODE_SETTING;
 import static org.opensearch.index.engine.EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING;
 
-/** CustomAdditionalCodecs provides ZSTD, ZSTD_NO_DICT, QAT_LZ4, and QAT_DEFLATE compression codecs. */
+/** CustomAdditionalCodecs provides ZSTD, ZSTD_NO_DICT, ZSTD_TRAINED_DICT, ZSTD_HYBRID, ZSTD_FAST, QAT_LZ4, and QAT_DEFLATE compression codecs. */
 public class CustomAdditionalCodecs implements AdditionalCodecs {
     /** ZStandard codec */
     public static final String ZSTD_CODEC = "zstd";
@@ -28,6 +37,15 @@ public class CustomAdditionalCodecs implements AdditionalCodecs {
     /** ZStandard without dictionary codec */
     public static final String ZSTD_NO_DICT_CODEC = "zstd_no_dict";
 
+    /** ZStandard with a dictionary trained per segment codec */
+    public static final String ZSTD_TRAINED_DICT_CODEC = "zstd_trained_dict";
+
+    /** Codec that picks raw, LZ4, or ZStandard with or without a dictionary per block */
+    public static final String ZSTD_HYBRID_CODEC = "zstd_hybrid";
+
+    /** ZStandard without dictionary at negative compression levels codec */
+    public static final String ZSTD_FAST_CODEC = "zstd_fast";
+
     /** Hardware accelerated (Intel QAT) compression codec for LZ4. */
     public static final String QAT_LZ4_CODEC = "qat_lz4";
 
@@ -37,51 +55,64 @@ public class CustomAdditionalCodecs implements AdditionalCodecs {
     /** Hardware accelerated (Intel QAT) compression codec for ZSTD. */
     public static final String QAT_ZSTD_CODEC = "qat_zstd";
 
+    private final CodecServices services;
+
+    /** Creates codecs that resolve the services of every segment from its directory. */
+    public CustomAdditionalCodecs() {
+        this(null);
+    }
+
+    /**
+     * Creates codecs that use the services of a node.
+     *
+     * @param services the services of the node, or {@code null} to resolve the services of every segment.
+     */
+    CustomAdditionalCodecs(CodecServices services) {
+        this.services = services;
+    }
+
     @Override
     public Map<String, Codec> getCodecs(MapperService mapperService, IndexSettings indexSettings, Supplier<Codec> defaultCodec) {
         final int compressionLevel = indexSettings.getValue(INDEX_CODEC_COMPRESSION_LEVEL_SETTING);
+        final StoredFieldsParameters parameters = new StoredFieldsParameters(
+            compressionLevel,
+            INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING.get(indexSettings.getSettings()),
+            Math.toIntExact(INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.get(indexSettings.getSettings()).getBytes()),
+            ZstdParameters.DEFAULT,
+            INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING.get(indexSettings.getSettings()),
+            services
+        );
+        final ZstdParameters mergeParameters = new ZstdParameters(
+            INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING.get(indexSettings.getSettings()),
+            INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.get(indexSettings.getSettings())
+        );
+        final int acceleration = INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING.get(indexSettings.getSettings());
+        // without a mapper service, the codecs do not delegate to the per-field formats of the default codec
+        final Supplier<Codec> delegate = mapperService == null ? Lucene104Codec::new : defaultCodec;
+        final Supplier<QatZipper.Mode> qatMode = () -> { return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING); };
         final MapBuilder<String, Codec> codecs = MapBuilder.<String, Codec>newMapBuilder();
-        if (mapperService == null) {
-            codecs.put(ZSTD_CODEC, new Zstd104Codec(compressionLevel));
-            codecs.put(ZSTD_NO_DICT_CODEC, new ZstdNoDict104Codec(compressionLevel));
-            if (QatZipperFactory.isQatAvailable()) {
-                codecs.put(
-                    QAT_LZ4_CODEC,
-                    new QatLz4104Codec(compressionLevel, () -> { return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING); })
-                );
-                codecs.put(QAT_DEFLATE_CODEC, new QatDeflate104Codec(compressionLevel, () -> {
-                    return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING);
-                }));
-                codecs.put(
-                    QAT_ZSTD_CODEC,
-                    new QatZstd104Codec(compressionLevel, () -> { return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING); })
-                );
-            }
-        } else {
-            codecs.put(ZSTD_CODEC, new Zstd104Codec(compressionLevel, defaultCodec));
-            codecs.put(ZSTD_NO_DICT_CODEC, new ZstdNoDict104Codec(compressionLevel, defaultCodec));
-            if (QatZipperFactory.isQatAvailable()) {
-                codecs.put(
-                    QAT_LZ4_CODEC,
-                    new QatLz4104Codec(
-                        compressionLevel,
-                        () -> { return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING); },
-                        defaultCodec
-                    )
-                );
-                codecs.put(QAT_DEFLATE_CODEC, new QatDeflate104Codec(compressionLevel, () -> {
-                    return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING);
-                }, defaultCodec));
-                codecs.put(
-                    QAT_ZSTD_CODEC,
-                    new QatZstd104Codec(
-                        compressionLevel,
-                        () -> { return indexSettings.getValue(INDEX_CODEC_QAT_MODE_SETTING); },
-                        defaultCodec
-                    )
-                );
-            }
-        }
+        codecs.put(ZSTD_CODEC, new Zstd104Codec(parameters.withMergeParameters(mergeParameters), delegate));
+        codecs.put(ZSTD_NO_DICT_CODEC, new ZstdNoDict104Codec(parameters, delegate));
+        codecs.put(ZSTD_TRAINED_DICT_CODEC, new ZstdTrainedDict104Codec(parameters.withColumnGrouped(false), delegate));
+        codecs.put(
+            ZSTD_FAST_CODEC,
+            new ZstdFast104Codec(
+                new StoredFieldsParameters(
+                    -acceleration,
+                    -acceleration,
+                    parameters.subBlockLength(),
+                    ZstdParameters.DEFAULT,
+                    parameters.columnGrouped(),
+                    services
+                ),
+                delegate
+            )
+        );
+        codecs.put(ZSTD_HYBRID_CODEC, new ZstdHybrid104Codec(parameters, delegate));
+        // nodes without QAT read and write the QAT codecs in software, so that their shards can be allocated anywhere
+        codecs.put(QAT_LZ4_CODEC, new QatLz4104Codec(parameters, qatMode, delegate));
+        codecs.put(QAT_DEFLATE_CODEC, new QatDeflate104Codec(parameters, qatMode, delegate));
+        codecs.put(QAT_ZSTD_CODEC, new QatZstd104Codec(parameters, qatMode, delegate));
 
         return codecs.immutableMap();
     }
@@ -8,19 +8,43 @@
 
 package org.opensearch.index.codec.customcodecs;
 
+import org.opensearch.action.ActionRequest;
+import org.opensearch.cluster.metadata.IndexNameExpressionResolver;
+import org.opensearch.cluster.node.DiscoveryNodes;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.settings.ClusterSettings;
+import org.opensearch.common.settings.IndexScopedSettings;
 import org.opensearch.common.settings.Setting;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.settings.SettingsFilter;
+import org.opensearch.common.util.io.IOUtils;
+import org.opensearch.core.action.ActionResponse;
+import org.opensearch.core.common.io.stream.NamedWriteableRegistry;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.env.Environment;
+import org.opensearch.env.NodeEnvironment;
 import org.opensearch.index.IndexSettings;
 import org.opensearch.index.codec.AdditionalCodecs;
-import org.opensearch.index.codec.customcodecs.backward_codecs.lucene101.Lucene101QatCodec;
-import org.opensearch.index.codec.customcodecs.backward_codecs.lucene912.Lucene912QatCodec;
 import org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99QatCodec;
 import org.opensearch.index.engine.EngineConfig;
+import org.opensearch.plugins.ActionPlugin;
 import org.opensearch.plugins.EnginePlugin;
 import org.opensearch.plugins.Plugin;
+import org.opensearch.repositories.RepositoriesService;
+import org.opensearch.rest.RestController;
+import org.opensearch.rest.RestHandler;
+import org.opensearch.script.ScriptService;
+import org.opensearch.threadpool.ExecutorBuilder;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.client.Client;
+import org.opensearch.watcher.ResourceWatcherService;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * A plugin that implements custom codecs. Supports these codecs:
@@ -28,6 +52,9 @@ import java.util.Optional;
  * <ul>
  *   <li>ZSTD_CODEC
  *   <li>ZSTD_NO_DICT_CODEC
+ *   <li>ZSTD_TRAINED_DICT_CODEC
+ *   <li>ZSTD_HYBRID_CODEC
+ *   <li>ZSTD_FAST_CODEC
  *   <li>QAT_LZ4
  *   <li>QAT_DEFLATE
  *   <li>QAT_ZSTD
@@ -35,10 +62,16 @@ import java.util.Optional;
  *
  * @opensearch.internal
  */
-public final class CustomCodecPlugin extends Plugin implements EnginePlugin {
+public final class CustomCodecPlugin extends Plugin implements EnginePlugin, ActionPlugin {
 
-    /** Creates a new instance */
-    public CustomCodecPlugin() {}
+    private volatile CodecServices services;
+
+    /**
+     * Creates a new instance
+     *
+     * @param settings the node settings
+     */
+    public CustomCodecPlugin(Settings settings) {}
 
     /**
      * @param indexSettings is the default indexSettings
@@ -49,35 +82,86 @@ public final class CustomCodecPlugin extends Plugin implements EnginePlugin {
         String codecName = indexSettings.getValue(EngineConfig.INDEX_CODEC_SETTING);
         if (codecName.equals(CustomAdditionalCodecs.ZSTD_NO_DICT_CODEC)
             || codecName.equals(CustomAdditionalCodecs.ZSTD_CODEC)
+            || codecName.equals(CustomAdditionalCodecs.ZSTD_TRAINED_DICT_CODEC)
+            || codecName.equals(CustomAdditionalCodecs.ZSTD_HYBRID_CODEC)
+            || codecName.equals(CustomAdditionalCodecs.ZSTD_FAST_CODEC)
             || codecName.equals(CustomAdditionalCodecs.QAT_LZ4_CODEC)
             || codecName.equals(CustomAdditionalCodecs.QAT_DEFLATE_CODEC)
             || codecName.equals(CustomAdditionalCodecs.QAT_ZSTD_CODEC)) {
-            return Optional.of(new CustomAdditionalCodecs());
-        } else {
-            if (!QatZipperFactory.isQatAvailable() && isQatCodec(codecName)) {
-                throw new IllegalArgumentException(
-                    "QAT codecs are not supported (QAT is not available). Please create indices with a different codec."
-                );
-            }
+            return Optional.of(new CustomAdditionalCodecs(services));
         }
         return Optional.empty();
     }
 
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(Settings settings) {
+        final ExecutorBuilder<?> subBlockExecutor = SubBlockExecutor.executorBuilder(settings);
+        return subBlockExecutor == null ? List.of() : List.of(subBlockExecutor);
+    }
+
+    @Override
+    public Collection<Object> createComponents(
+        Client client,
+        ClusterService clusterService,
+        ThreadPool threadPool,
+        ResourceWatcherService resourceWatcherService,
+        ScriptService scriptService,
+        NamedXContentRegistry xContentRegistry,
+        Environment environment,
+        NodeEnvironment nodeEnvironment,
+        NamedWriteableRegistry namedWriteableRegistry,
+        IndexNameExpressionResolver indexNameExpressionResolver,
+        Supplier<RepositoriesService> repositoriesServiceSupplier
+    ) {
+        // the services of the node are only known once the node has a thread pool
+        services = CodecServices.forNode(environment.settings(), threadPool, nodeEnvironment.nodeDataPaths());
+        return List.of(services);
+    }
+
+    @Override
+    public List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> getActions() {
+        return List.of(new ActionHandler<>(CustomCodecsStatsAction.INSTANCE, TransportCustomCodecsStatsAction.class));
+    }
+
+    @Override
+    public List<RestHandler> getRestHandlers(
+        Settings settings,
+        RestController restController,
+        ClusterSettings clusterSettings,
+        IndexScopedSettings indexScopedSettings,
+        SettingsFilter settingsFilter,
+        IndexNameExpressionResolver indexNameExpressionResolver,
+        Supplier<DiscoveryNodes> nodesInCluster
+    ) {
+        return List.of(new RestCustomCodecsStatsAction());
+    }
+
     @Override
     public List<Setting<?>> getSettings() {
-        return Arrays.asList(Lucene99QatCodec.INDEX_CODEC_QAT_MODE_SETTING);
+        return Arrays.asList(
+            Lucene99QatCodec.INDEX_CODEC_QAT_MODE_SETTING,
+            Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING,
+            Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING,
+            Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING,
+            Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING,
+            Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING,
+            Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING,
+            StoredFieldsBlockCache.BLOCK_CACHE_SIZE_SETTING,
+            SubBlockExecutor.THREADS_SETTING,
+            SubBlockExecutor.PARALLEL_DECOMPRESSION_THRESHOLD_SETTING,
+            QatCompressionMode.MAX_IDLE_SESSIONS_SETTING,
+            QatCompressionMode.SESSION_IDLE_TIMEOUT_SETTING,
+            QatCompressionMode.POLLING_MODE_SETTING,
+            QatCircuitBreaker.ENABLED_SETTING,
+            QatCircuitBreaker.SLOW_CALL_THRESHOLD_SETTING,
+            QatCircuitBreaker.OPEN_DURATION_SETTING
+        );
     }
 
-    private static boolean isQatCodec(String codecName) {
-        return codecName.equals(Lucene99QatCodec.Mode.QAT_LZ4.getCodec())
-            || codecName.equals(Lucene99QatCodec.Mode.QAT_DEFLATE.getCodec())
-            || codecName.equals(Lucene912QatCodec.Mode.QAT_LZ4.getCodec())
-            || codecName.equals(Lucene912QatCodec.Mode.QAT_DEFLATE.getCodec())
-            || codecName.equals(Lucene101QatCodec.Mode.QAT_LZ4.getCodec())
-            || codecName.equals(Lucene101QatCodec.Mode.QAT_DEFLATE.getCodec())
-            || codecName.equals(Lucene101QatCodec.Mode.QAT_ZSTD.getCodec())
-            || codecName.equals(Lucene104QatCodec.Mode.QAT_LZ4.getCodec())
-            || codecName.equals(Lucene104QatCodec.Mode.QAT_DEFLATE.getCodec())
-            || codecName.equals(Lucene104QatCodec.Mode.QAT_ZSTD.getCodec());
+    @Override
+    public void close() throws IOException {
+        ZstdDecompressCtxPool.INSTANCE.clear();
+        ZstdCompressCtxPool.INSTANCE.clear();
+        IOUtils.close(services);
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.action.support.nodes.BaseNodeResponse;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.ToXContentFragment;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * The stats of the custom codecs of a node.
+ *
+ * @opensearch.internal
+ */
+public final class CustomCodecsNodeStats extends BaseNodeResponse implements ToXContentFragment {
+
+    private final QatCircuitBreaker.Stats qatCircuitBreaker;
+    private final CodecCacheStats blockCache;
+    private final CodecCacheStats dictionaryCache;
+
+    /**
+     * Creates the stats of a node.
+     *
+     * @param node the node.
+     * @param services the services of the node.
+     */
+    CustomCodecsNodeStats(DiscoveryNode node, CodecServices services) {
+        super(node);
+        this.qatCircuitBreaker = services.qatCircuitBreaker().stats();
+        this.blockCache = services.blockCache().stats();
+        this.dictionaryCache = services.dictionaryCache().stats();
+    }
+
+    /**
+     * Reads the stats of a node from a stream.
+     *
+     * @param in the stream.
+     */
+    public CustomCodecsNodeStats(StreamInput in) throws IOException {
+        super(in);
+        this.qatCircuitBreaker = new QatCircuitBreaker.Stats(in);
+        this.blockCache = new CodecCacheStats(in);
+        this.dictionaryCache = new CodecCacheStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        qatCircuitBreaker.writeTo(out);
+        blockCache.writeTo(out);
+        dictionaryCache.writeTo(out);
+    }
+
+    /** Returns the stats of the QAT circuit breaker of the node. */
+    QatCircuitBreaker.Stats qatCircuitBreaker() {
+        return qatCircuitBreaker;
+    }
+
+    /** Returns the stats of the stored fields block cache of the node. */
+    CodecCacheStats blockCache() {
+        return blockCache;
+    }
+
+    /** Returns the stats of the zstd dictionary cache of the node. */
+    CodecCacheStats dictionaryCache() {
+        return dictionaryCache;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        qatCircuitBreaker.toXContent(builder, params);
+        builder.startObject("stored_fields_block_cache");
+        blockCache.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject("zstd_dictionary_cache");
+        dictionaryCache.toXContent(builder, params);
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.action.ActionType;
+
+/**
+ * An action that returns the stats of the custom codecs of nodes.
+ *
+ * @opensearch.internal
+ */
+public final class CustomCodecsStatsAction extends ActionType<CustomCodecsStatsResponse> {
+
+    /** The name of the action. */
+    public static final String NAME = "cluster:monitor/custom_codecs/stats";
+    /** The action. */
+    public static final CustomCodecsStatsAction INSTANCE = new CustomCodecsStatsAction();
+
+    private CustomCodecsStatsAction() {
+        super(NAME, CustomCodecsStatsResponse::new);
+    }
+}
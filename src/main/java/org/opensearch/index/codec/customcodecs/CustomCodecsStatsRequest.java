@@ -0,0 +1,40 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.action.support.nodes.BaseNodesRequest;
+import org.opensearch.core.common.io.stream.StreamInput;
+
+import java.io.IOException;
+
+/**
+ * A request for the stats of the custom codecs of nodes.
+ *
+ * @opensearch.internal
+ */
+public final class CustomCodecsStatsRequest extends BaseNodesRequest<CustomCodecsStatsRequest> {
+
+    /**
+     * Creates a request for the given nodes, or all nodes if there are none.
+     *
+     * @param nodesIds the ids of the nodes.
+     */
+    public CustomCodecsStatsRequest(String... nodesIds) {
+        super(nodesIds);
+    }
+
+    /**
+     * Reads a request from a stream.
+     *
+     * @param in the stream.
+     */
+    public CustomCodecsStatsRequest(StreamInput in) throws IOException {
+        super(in);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.action.FailedNodeException;
+import org.opensearch.action.support.nodes.BaseNodesResponse;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.xcontent.ToXContentFragment;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The stats of the custom codecs of nodes.
+ *
+ * @opensearch.internal
+ */
+public final class CustomCodecsStatsResponse extends BaseNodesResponse<CustomCodecsNodeStats> implements ToXContentFragment {
+
+    /**
+     * Creates a response.
+     *
+     * @param clusterName the name of the cluster.
+     * @param nodes the stats of the nodes that responded.
+     * @param failures the failures of the other nodes.
+     */
+    public CustomCodecsStatsResponse(ClusterName clusterName, List<CustomCodecsNodeStats> nodes, List<FailedNodeException> failures) {
+        super(clusterName, nodes, failures);
+    }
+
+    /**
+     * Reads a response from a stream.
+     *
+     * @param in the stream.
+     */
+    public CustomCodecsStatsResponse(StreamInput in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected List<CustomCodecsNodeStats> readNodesFrom(StreamInput in) throws IOException {
+        return in.readList(CustomCodecsNodeStats::new);
+    }
+
+    @Override
+    protected void writeNodesTo(StreamOutput out, List<CustomCodecsNodeStats> nodes) throws IOException {
+        out.writeList(nodes);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("nodes");
+        for (CustomCodecsNodeStats node : getNodes()) {
+            builder.startObject(node.getNode().getId());
+            builder.field("name", node.getNode().getName());
+            node.toXContent(builder, params);
+            builder.endObject();
+        }
+        return builder.endObject();
+    }
+}
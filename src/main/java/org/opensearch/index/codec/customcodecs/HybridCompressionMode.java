@@ -0,0 +1,226 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.ByteBuffersDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compression mode that picks the cheapest adequate encoding for every block: raw, LZ4, zstd without a dictionary or
+ * zstd with a dictionary. Every block starts with a tag that records the encoding.
+ * <p>
+ * A sample of every block is trial-compressed with LZ4 and zstd, and only the picked encoding compresses the whole
+ * block. Blocks that neither makes the sample noticeably smaller are stored raw, and blocks that zstd does not compress
+ * noticeably better than LZ4 use LZ4, which is much faster to decompress. Zstd blocks only use a dictionary if they are
+ * large enough for one to pay off.
+ *
+ * @opensearch.internal
+ */
+public class HybridCompressionMode extends CompressionMode {
+
+    static final byte RAW = 0;
+    static final byte LZ4 = 1;
+    static final byte ZSTD_NO_DICT = 2;
+    static final byte ZSTD = 3;
+
+    /* an encoding has to save at least 1/N of the bytes of the next cheaper one to be picked over it */
+    private static final int MIN_GAIN_OVER_RAW = 64;
+    private static final int MIN_GAIN_OVER_LZ4 = 8;
+    /* the dictionary is a tenth of the first sub-block, which does not help small blocks */
+    private static final int MIN_DICT_BLOCK_LENGTH = 64 * 1024;
+    /* larger blocks are sampled with windows that are spread evenly over the block */
+    private static final int SAMPLE_WINDOWS = 4;
+    private static final int SAMPLE_WINDOW_LENGTH = 8 * 1024;
+    static final int SAMPLE_LENGTH = SAMPLE_WINDOWS * SAMPLE_WINDOW_LENGTH;
+
+    private final CompressionMode zstdNoDict;
+    private final CompressionMode zstd;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param compressionLevel The compression level of zstd blocks.
+     * @param layout The layout of the sub-blocks of zstd blocks.
+     * @param subBlockLength The target decompressed length of the sub-blocks of zstd blocks, or zero.
+     */
+    HybridCompressionMode(int compressionLevel, BlockLayout layout, int subBlockLength) {
+        this(compressionLevel, layout, subBlockLength, CodecServices.DEFAULT.subBlockExecutor(), CodecServices.DEFAULT.dictionaryCache());
+    }
+
+    /**
+     * Creates a new instance that processes sub-blocks with the given executor, and caches the dictionaries of zstd
+     * blocks in the given cache.
+     *
+     * @param compressionLevel The compression level of zstd blocks.
+     * @param layout The layout of the sub-blocks of zstd blocks.
+     * @param subBlockLength The target decompressed length of the sub-blocks of zstd blocks, or zero.
+     * @param executor The executor of sub-blocks of the node.
+     * @param dictionaryCache The cache of dictionaries of the node.
+     */
+    HybridCompressionMode(
+        int compressionLevel,
+        BlockLayout layout,
+        int subBlockLength,
+        SubBlockExecutor executor,
+        ZstdDictionaryCache dictionaryCache
+    ) {
+        this.zstdNoDict = new ZstdNoDictCompressionMode(compressionLevel, layout, subBlockLength, executor);
+        this.zstd = new ZstdCompressionMode(compressionLevel, layout, subBlockLength, ZstdParameters.DEFAULT, executor, dictionaryCache);
+    }
+
+    /** Creates a new compressor instance. */
+    @Override
+    public Compressor newCompressor() {
+        return new HybridCompressor(zstdNoDict.newCompressor(), zstd.newCompressor());
+    }
+
+    /** Creates a new decompressor instance. */
+    @Override
+    public Decompressor newDecompressor() {
+        return new HybridDecompressor(zstdNoDict.newDecompressor(), zstd.newDecompressor());
+    }
+
+    /** compressor that trial-compresses a sample of every block */
+    private static final class HybridCompressor extends Compressor {
+
+        private final Compressor lz4;
+        private final Compressor zstdNoDict;
+        private final Compressor zstd;
+        private final ByteBuffersDataOutput lz4Buffer;
+        private final ByteBuffersDataOutput zstdBuffer;
+        private final byte[] sampleBuffer;
+        private final ByteBuffersDataInput sampleInput;
+
+        HybridCompressor(Compressor zstdNoDict, Compressor zstd) {
+            this.lz4 = CompressionMode.FAST.newCompressor();
+            this.zstdNoDict = zstdNoDict;
+            this.zstd = zstd;
+            lz4Buffer = ByteBuffersDataOutput.newResettableInstance();
+            zstdBuffer = ByteBuffersDataOutput.newResettableInstance();
+            sampleBuffer = new byte[SAMPLE_LENGTH];
+            sampleInput = new ByteBuffersDataInput(List.of(ByteBuffer.wrap(sampleBuffer)));
+        }
+
+        @Override
+        public void compress(ByteBuffersDataInput buffersInput, DataOutput out) throws IOException {
+            final int length = (int) buffersInput.length();
+            // small blocks are their own sample, so the output of the picked trial is written as is
+            final boolean sampled = length > SAMPLE_LENGTH;
+            final ByteBuffersDataInput trialInput = sampled ? sample(buffersInput, length) : buffersInput;
+            final int trialLength = (int) trialInput.length();
+
+            lz4Buffer.reset();
+            lz4.compress(trialInput, lz4Buffer);
+            trialInput.seek(0);
+            zstdBuffer.reset();
+            zstdNoDict.compress(trialInput, zstdBuffer);
+            buffersInput.seek(0);
+
+            final long lz4Length = lz4Buffer.size();
+            final long zstdLength = zstdBuffer.size();
+            if (Math.min(lz4Length, zstdLength) > trialLength - trialLength / MIN_GAIN_OVER_RAW) {
+                out.writeByte(RAW);
+                out.copyBytes(buffersInput, length);
+            } else if (zstdLength > lz4Length - lz4Length / MIN_GAIN_OVER_LZ4) {
+                out.writeByte(LZ4);
+                if (sampled) {
+                    lz4.compress(buffersInput, out);
+                } else {
+                    lz4Buffer.copyTo(out);
+                }
+            } else if (length >= MIN_DICT_BLOCK_LENGTH) {
+                out.writeByte(ZSTD);
+                zstd.compress(buffersInput, out);
+            } else {
+                out.writeByte(ZSTD_NO_DICT);
+                if (sampled) {
+                    zstdNoDict.compress(buffersInput, out);
+                } else {
+                    zstdBuffer.copyTo(out);
+                }
+            }
+        }
+
+        /* copies evenly spread windows of the block into the sample buffer */
+        private ByteBuffersDataInput sample(ByteBuffersDataInput buffersInput, int length) throws IOException {
+            for (int i = 0; i < SAMPLE_WINDOWS; ++i) {
+                buffersInput.seek((long) (length - SAMPLE_WINDOW_LENGTH) * i / (SAMPLE_WINDOWS - 1));
+                buffersInput.readBytes(sampleBuffer, i * SAMPLE_WINDOW_LENGTH, SAMPLE_WINDOW_LENGTH);
+            }
+            sampleInput.seek(0);
+            return sampleInput;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(lz4, zstdNoDict, zstd);
+        }
+    }
+
+    /** decompressor that dispatches on the tag of every block */
+    private static final class HybridDecompressor extends Decompressor {
+
+        private final Decompressor lz4;
+        private final Decompressor zstdNoDict;
+        private final Decompressor zstd;
+
+        HybridDecompressor(Decompressor zstdNoDict, Decompressor zstd) {
+            this.lz4 = CompressionMode.FAST.newDecompressor();
+            this.zstdNoDict = zstdNoDict;
+            this.zstd = zstd;
+        }
+
+        @Override
+        public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
+            assert offset + length <= originalLength : "buffer read size must be within limit";
+
+            final byte tag = in.readByte();
+            switch (tag) {
+                case RAW:
+                    bytes.bytes = ArrayUtil.growNoCopy(bytes.bytes, length);
+                    in.skipBytes(offset);
+                    in.readBytes(bytes.bytes, 0, length);
+                    // callers that read large documents in slices expect the input to be after the block
+                    in.skipBytes(originalLength - offset - length);
+                    bytes.offset = 0;
+                    bytes.length = length;
+                    break;
+                case LZ4:
+                    lz4.decompress(in, originalLength, offset, length, bytes);
+                    break;
+                case ZSTD_NO_DICT:
+                    zstdNoDict.decompress(in, originalLength, offset, length, bytes);
+                    break;
+                case ZSTD:
+                    zstd.decompress(in, originalLength, offset, length, bytes);
+                    break;
+                default:
+                    throw new CorruptIndexException("unknown block encoding: " + tag, in);
+            }
+        }
+
+        @Override
+        public Decompressor clone() {
+            return new HybridDecompressor(zstdNoDict.clone(), zstd.clone());
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.codecs.StoredFieldsWriter;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.StoredFieldDataInput;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.opensearch.index.mapper.SourceFieldMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Variant of {@link Lucene104CustomStoredFieldsFormat} that compresses large payload fields, {@code _source} by
+ * default, into a stream of blocks of their own, next to the stream of the other stored fields of the segment. The
+ * payload stream is a second set of stored fields files with the {@link #PAYLOAD_SEGMENT_SUFFIX} segment suffix rather
+ * than a sub-stream inside every block, since the block format belongs to the compressing stored fields writer of
+ * Lucene.
+ * <p>
+ * Visitors that only need small fields such as {@code _id} or {@code _routing}, and visitors that stop before the
+ * payload, then never decompress the blocks of the payload, and the small fields of many documents share a block.
+ * Payload fields are visited after the other fields of a document, and only if the visitor needs one of them, so
+ * visitors see {@code _source} last rather than in the order in which the fields were added to the document. The
+ * visitor is asked once per payload field whether it needs it, before the payload is read. Merges go through the
+ * stored fields visitors, so they never copy compressed chunks as-is.
+ * <p>
+ * The payload fields are recorded per segment, so that every custom stored fields format reads these segments, and
+ * segments of other formats are merged into column-grouped segments as usual.
+ *
+ * @opensearch.internal
+ */
+public class Lucene104ColumnGroupedStoredFieldsFormat extends Lucene104CustomStoredFieldsFormat {
+
+    /** A key that we use to map to the comma-separated payload fields of a column-grouped segment */
+    public static final String PAYLOAD_FIELDS_KEY = Lucene104ColumnGroupedStoredFieldsFormat.class.getSimpleName() + ".payloadFields";
+
+    /** The segment suffix of the stored fields files of the payload fields. */
+    static final String PAYLOAD_SEGMENT_SUFFIX = "payload";
+
+    /** The payload fields by default. */
+    public static final Set<String> DEFAULT_PAYLOAD_FIELDS = Set.of(SourceFieldMapper.NAME);
+
+    private final Set<String> payloadFields;
+
+    /**
+     * Creates a new instance with the specified mode and stored fields parameters, which compresses
+     * {@link #DEFAULT_PAYLOAD_FIELDS} separately.
+     *
+     * @param mode The mode represents ZSTD, ZSTDNODICT, ZSTDHYBRID or ZSTDFAST
+     * @param parameters The stored fields parameters.
+     */
+    Lucene104ColumnGroupedStoredFieldsFormat(Lucene104CustomCodec.Mode mode, StoredFieldsParameters parameters) {
+        this(mode, parameters, DEFAULT_PAYLOAD_FIELDS);
+    }
+
+    /**
+     * Creates a new instance with the specified mode, stored fields parameters and payload fields.
+     *
+     * @param mode The mode represents ZSTD, ZSTDNODICT, ZSTDHYBRID or ZSTDFAST
+     * @param parameters The stored fields parameters.
+     * @param payloadFields The fields that are compressed separately from the other stored fields.
+     */
+    Lucene104ColumnGroupedStoredFieldsFormat(Lucene104CustomCodec.Mode mode, StoredFieldsParameters parameters, Set<String> payloadFields) {
+        super(mode, parameters);
+        if (mode == Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT) {
+            throw new IllegalArgumentException("Column-grouped stored fields are not supported by compression mode: " + mode);
+        }
+        if (payloadFields.isEmpty()) {
+            throw new IllegalArgumentException("Column-grouped stored fields need at least one payload field");
+        }
+        for (String field : payloadFields) {
+            if (field.isEmpty() || field.indexOf(',') >= 0) {
+                throw new IllegalArgumentException("Invalid payload field [" + field + "]");
+            }
+        }
+        this.payloadFields = Set.copyOf(payloadFields);
+    }
+
+    /**
+     * Returns a {@link StoredFieldsWriter} that writes the payload fields and the other stored fields to separate files.
+     * @param directory The index directory.
+     * @param si The SegmentInfo that stores segment information.
+     * @param context The IOContext that holds additional details on the merge/search context.
+     */
+    @Override
+    public StoredFieldsWriter fieldsWriter(Directory directory, SegmentInfo si, IOContext context) throws IOException {
+        si.putAttribute(PAYLOAD_FIELDS_KEY, String.join(",", new TreeSet<>(payloadFields)));
+        final StoredFieldsWriter writer = fieldsWriter(directory, si, context, "");
+        boolean success = false;
+        try {
+            final StoredFieldsWriter payloadWriter = fieldsWriter(directory, si, context, PAYLOAD_SEGMENT_SUFFIX);
+            success = true;
+            return new ColumnGroupedStoredFieldsWriter(writer, payloadWriter, payloadFields);
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(writer);
+            }
+        }
+    }
+
+    /**
+     * Returns the fields that are compressed separately from the other stored fields.
+     */
+    public Set<String> getPayloadFields() {
+        return payloadFields;
+    }
+
+    /**
+     * Creates a reader of a column-grouped segment.
+     *
+     * @param reader the reader of the stored fields other than the payload fields.
+     * @param payloadReader the reader of the payload fields.
+     * @param fn the fields of the segment.
+     * @param payloadFields the comma-separated payload fields, as recorded in the segment.
+     */
+    static StoredFieldsReader newReader(StoredFieldsReader reader, StoredFieldsReader payloadReader, FieldInfos fn, String payloadFields) {
+        final List<FieldInfo> payloadFieldInfos = new ArrayList<>();
+        for (String field : payloadFields.split(",")) {
+            // segments only know the fields that some of their documents have
+            final FieldInfo fieldInfo = fn.fieldInfo(field);
+            if (fieldInfo != null) {
+                payloadFieldInfos.add(fieldInfo);
+            }
+        }
+        return new ColumnGroupedStoredFieldsReader(reader, payloadReader, payloadFieldInfos.toArray(new FieldInfo[0]));
+    }
+
+    /** writer that sends the payload fields to their own stream, every document is written to both streams */
+    private static final class ColumnGroupedStoredFieldsWriter extends StoredFieldsWriter {
+
+        private final StoredFieldsWriter writer;
+        private final StoredFieldsWriter payloadWriter;
+        private final Set<String> payloadFields;
+
+        ColumnGroupedStoredFieldsWriter(StoredFieldsWriter writer, StoredFieldsWriter payloadWriter, Set<String> payloadFields) {
+            this.writer = writer;
+            this.payloadWriter = payloadWriter;
+            this.payloadFields = payloadFields;
+        }
+
+        private StoredFieldsWriter writer(FieldInfo info) {
+            return payloadFields.contains(info.name) ? payloadWriter : writer;
+        }
+
+        @Override
+        public void startDocument() throws IOException {
+            writer.startDocument();
+            payloadWriter.startDocument();
+        }
+
+        @Override
+        public void finishDocument() throws IOException {
+            writer.finishDocument();
+            payloadWriter.finishDocument();
+        }
+
+        @Override
+        public void writeField(FieldInfo info, int value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, long value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, float value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, double value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, StoredFieldDataInput value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, BytesRef value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, String value) throws IOException {
+            writer(info).writeField(info, value);
+        }
+
+        @Override
+        public void finish(int numDocs) throws IOException {
+            writer.finish(numDocs);
+            payloadWriter.finish(numDocs);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(writer, payloadWriter);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return writer.ramBytesUsed() + payloadWriter.ramBytesUsed();
+        }
+    }
+
+    /** reader that only reads the payload fields of a document if the visitor needs them */
+    private static final class ColumnGroupedStoredFieldsReader extends StoredFieldsReader {
+
+        private final StoredFieldsReader reader;
+        private final StoredFieldsReader payloadReader;
+        private final FieldInfo[] payloadFieldInfos;
+
+        ColumnGroupedStoredFieldsReader(StoredFieldsReader reader, StoredFieldsReader payloadReader, FieldInfo[] payloadFieldInfos) {
+            this.reader = reader;
+            this.payloadReader = payloadReader;
+            this.payloadFieldInfos = payloadFieldInfos;
+        }
+
+        @Override
+        public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+            final StopTrackingVisitor stopTracking = new StopTrackingVisitor(visitor);
+            reader.document(docID, stopTracking);
+            if (stopTracking.stopped) {
+                return;
+            }
+            // the payload reader gets the answers of the visitor, so that it is asked once per field
+            final StoredFieldVisitor.Status[] statuses = new StoredFieldVisitor.Status[payloadFieldInfos.length];
+            boolean needsPayload = false;
+            for (int i = 0; i < payloadFieldInfos.length; ++i) {
+                statuses[i] = visitor.needsField(payloadFieldInfos[i]);
+                if (statuses[i] == StoredFieldVisitor.Status.STOP) {
+                    Arrays.fill(statuses, i, statuses.length, StoredFieldVisitor.Status.STOP);
+                    break;
+                }
+                needsPayload |= statuses[i] == StoredFieldVisitor.Status.YES;
+            }
+            if (needsPayload) {
+                payloadReader.document(docID, new PayloadFieldsVisitor(visitor, payloadFieldInfos, statuses));
+            }
+        }
+
+        @Override
+        public void prefetch(int docID) throws IOException {
+            reader.prefetch(docID);
+            payloadReader.prefetch(docID);
+        }
+
+        @Override
+        public StoredFieldsReader clone() {
+            return new ColumnGroupedStoredFieldsReader(reader.clone(), payloadReader.clone(), payloadFieldInfos);
+        }
+
+        @Override
+        public StoredFieldsReader getMergeInstance() {
+            return new ColumnGroupedStoredFieldsReader(reader.getMergeInstance(), payloadReader.getMergeInstance(), payloadFieldInfos);
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            reader.checkIntegrity();
+            payloadReader.checkIntegrity();
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(reader, payloadReader);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(" + reader + ", " + payloadReader + ")";
+        }
+    }
+
+    /** visitor that records whether the wrapped visitor stopped */
+    private static final class StopTrackingVisitor extends DelegatingVisitor {
+
+        private boolean stopped;
+
+        StopTrackingVisitor(StoredFieldVisitor delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) throws IOException {
+            final Status status = delegate.needsField(fieldInfo);
+            if (status == Status.STOP) {
+                stopped = true;
+            }
+            return status;
+        }
+    }
+
+    /** visitor of the payload fields that answers with the statuses that the wrapped visitor gave for them */
+    private static final class PayloadFieldsVisitor extends DelegatingVisitor {
+
+        private final FieldInfo[] fieldInfos;
+        private final Status[] statuses;
+
+        PayloadFieldsVisitor(StoredFieldVisitor delegate, FieldInfo[] fieldInfos, Status[] statuses) {
+            super(delegate);
+            this.fieldInfos = fieldInfos;
+            this.statuses = statuses;
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            for (int i = 0; i < fieldInfos.length; ++i) {
+                if (fieldInfos[i].number == fieldInfo.number) {
+                    return statuses[i];
+                }
+            }
+            return Status.NO;
+        }
+    }
+
+    /** visitor that passes the values of fields to the wrapped visitor */
+    private abstract static class DelegatingVisitor extends StoredFieldVisitor {
+
+        final StoredFieldVisitor delegate;
+
+        DelegatingVisitor(StoredFieldVisitor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, StoredFieldDataInput value) throws IOException {
+            delegate.binaryField(fieldInfo, value);
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+            delegate.binaryField(fieldInfo, value);
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, String value) throws IOException {
+            delegate.stringField(fieldInfo, value);
+        }
+
+        @Override
+        public void intField(FieldInfo fieldInfo, int value) throws IOException {
+            delegate.intField(fieldInfo, value);
+        }
+
+        @Override
+        public void longField(FieldInfo fieldInfo, long value) throws IOException {
+            delegate.longField(fieldInfo, value);
+        }
+
+        @Override
+        public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+            delegate.floatField(fieldInfo, value);
+        }
+
+        @Override
+        public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+            delegate.doubleField(fieldInfo, value);
+        }
+    }
+}
@@ -12,6 +12,11 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.FilterCodec;
 import org.apache.lucene.codecs.StoredFieldsFormat;
 import org.apache.lucene.codecs.lucene104.Lucene104Codec;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.common.settings.Setting.Property;
+import org.opensearch.core.common.unit.ByteSizeUnit;
+import org.opensearch.core.common.unit.ByteSizeValue;
+import org.opensearch.index.engine.EngineConfig;
 
 import java.util.Set;
 import java.util.function.Supplier;
@@ -21,7 +26,7 @@ import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.L
 /**
  *
  * Extends {@link FilterCodec} to reuse the functionality of Lucene Codec.
- * Supports two modes zstd and zstd_no_dict.
+ * Supports five modes zstd, zstd_no_dict, zstd_trained_dict, zstd_hybrid and zstd_fast.
  * Uses Lucene104 as the delegate codec
  *
  * @opensearch.internal
@@ -37,7 +42,19 @@ public abstract class Lucene104CustomCodec extends FilterCodec {
         /**
          * ZStandard mode without dictionary
          */
-        ZSTD_NO_DICT("ZSTDNODICT104", Set.of("zstd_no_dict"));
+        ZSTD_NO_DICT("ZSTDNODICT104", Set.of("zstd_no_dict")),
+        /**
+         * ZStandard mode with a dictionary trained per segment
+         */
+        ZSTD_TRAINED_DICT("ZSTDTRAINEDDICT104", Set.of("zstd_trained_dict")),
+        /**
+         * Picks raw, LZ4, or ZStandard with or without a dictionary per block
+         */
+        ZSTD_HYBRID("ZSTDHYBRID104", Set.of("zstd_hybrid")),
+        /**
+         * ZStandard mode without dictionary at negative compression levels
+         */
+        ZSTD_FAST("ZSTDFAST104", Set.of("zstd_fast"));
 
         private final String codec;
         private final Set<String> aliases;
@@ -62,6 +79,136 @@ public abstract class Lucene104CustomCodec extends FilterCodec {
         }
     }
 
+    /** The smallest sub-block size, below which the per sub-block overhead outweighs the bytes saved on fetches. */
+    public static final ByteSizeValue MIN_SUB_BLOCK_SIZE = new ByteSizeValue(4, ByteSizeUnit.KB);
+
+    /** The largest sub-block size. */
+    public static final ByteSizeValue MAX_SUB_BLOCK_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
+
+    /**
+     * The target decompressed size of the sub-blocks that new stored fields blocks are split into. Smaller sub-blocks
+     * make fetching a small document decompress fewer bytes at the expense of the compression ratio. Zero, the default,
+     * splits every block into a fixed number of sub-blocks. Other sizes must be at least {@link #MIN_SUB_BLOCK_SIZE}.
+     */
+    public static final Setting<ByteSizeValue> INDEX_CODEC_SUB_BLOCK_SIZE_SETTING = new Setting<>(
+        "index.codec.stored_fields.sub_block_size",
+        "0b",
+        value -> Setting.parseByteSize(value, ByteSizeValue.ZERO, MAX_SUB_BLOCK_SIZE, "index.codec.stored_fields.sub_block_size"),
+        new SupportedByCodecValidator<>(() -> Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING, ByteSizeValue.ZERO, size -> {
+            if (size.getBytes() != 0 && size.getBytes() < MIN_SUB_BLOCK_SIZE.getBytes()) {
+                throw new IllegalArgumentException(
+                    "[index.codec.stored_fields.sub_block_size] must be 0 or at least " + MIN_SUB_BLOCK_SIZE + " but was " + size
+                );
+            }
+        }),
+        Property.IndexScope
+    );
+
+    /**
+     * The compression level of segments written by merges. Merged segments are larger and live longer than flushed
+     * ones, so they can be worth a stronger level. Defaults to {@link EngineConfig#INDEX_CODEC_COMPRESSION_LEVEL_SETTING},
+     * which then only applies to flushes. Other levels can only be set for the codecs that support them.
+     */
+    public static final Setting<Integer> INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING = Setting.intSetting(
+        "index.codec.merge_compression_level",
+        EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING,
+        1,
+        6,
+        new SupportedByCodecValidator<>(
+            () -> Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING,
+            EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING
+        ),
+        Property.IndexScope
+    );
+
+    /**
+     * Whether merges look for zstd matches further back than the regular match finder does, which helps repetitive
+     * documents that are far apart. Matches do not cross sub-blocks, and the regular match finder already finds the
+     * matches of small sub-blocks, so this can only be enabled with a {@link #INDEX_CODEC_SUB_BLOCK_SIZE_SETTING} of at
+     * least {@link ZstdParameters#MIN_LONG_DISTANCE_MATCHING_SUB_BLOCK_LENGTH}. Decompression is not affected.
+     */
+    public static final Setting<Boolean> INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING = Setting.boolSetting(
+        "index.codec.zstd.long_distance_matching",
+        false,
+        new SupportedByCodecValidator<>(
+            () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING,
+            false,
+            longDistanceMatching -> {},
+            INDEX_CODEC_SUB_BLOCK_SIZE_SETTING,
+            (longDistanceMatching, subBlockSize) -> {
+                if (subBlockSize.getBytes() < ZstdParameters.MIN_LONG_DISTANCE_MATCHING_SUB_BLOCK_LENGTH) {
+                    throw new IllegalArgumentException(
+                        "[index.codec.zstd.long_distance_matching] has no effect with a [index.codec.stored_fields.sub_block_size] of "
+                            + subBlockSize
+                            + ", it must be at least "
+                            + new ByteSizeValue(ZstdParameters.MIN_LONG_DISTANCE_MATCHING_SUB_BLOCK_LENGTH)
+                    );
+                }
+            }
+        ),
+        Property.IndexScope
+    );
+
+    /**
+     * The base 2 logarithm of the zstd window size that merges use, zero lets zstd pick one for the compression level.
+     * It is capped so that decompression does not need a raised window limit. Matches do not cross sub-blocks, so
+     * windows larger than a sub-block and its dictionary have no effect on full blocks and are rejected, which caps the
+     * window log at 16 with the default {@link #INDEX_CODEC_SUB_BLOCK_SIZE_SETTING} and at 19 with the largest ones.
+     */
+    public static final Setting<Integer> INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING = Setting.intSetting(
+        "index.codec.zstd.window_log",
+        0,
+        0,
+        ZstdParameters.MAX_WINDOW_LOG,
+        new SupportedByCodecValidator<>(
+            () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING,
+            0,
+            windowLog -> new ZstdParameters(false, windowLog),
+            INDEX_CODEC_SUB_BLOCK_SIZE_SETTING,
+            (windowLog, subBlockSize) -> {
+                final int maxWindowLog = ZstdParameters.maxEffectiveWindowLog(Math.toIntExact(subBlockSize.getBytes()));
+                if (windowLog > maxWindowLog) {
+                    throw new IllegalArgumentException(
+                        "[index.codec.zstd.window_log] of "
+                            + windowLog
+                            + " has no effect with a [index.codec.stored_fields.sub_block_size] of "
+                            + subBlockSize
+                            + ", it must be at most "
+                            + maxWindowLog
+                    );
+                }
+            }
+        ),
+        Property.IndexScope
+    );
+
+    /**
+     * The acceleration factor of the zstd_fast codec, which compresses at the negated factor as compression level.
+     * Higher factors compress and decompress faster, at the expense of the compression ratio.
+     */
+    public static final Setting<Integer> INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING = Setting.intSetting(
+        "index.codec.zstd_fast.acceleration",
+        ZstdFast104Codec.DEFAULT_ACCELERATION,
+        1,
+        100,
+        new SupportedByCodecValidator<>(
+            () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING,
+            ZstdFast104Codec.DEFAULT_ACCELERATION
+        ),
+        Property.IndexScope
+    );
+
+    /**
+     * Whether the {@code _source} of new segments is compressed separately from the other stored fields, so that reads
+     * of small fields such as {@code _id} never decompress it, see {@link Lucene104ColumnGroupedStoredFieldsFormat}.
+     */
+    public static final Setting<Boolean> INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING = Setting.boolSetting(
+        "index.codec.stored_fields.column_grouped",
+        false,
+        new SupportedByCodecValidator<>(() -> Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING, false),
+        Property.IndexScope
+    );
+
     private final StoredFieldsFormat storedFieldsFormat;
 
     /**
@@ -100,6 +247,22 @@ public abstract class Lucene104CustomCodec extends FilterCodec {
         this.storedFieldsFormat = new Lucene104CustomStoredFieldsFormat(mode, compressionLevel);
     }
 
+    /**
+     * Creates a new compression codec with the given stored fields parameters.
+     *
+     * @param mode The compression codec (ZSTD or ZSTDNODICT).
+     * @param parameters The stored fields parameters.
+     * @param defaultCodecSupplier Default OpenSearch codec supplier
+     */
+    Lucene104CustomCodec(Mode mode, StoredFieldsParameters parameters, Supplier<Codec> defaultCodecSupplier) {
+        super(mode.getCodec(), defaultCodecSupplier.get());
+        if (parameters.columnGrouped()) {
+            this.storedFieldsFormat = new Lucene104ColumnGroupedStoredFieldsFormat(mode, parameters);
+        } else {
+            this.storedFieldsFormat = new Lucene104CustomStoredFieldsFormat(mode, parameters);
+        }
+    }
+
     @Override
     public StoredFieldsFormat storedFieldsFormat() {
         return storedFieldsFormat;
@@ -29,15 +29,25 @@ public class Lucene104CustomStoredFieldsFormat extends StoredFieldsFormat {
     /** A key that we use to map to a mode */
     public static final String MODE_KEY = Lucene104CustomStoredFieldsFormat.class.getSimpleName() + ".mode";
 
+    /** A key that we use to map to a sub-block layout, segments without it use {@link BlockLayout#INTERLEAVED} */
+    public static final String LAYOUT_KEY = Lucene104CustomStoredFieldsFormat.class.getSimpleName() + ".layout";
+
+    /** A key that we use to map to the compression level of a segment */
+    public static final String COMPRESSION_LEVEL_KEY = Lucene104CustomStoredFieldsFormat.class.getSimpleName() + ".compressionLevel";
+
+    /** A key that we use to map to the target sub-block length of a segment */
+    public static final String SUB_BLOCK_LENGTH_KEY = Lucene104CustomStoredFieldsFormat.class.getSimpleName() + ".subBlockLength";
+
     protected static final int ZSTD_BLOCK_LENGTH = 10 * 48 * 1024;
     protected static final int ZSTD_MAX_DOCS_PER_BLOCK = 4096;
     protected static final int ZSTD_BLOCK_SHIFT = 10;
 
-    private final CompressionMode zstdCompressionMode;
-    private final CompressionMode zstdNoDictCompressionMode;
-
     private final Lucene104CustomCodec.Mode mode;
     private final int compressionLevel;
+    private final int mergeCompressionLevel;
+    private final int subBlockLength;
+    private final ZstdParameters mergeParameters;
+    private final StoredFieldsParameters storedFieldsParameters;
 
     /** default constructor */
     public Lucene104CustomStoredFieldsFormat() {
@@ -47,23 +57,39 @@ public class Lucene104CustomStoredFieldsFormat extends StoredFieldsFormat {
     /**
      * Creates a new instance.
      *
-     * @param mode The mode represents ZSTD or ZSTDNODICT
+     * @param mode The mode represents ZSTD, ZSTDNODICT or ZSTDTRAINEDDICT
      */
     public Lucene104CustomStoredFieldsFormat(Lucene104CustomCodec.Mode mode) {
-        this(mode, DEFAULT_COMPRESSION_LEVEL);
+        this(mode, mode == Lucene104CustomCodec.Mode.ZSTD_FAST ? -ZstdFast104Codec.DEFAULT_ACCELERATION : DEFAULT_COMPRESSION_LEVEL);
     }
 
     /**
      * Creates a new instance with the specified mode and compression level.
      *
-     * @param mode The mode represents ZSTD or ZSTDNODICT
+     * @param mode The mode represents ZSTD, ZSTDNODICT or ZSTDTRAINEDDICT
      * @param compressionLevel The compression level for the mode.
      */
     public Lucene104CustomStoredFieldsFormat(Lucene104CustomCodec.Mode mode, int compressionLevel) {
+        this(mode, StoredFieldsParameters.of(compressionLevel));
+    }
+
+    /**
+     * Creates a new instance with the specified mode and stored fields parameters.
+     *
+     * @param mode The mode represents ZSTD, ZSTDNODICT, ZSTDTRAINEDDICT, ZSTDHYBRID or ZSTDFAST
+     * @param parameters The stored fields parameters, only ZSTD supports other advanced zstd parameters for merges
+     *                   than the default ones.
+     */
+    Lucene104CustomStoredFieldsFormat(Lucene104CustomCodec.Mode mode, StoredFieldsParameters parameters) {
         this.mode = Objects.requireNonNull(mode);
-        this.compressionLevel = compressionLevel;
-        zstdCompressionMode = new ZstdCompressionMode(compressionLevel);
-        zstdNoDictCompressionMode = new ZstdNoDictCompressionMode(compressionLevel);
+        this.compressionLevel = parameters.compressionLevel();
+        this.mergeCompressionLevel = parameters.mergeCompressionLevel();
+        this.subBlockLength = parameters.subBlockLength();
+        this.mergeParameters = parameters.mergeParameters();
+        this.storedFieldsParameters = parameters;
+        if (mode != Lucene104CustomCodec.Mode.ZSTD && mergeParameters.equals(ZstdParameters.DEFAULT) == false) {
+            throw new IllegalArgumentException("Advanced zstd parameters are not supported by compression mode: " + mode);
+        }
     }
 
     /**
@@ -75,10 +101,52 @@ public class Lucene104CustomStoredFieldsFormat extends StoredFieldsFormat {
      */
     @Override
     public StoredFieldsReader fieldsReader(Directory directory, SegmentInfo si, FieldInfos fn, IOContext context) throws IOException {
+        final CodecServices services = storedFieldsParameters.services(si);
+        StoredFieldsReader reader = fieldsReader(services, directory, si, fn, context, "");
+        // segments written by the column-grouped variant keep their payload fields in a second stream
+        final String payloadFields = si.getAttribute(Lucene104ColumnGroupedStoredFieldsFormat.PAYLOAD_FIELDS_KEY);
+        if (payloadFields != null) {
+            final StoredFieldsReader payloadReader = fieldsReader(
+                services,
+                directory,
+                si,
+                fn,
+                context,
+                Lucene104ColumnGroupedStoredFieldsFormat.PAYLOAD_SEGMENT_SUFFIX
+            );
+            reader = Lucene104ColumnGroupedStoredFieldsFormat.newReader(reader, payloadReader, fn, payloadFields);
+        }
+        return services.wrap(reader, si);
+    }
+
+    private StoredFieldsReader fieldsReader(
+        CodecServices services,
+        Directory directory,
+        SegmentInfo si,
+        FieldInfos fn,
+        IOContext context,
+        String segmentSuffix
+    ) throws IOException {
         if (si.getAttribute(MODE_KEY) != null) {
             String value = si.getAttribute(MODE_KEY);
             Lucene104CustomCodec.Mode mode = Lucene104CustomCodec.Mode.valueOf(value);
-            return impl(mode).fieldsReader(directory, si, fn, context);
+            BlockLayout layout = BlockLayout.fromAttribute(si.getAttribute(LAYOUT_KEY));
+            // segments that record their compression parameters get the mode they were written with, so that merging
+            // them into a segment with the same parameters copies compressed chunks as-is
+            String level = si.getAttribute(COMPRESSION_LEVEL_KEY);
+            String subBlockLength = si.getAttribute(SUB_BLOCK_LENGTH_KEY);
+            StoredFieldsFormat format = level == null || subBlockLength == null
+                ? impl(services, mode, layout, segmentSuffix)
+                : impl(
+                    services,
+                    mode,
+                    layout,
+                    Integer.parseInt(level),
+                    Integer.parseInt(subBlockLength),
+                    ZstdParameters.fromAttributes(si),
+                    segmentSuffix
+                );
+            return format.fieldsReader(directory, si, fn, context);
         } else {
             throw new IllegalStateException("missing value for " + MODE_KEY + " for segment: " + si.name);
         }
@@ -92,29 +160,103 @@ public class Lucene104CustomStoredFieldsFormat extends StoredFieldsFormat {
      */
     @Override
     public StoredFieldsWriter fieldsWriter(Directory directory, SegmentInfo si, IOContext context) throws IOException {
+        return fieldsWriter(directory, si, context, "");
+    }
+
+    /**
+     * Returns a {@link StoredFieldsWriter} that writes the stored fields files with the given segment suffix.
+     *
+     * @param directory The index directory.
+     * @param si The SegmentInfo that stores segment information.
+     * @param context The IOContext that holds additional details on the merge/search context.
+     * @param segmentSuffix The suffix of the file names, empty for the stored fields of a plain segment.
+     */
+    StoredFieldsWriter fieldsWriter(Directory directory, SegmentInfo si, IOContext context, String segmentSuffix) throws IOException {
         String previous = si.putAttribute(MODE_KEY, mode.name());
         if (previous != null && previous.equals(mode.name()) == false) {
             throw new IllegalStateException(
                 "found existing value for " + MODE_KEY + " for segment: " + si.name + " old = " + previous + ", new = " + mode.name()
             );
         }
-        return impl(mode).fieldsWriter(directory, si, context);
+        final boolean merge = context.context() == IOContext.Context.MERGE;
+        final int level = merge ? mergeCompressionLevel : compressionLevel;
+        final ZstdParameters parameters = merge ? mergeParameters : ZstdParameters.DEFAULT;
+        si.putAttribute(LAYOUT_KEY, BlockLayout.CURRENT.name());
+        si.putAttribute(COMPRESSION_LEVEL_KEY, Integer.toString(level));
+        si.putAttribute(SUB_BLOCK_LENGTH_KEY, Integer.toString(subBlockLength));
+        parameters.putAttributes(si);
+        final CodecServices services = storedFieldsParameters.services(si);
+        final StoredFieldsFormat format = impl(services, mode, BlockLayout.CURRENT, level, subBlockLength, parameters, segmentSuffix);
+        return services.subBlockExecutor().forWriter(context, () -> format.fieldsWriter(directory, si, context));
+    }
+
+    StoredFieldsFormat impl(CodecServices services, Lucene104CustomCodec.Mode mode, BlockLayout layout) {
+        return impl(services, mode, layout, "");
+    }
+
+    private StoredFieldsFormat impl(CodecServices services, Lucene104CustomCodec.Mode mode, BlockLayout layout, String segmentSuffix) {
+        return impl(
+            services,
+            mode,
+            layout,
+            compressionLevel,
+            layout == BlockLayout.CURRENT ? subBlockLength : 0,
+            ZstdParameters.DEFAULT,
+            segmentSuffix
+        );
     }
 
-    StoredFieldsFormat impl(Lucene104CustomCodec.Mode mode) {
+    private StoredFieldsFormat impl(
+        CodecServices services,
+        Lucene104CustomCodec.Mode mode,
+        BlockLayout layout,
+        int compressionLevel,
+        int subBlockLength,
+        ZstdParameters parameters,
+        String segmentSuffix
+    ) {
         switch (mode) {
             case ZSTD:
-                return getCustomCompressingStoredFieldsFormat("CustomStoredFieldsZstd", this.zstdCompressionMode);
+                return getCustomCompressingStoredFieldsFormat(
+                    "CustomStoredFieldsZstd" + layout.getFormatSuffix(),
+                    CompressionModes.get(services, mode, compressionLevel, layout, subBlockLength, parameters),
+                    segmentSuffix
+                );
             case ZSTD_NO_DICT:
-                return getCustomCompressingStoredFieldsFormat("CustomStoredFieldsZstdNoDict", this.zstdNoDictCompressionMode);
+                return getCustomCompressingStoredFieldsFormat(
+                    "CustomStoredFieldsZstdNoDict" + layout.getFormatSuffix(),
+                    CompressionModes.get(services, mode, compressionLevel, layout, subBlockLength),
+                    segmentSuffix
+                );
+            case ZSTD_TRAINED_DICT:
+                // the dictionary is trained per segment, so segments of this mode have a single stream
+                assert segmentSuffix.isEmpty() : segmentSuffix;
+                return new ZstdTrainedDictStoredFieldsFormat(compressionLevel, layout, subBlockLength, services.blockCache());
+            case ZSTD_HYBRID:
+                return getCustomCompressingStoredFieldsFormat(
+                    "CustomStoredFieldsZstdHybrid" + layout.getFormatSuffix(),
+                    CompressionModes.get(services, mode, compressionLevel, layout, subBlockLength),
+                    segmentSuffix
+                );
+            case ZSTD_FAST:
+                return getCustomCompressingStoredFieldsFormat(
+                    "CustomStoredFieldsZstdFast" + layout.getFormatSuffix(),
+                    CompressionModes.get(services, mode, compressionLevel, layout, subBlockLength),
+                    segmentSuffix
+                );
             default:
                 throw new IllegalStateException("Unsupported compression mode: " + mode);
         }
     }
 
-    private StoredFieldsFormat getCustomCompressingStoredFieldsFormat(String formatName, CompressionMode compressionMode) {
+    private StoredFieldsFormat getCustomCompressingStoredFieldsFormat(
+        String formatName,
+        CompressionMode compressionMode,
+        String segmentSuffix
+    ) {
         return new Lucene90CompressingStoredFieldsFormat(
             formatName,
+            segmentSuffix,
             compressionMode,
             ZSTD_BLOCK_LENGTH,
             ZSTD_MAX_DOCS_PER_BLOCK,
@@ -127,14 +269,47 @@ public class Lucene104CustomStoredFieldsFormat extends StoredFieldsFormat {
     }
 
     /**
-     * Returns the compression level.
+     * Returns the compression level of segments written by flushes, which is negative for
+     * {@link Lucene104CustomCodec.Mode#ZSTD_FAST}.
      */
     public int getCompressionLevel() {
         return compressionLevel;
     }
 
+    /**
+     * Returns the compression level of segments written by merges.
+     */
+    public int getMergeCompressionLevel() {
+        return mergeCompressionLevel;
+    }
+
+    /**
+     * Returns the advanced zstd parameters of segments written by merges.
+     */
+    public ZstdParameters getMergeParameters() {
+        return mergeParameters;
+    }
+
+    /**
+     * Returns the target decompressed length of the sub-blocks that new blocks are split into, or zero.
+     */
+    public int getSubBlockLength() {
+        return subBlockLength;
+    }
+
+    /**
+     * Returns the compression mode, or {@code null} for {@link Lucene104CustomCodec.Mode#ZSTD_TRAINED_DICT} which creates a
+     * compression mode per segment.
+     */
     public CompressionMode getCompressionMode() {
-        return mode == Lucene104CustomCodec.Mode.ZSTD_NO_DICT ? zstdNoDictCompressionMode : zstdCompressionMode;
+        if (mode == Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT) {
+            return null;
+        }
+        final CodecServices services = storedFieldsParameters.services() != null
+            ? storedFieldsParameters.services()
+            : CodecServices.DEFAULT;
+        return ((BlockCachingCompressionMode) CompressionModes.get(services, mode, compressionLevel, BlockLayout.CURRENT, subBlockLength))
+            .getDelegate();
     }
 
 }
@@ -126,6 +126,24 @@ public abstract class Lucene104QatCodec extends FilterCodec {
         this.storedFieldsFormat = new Lucene104QatStoredFieldsFormat(mode, compressionLevel, supplier);
     }
 
+    /**
+     * Creates a new compression codec with the given stored fields parameters.
+     *
+     * @param mode The compression codec (QAT_LZ4, QAT_DEFLATE, or QAT_ZSTD).
+     * @param parameters The stored fields parameters.
+     * @param supplier supplier for QAT mode.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    Lucene104QatCodec(
+        Mode mode,
+        StoredFieldsParameters parameters,
+        Supplier<QatZipper.Mode> supplier,
+        Supplier<Codec> defaultCodecSupplier
+    ) {
+        super(mode.getCodec(), defaultCodecSupplier.get());
+        this.storedFieldsFormat = new Lucene104QatStoredFieldsFormat(mode, parameters, supplier);
+    }
+
     @Override
     public StoredFieldsFormat storedFieldsFormat() {
         return storedFieldsFormat;
@@ -19,7 +19,9 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import com.intel.qat.QatZipper;
@@ -33,6 +35,12 @@ public class Lucene104QatStoredFieldsFormat extends StoredFieldsFormat {
     /** A key that we use to map to a mode */
     public static final String MODE_KEY = Lucene104QatStoredFieldsFormat.class.getSimpleName() + ".mode";
 
+    /** A key that we use to map to a sub-block layout, segments without it use {@link BlockLayout#INTERLEAVED} */
+    public static final String LAYOUT_KEY = Lucene104QatStoredFieldsFormat.class.getSimpleName() + ".layout";
+
+    /** A key that we use to map to a compression level, segments without it were written at the level of flushes */
+    public static final String COMPRESSION_LEVEL_KEY = Lucene104QatStoredFieldsFormat.class.getSimpleName() + ".compressionLevel";
+
     private static final int QAT_DEFLATE_BLOCK_LENGTH = 10 * 48 * 1024;
     private static final int QAT_DEFLATE_MAX_DOCS_PER_BLOCK = 4096;
     private static final int QAT_DEFLATE_BLOCK_SHIFT = 10;
@@ -45,8 +53,16 @@ public class Lucene104QatStoredFieldsFormat extends StoredFieldsFormat {
     private static final int QAT_ZSTD_MAX_DOCS_PER_BLOCK = 4096;
     private static final int QAT_ZSTD_BLOCK_SHIFT = 10;
 
+    private record ModeKey(CodecServices services, BlockLayout layout, int compressionLevel) {
+    }
+
     private final QatCompressionMode qatCompressionMode;
+    private final QatCompressionMode qatMergeCompressionMode;
+    private final Map<ModeKey, CompressionMode> qatBlockCachingCompressionModes = new ConcurrentHashMap<>();
     private final Lucene104QatCodec.Mode mode;
+    private final Supplier<QatZipper.Mode> supplier;
+    private final int subBlockLength;
+    private final StoredFieldsParameters parameters;
 
     /** default constructor */
     public Lucene104QatStoredFieldsFormat() {
@@ -90,8 +106,68 @@ public class Lucene104QatStoredFieldsFormat extends StoredFieldsFormat {
      * @param supplier a supplier for QAT acceleration mode.
      */
     public Lucene104QatStoredFieldsFormat(Lucene104QatCodec.Mode mode, int compressionLevel, Supplier<QatZipper.Mode> supplier) {
+        this(mode, StoredFieldsParameters.of(compressionLevel), supplier);
+    }
+
+    /**
+     * Creates a new instance with the specified mode and stored fields parameters.
+     *
+     * @param mode The mode represents QAT_LZ4, QAT_DEFLATE, or QAT_ZSTD
+     * @param parameters The stored fields parameters, the advanced zstd parameters and the layout are ignored.
+     * @param supplier a supplier for QAT acceleration mode.
+     */
+    Lucene104QatStoredFieldsFormat(Lucene104QatCodec.Mode mode, StoredFieldsParameters parameters, Supplier<QatZipper.Mode> supplier) {
+        final int compressionLevel = parameters.compressionLevel();
+        final int mergeCompressionLevel = parameters.mergeCompressionLevel();
         this.mode = Objects.requireNonNull(mode);
-        qatCompressionMode = new QatCompressionMode(getAlgorithm(mode), compressionLevel, supplier);
+        this.supplier = supplier;
+        this.subBlockLength = parameters.subBlockLength();
+        this.parameters = parameters;
+        final CodecServices services = parameters.services() != null ? parameters.services() : CodecServices.DEFAULT;
+        qatCompressionMode = new QatCompressionMode(
+            getAlgorithm(mode),
+            compressionLevel,
+            supplier,
+            BlockLayout.CURRENT,
+            subBlockLength,
+            services
+        );
+        // merges only write with the current layout, and share the flush mode if the levels match
+        qatMergeCompressionMode = mergeCompressionLevel == compressionLevel
+            ? qatCompressionMode
+            : new QatCompressionMode(getAlgorithm(mode), mergeCompressionLevel, supplier, BlockLayout.CURRENT, subBlockLength, services);
+        // the same instances serve readers and writers, which lets merges copy compressed chunks as-is
+        qatBlockCachingCompressionModes.put(
+            new ModeKey(services, BlockLayout.CURRENT, compressionLevel),
+            new BlockCachingCompressionMode(services.blockCache(), qatCompressionMode)
+        );
+        qatBlockCachingCompressionModes.putIfAbsent(
+            new ModeKey(services, BlockLayout.CURRENT, mergeCompressionLevel),
+            new BlockCachingCompressionMode(services.blockCache(), qatMergeCompressionMode)
+        );
+    }
+
+    /**
+     * Returns the compression mode of the given services, layout and compression level. Readers get the instance that
+     * the writers of this format use, so that merges into a segment with the same level copy compressed chunks as-is.
+     * Instances are kept per format rather than interned like {@link CompressionModes} since they are bound to the
+     * dynamic QAT acceleration mode of an index.
+     */
+    CompressionMode compressionMode(CodecServices services, BlockLayout layout, int compressionLevel) {
+        return qatBlockCachingCompressionModes.computeIfAbsent(
+            new ModeKey(services, layout, compressionLevel),
+            key -> new BlockCachingCompressionMode(
+                key.services().blockCache(),
+                new QatCompressionMode(
+                    getAlgorithm(mode),
+                    key.compressionLevel(),
+                    supplier,
+                    key.layout(),
+                    key.layout() == BlockLayout.CURRENT ? subBlockLength : 0,
+                    key.services()
+                )
+            )
+        );
     }
 
     /**
@@ -107,7 +183,17 @@ public class Lucene104QatStoredFieldsFormat extends StoredFieldsFormat {
         if (si.getAttribute(MODE_KEY) != null) {
             String value = si.getAttribute(MODE_KEY);
             Lucene104QatCodec.Mode mode = Lucene104QatCodec.Mode.valueOf(value);
-            return impl(mode).fieldsReader(directory, si, fn, context);
+            BlockLayout layout = BlockLayout.fromAttribute(si.getAttribute(LAYOUT_KEY));
+            String level = si.getAttribute(COMPRESSION_LEVEL_KEY);
+            final int compressionLevel = level == null ? qatCompressionMode.getCompressionLevel() : Integer.parseInt(level);
+            final CodecServices services = parameters.services(si);
+            final StoredFieldsReader reader = impl(mode, layout, compressionMode(services, layout, compressionLevel)).fieldsReader(
+                directory,
+                si,
+                fn,
+                context
+            );
+            return services.wrap(QatCompressionMode.withMergePolling(reader), si);
         } else {
             throw new IllegalStateException("missing value for " + MODE_KEY + " for segment: " + si.name);
         }
@@ -128,31 +214,44 @@ public class Lucene104QatStoredFieldsFormat extends StoredFieldsFormat {
                 "found existing value for " + MODE_KEY + " for segment: " + si.name + " old = " + previous + ", new = " + mode.name()
             );
         }
-        return impl(mode).fieldsWriter(directory, si, context);
+        final boolean merge = context.context() == IOContext.Context.MERGE;
+        final int level = merge ? qatMergeCompressionMode.getCompressionLevel() : qatCompressionMode.getCompressionLevel();
+        si.putAttribute(LAYOUT_KEY, BlockLayout.CURRENT.name());
+        si.putAttribute(COMPRESSION_LEVEL_KEY, Integer.toString(level));
+        final StoredFieldsFormat impl = impl(
+            mode,
+            BlockLayout.CURRENT,
+            compressionMode(parameters.services(si), BlockLayout.CURRENT, level)
+        );
+        if (merge) {
+            // the compressors of merges use the polling mode of merges
+            return QatCompressionMode.forMerge(() -> impl.fieldsWriter(directory, si, context));
+        }
+        return impl.fieldsWriter(directory, si, context);
     }
 
-    private StoredFieldsFormat impl(Lucene104QatCodec.Mode mode) {
+    private StoredFieldsFormat impl(Lucene104QatCodec.Mode mode, BlockLayout layout, CompressionMode compressionMode) {
         switch (mode) {
             case QAT_LZ4:
                 return getQatCompressingStoredFieldsFormat(
-                    "QatStoredFieldsLz4",
-                    qatCompressionMode,
+                    "QatStoredFieldsLz4" + layout.getFormatSuffix(),
+                    compressionMode,
                     QAT_LZ4_BLOCK_LENGTH,
                     QAT_LZ4_MAX_DOCS_PER_BLOCK,
                     QAT_LZ4_BLOCK_SHIFT
                 );
             case QAT_DEFLATE:
                 return getQatCompressingStoredFieldsFormat(
-                    "QatStoredFieldsDeflate",
-                    qatCompressionMode,
+                    "QatStoredFieldsDeflate" + layout.getFormatSuffix(),
+                    compressionMode,
                     QAT_DEFLATE_BLOCK_LENGTH,
                     QAT_DEFLATE_MAX_DOCS_PER_BLOCK,
                     QAT_DEFLATE_BLOCK_SHIFT
                 );
             case QAT_ZSTD:
                 return getQatCompressingStoredFieldsFormat(
-                    "QatStoredFieldsZstd",
-                    qatCompressionMode,
+                    "QatStoredFieldsZstd" + layout.getFormatSuffix(),
+                    compressionMode,
                     QAT_ZSTD_BLOCK_LENGTH,
                     QAT_ZSTD_MAX_DOCS_PER_BLOCK,
                     QAT_ZSTD_BLOCK_SHIFT
@@ -189,6 +288,13 @@ public class Lucene104QatStoredFieldsFormat extends StoredFieldsFormat {
         return qatCompressionMode;
     }
 
+    /**
+     * Returns the compression mode of segments written by merges.
+     */
+    public QatCompressionMode getMergeCompressionMode() {
+        return qatMergeCompressionMode;
+    }
+
     /**
      * Returns {@link QatZipper.Algorithm} instance that corresponds codec's {@link Lucene104QatCodec.Mode mode}
      * @param mode codec's {@link Lucene104QatCodec.Mode mode}
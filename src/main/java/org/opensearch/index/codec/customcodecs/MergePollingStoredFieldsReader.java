@@ -0,0 +1,67 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.StoredFieldVisitor;
+
+import java.io.IOException;
+
+/**
+ * Stored fields reader of a QAT format whose merge instances decompress with the polling mode of merges, see
+ * {@link QatCompressionMode#forMerge}.
+ * <p>
+ * Merges use the merge instance of the wrapped reader, so that the stored fields writer still recognizes it and can
+ * copy compressed blocks as-is.
+ *
+ * @opensearch.internal
+ */
+final class MergePollingStoredFieldsReader extends StoredFieldsReader {
+
+    private final StoredFieldsReader delegate;
+
+    MergePollingStoredFieldsReader(StoredFieldsReader delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+        delegate.document(docID, visitor);
+    }
+
+    @Override
+    public void prefetch(int docID) throws IOException {
+        delegate.prefetch(docID);
+    }
+
+    @Override
+    public StoredFieldsReader clone() {
+        return new MergePollingStoredFieldsReader(delegate.clone());
+    }
+
+    @Override
+    public StoredFieldsReader getMergeInstance() {
+        return QatCompressionMode.forMerge(delegate::getMergeInstance);
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+        delegate.checkIntegrity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + delegate + ")";
+    }
+}
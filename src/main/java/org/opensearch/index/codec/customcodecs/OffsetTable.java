@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+
+/**
+ * Helpers for the table of compressed sub-block lengths of the layouts that have one, see
+ * {@link BlockLayout#hasOffsetTable()}. With {@link BlockLayout#hasRawSubBlocks()}, every entry also flags whether the
+ * sub-block is stored raw.
+ *
+ * @opensearch.internal
+ */
+final class OffsetTable {
+
+    private OffsetTable() {}
+
+    /**
+     * Returns the decompressed length of the sub-blocks of a block.
+     *
+     * @param length the decompressed length of the block, excluding the dictionary if any.
+     * @param numSubBlocks the number of sub-blocks to split the block into if there is no target length.
+     * @param targetLength the target decompressed length of a sub-block, or zero.
+     */
+    static int blockLength(int length, int numSubBlocks, int targetLength) {
+        if (targetLength > 0) {
+            return Math.min(targetLength, length);
+        }
+        return (length + numSubBlocks - 1) / numSubBlocks;
+    }
+
+    /**
+     * Returns the number of sub-blocks of a block.
+     *
+     * @param length the decompressed length of the block, excluding the dictionary if any.
+     * @param blockLength the decompressed length of a sub-block.
+     */
+    static int numSubBlocks(int length, int blockLength) {
+        return blockLength == 0 ? 0 : (length + blockLength - 1) / blockLength;
+    }
+
+    /**
+     * Writes the stored lengths of the sub-blocks, along with whether they are stored raw if the layout flags it.
+     *
+     * @param out the output.
+     * @param layout the layout.
+     * @param storedLengths the stored lengths.
+     * @param raw the sub-blocks that are stored raw.
+     * @param count the number of sub-blocks.
+     */
+    static void write(DataOutput out, BlockLayout layout, int[] storedLengths, FixedBitSet raw, int count) throws IOException {
+        final boolean flagged = layout.hasRawSubBlocks();
+        for (int i = 0; i < count; ++i) {
+            out.writeVInt(flagged ? (storedLengths[i] << 1) | (raw.get(i) ? 1 : 0) : storedLengths[i]);
+        }
+    }
+
+    /**
+     * Reads the stored lengths of the sub-blocks, along with whether they are stored raw if the layout flags it.
+     *
+     * @param in the input.
+     * @param layout the layout.
+     * @param count the number of sub-blocks.
+     * @param reuse an array to reuse if it is large enough.
+     * @param raw the bit set to record the sub-blocks that are stored raw in, must be able to hold {@code count} bits.
+     * @return the stored lengths.
+     */
+    static int[] read(DataInput in, BlockLayout layout, int count, int[] reuse, FixedBitSet raw) throws IOException {
+        final boolean flagged = layout.hasRawSubBlocks();
+        final int[] storedLengths = ArrayUtil.growNoCopy(reuse, count);
+        raw.clear(0, count);
+        for (int i = 0; i < count; ++i) {
+            final int entry = in.readVInt();
+            if (flagged) {
+                storedLengths[i] = entry >>> 1;
+                if ((entry & 1) != 0) {
+                    raw.set(i);
+                }
+            } else {
+                storedLengths[i] = entry;
+            }
+        }
+        return storedLengths;
+    }
+
+    /**
+     * Replaces the compressed bytes of a sub-block with its raw bytes if compression did not make it smaller.
+     *
+     * @param bytes the raw bytes.
+     * @param offset the offset of the sub-block in the raw bytes.
+     * @param length the length of the sub-block.
+     * @param compressed the compressed bytes, which must have room for {@code length} bytes at the offset.
+     * @param compressedOffset the offset of the sub-block in the compressed bytes.
+     * @param compressedLength the compressed length of the sub-block.
+     * @return whether the sub-block is stored raw, its stored length is {@code length} then.
+     */
+    static boolean storeRaw(byte[] bytes, int offset, int length, byte[] compressed, int compressedOffset, int compressedLength) {
+        if (compressedLength < length) {
+            return false;
+        }
+        System.arraycopy(bytes, offset, compressed, compressedOffset, length);
+        return true;
+    }
+
+    /**
+     * Returns the sum of the compressed lengths of the sub-blocks in {@code [from, to)}.
+     */
+    static int sum(int[] compressedLengths, int from, int to) {
+        int sum = 0;
+        for (int i = from; i < to; ++i) {
+            sum += compressedLengths[i];
+        }
+        return sum;
+    }
+}
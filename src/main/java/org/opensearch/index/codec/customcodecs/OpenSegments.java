@@ -0,0 +1,156 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.opensearch.common.cache.Cache;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The open segments of a cache that is keyed by segment, see {@link CodecServices#wrap}.
+ * <p>
+ * A segment may be open through several cores at once, e.g. by the reader of a commit and by the index writer, which
+ * each open a stored fields reader. This counts the open readers of every segment, and indexes the cached entries of
+ * every open segment so that the entries of a segment are invalidated once its last reader is closed, without walking
+ * the whole cache.
+ * <p>
+ * Segments are identified by the id of the segment, the keys of the entries of segments with several stored fields
+ * files may be followed by the segment suffix, see {@link #segmentKey}.
+ *
+ * @param <K> the type of the keys of the cache.
+ * @opensearch.internal
+ */
+final class OpenSegments<K> {
+
+    /* an open segment: the number of its open stored fields readers, and the keys of its cached entries */
+    private static final class Segment<K> {
+        private int refCount;
+        private final Set<K> keys = ConcurrentHashMap.newKeySet();
+    }
+
+    private final Map<BytesRef, Segment<K>> segments = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the key of the segment of a stored fields data file from its codec header, which is the id of the segment
+     * followed by the segment suffix, so that the files of segments with several stored fields files have distinct keys.
+     *
+     * @param in the stored fields data, at any position.
+     */
+    static BytesRef segmentKey(IndexInput in) throws IOException {
+        final IndexInput header = in.clone();
+        header.seek(0);
+        if (CodecUtil.readBEInt(header) != CodecUtil.CODEC_MAGIC) {
+            throw new CorruptIndexException("codec header mismatch", header);
+        }
+        header.readString();
+        CodecUtil.readBEInt(header);
+        final byte[] id = new byte[StringHelper.ID_LENGTH];
+        header.readBytes(id, 0, id.length);
+        final int suffixLength = header.readByte() & 0xFF;
+        final byte[] key = ArrayUtil.growExact(id, StringHelper.ID_LENGTH + suffixLength);
+        header.readBytes(key, StringHelper.ID_LENGTH, suffixLength);
+        return new BytesRef(key);
+    }
+
+    /* the keys of segments with several stored fields files start with the segment id, followed by the segment suffix */
+    private static BytesRef segmentId(BytesRef segmentKey) {
+        return segmentKey.length <= StringHelper.ID_LENGTH
+            ? segmentKey
+            : new BytesRef(segmentKey.bytes, segmentKey.offset, StringHelper.ID_LENGTH);
+    }
+
+    /**
+     * Records that a stored fields reader of a segment was opened.
+     *
+     * @param segmentId the id of the segment.
+     */
+    void acquire(BytesRef segmentId) {
+        segments.compute(segmentId(segmentId), (id, segment) -> {
+            if (segment == null) {
+                segment = new Segment<>();
+            }
+            ++segment.refCount;
+            return segment;
+        });
+    }
+
+    /**
+     * Records that a stored fields reader of a segment was closed, and invalidates the entries of the segment if it was
+     * the last.
+     *
+     * @param cache the cache.
+     * @param segmentId the id of the segment.
+     */
+    void release(Cache<K, ?> cache, BytesRef segmentId) {
+        final AtomicReference<Segment<K>> closed = new AtomicReference<>();
+        segments.computeIfPresent(segmentId(segmentId), (id, segment) -> {
+            if (--segment.refCount > 0) {
+                return segment;
+            }
+            closed.set(segment);
+            return null;
+        });
+        if (closed.get() != null) {
+            closed.get().keys.forEach(cache::invalidate);
+        }
+    }
+
+    /**
+     * Caches an entry of a segment if the segment is open.
+     *
+     * @param cache the cache.
+     * @param segmentKey the key of the segment.
+     * @param key the key of the entry.
+     * @param value the entry.
+     * @return whether the segment is open.
+     */
+    <V> boolean put(Cache<K, V> cache, BytesRef segmentKey, K key, V value) {
+        final BytesRef segmentId = segmentId(segmentKey);
+        final Segment<K> segment = segments.get(segmentId);
+        if (segment == null) {
+            return false;
+        }
+        // indexed first, so that the entry is in the index while it is cached
+        segment.keys.add(key);
+        cache.put(key, value);
+        if (segments.get(segmentId) != segment) {
+            // the segment was closed concurrently, and may not have seen the entry
+            cache.invalidate(key);
+        }
+        return true;
+    }
+
+    /**
+     * Removes an entry that left the cache from the index.
+     *
+     * @param segmentKey the key of the segment.
+     * @param key the key of the entry.
+     */
+    void unindex(BytesRef segmentKey, K key) {
+        final Segment<K> segment = segments.get(segmentId(segmentKey));
+        if (segment != null) {
+            segment.keys.remove(key);
+        }
+    }
+
+    /** Forgets the entries of all segments, the segments stay open. */
+    void clear() {
+        segments.values().forEach(segment -> segment.keys.clear());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.common.settings.Setting.Property;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.common.io.stream.StreamOutput;
+import org.opensearch.core.common.io.stream.Writeable;
+import org.opensearch.core.xcontent.ToXContentFragment;
+import org.opensearch.core.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker of a node, see {@link CodecServices}, that moves QAT compression to software while the accelerator degrades.
+ * <p>
+ * Compressors report every block that they compressed with QAT, along with its latency and whether QAT failed. Once at
+ * least half of the recent blocks were slow or failed, the breaker opens and compressors switch to
+ * {@link QatSoftwareEncoder}, which writes frames that QAT can still decompress. After
+ * {@link #OPEN_DURATION_SETTING}, a single block probes QAT again, and the breaker closes if it was fast and succeeded.
+ *
+ * @opensearch.internal
+ */
+final class QatCircuitBreaker {
+
+    private static final Logger logger = LogManager.getLogger(QatCircuitBreaker.class);
+
+    /** Whether QAT compression switches to software while the accelerator is slow or fails. */
+    static final Setting<Boolean> ENABLED_SETTING = Setting.boolSetting("indices.codec.qat.breaker.enabled", true, Property.NodeScope);
+
+    /** The latency from which compressing a block with QAT counts as slow. */
+    static final Setting<TimeValue> SLOW_CALL_THRESHOLD_SETTING = Setting.timeSetting(
+        "indices.codec.qat.breaker.slow_call_threshold",
+        TimeValue.timeValueMillis(50),
+        TimeValue.timeValueMillis(1),
+        Property.NodeScope
+    );
+
+    /** How long compression stays in software before QAT is probed again. */
+    static final Setting<TimeValue> OPEN_DURATION_SETTING = Setting.timeSetting(
+        "indices.codec.qat.breaker.open_duration",
+        TimeValue.timeValueSeconds(30),
+        TimeValue.ZERO,
+        Property.NodeScope
+    );
+
+    /** The number of blocks after which the recent outcomes are forgotten. */
+    static final int WINDOW_SIZE = 100;
+    /** The number of blocks from which the breaker may open. */
+    static final int MIN_CALLS = 20;
+
+    /** The state of the breaker. */
+    enum State {
+        /** Blocks are compressed with QAT. */
+        CLOSED,
+        /** Blocks are compressed in software. */
+        OPEN,
+        /** A single block probes QAT, the others are compressed in software. */
+        HALF_OPEN
+    }
+
+    /**
+     * The outcomes since the node started.
+     *
+     * @param state the current state
+     * @param hardwareBlocks the number of blocks that were compressed with QAT
+     * @param softwareBlocks the number of blocks that were compressed in software
+     * @param failedBlocks the number of blocks for which QAT failed
+     * @param slowBlocks the number of blocks for which QAT was slow
+     * @param trips the number of times that the breaker opened
+     */
+    record Stats(State state, long hardwareBlocks, long softwareBlocks, long failedBlocks, long slowBlocks, long trips)
+        implements
+            Writeable,
+            ToXContentFragment {
+
+        /**
+         * Reads the stats from a stream.
+         *
+         * @param in the stream.
+         */
+        Stats(StreamInput in) throws IOException {
+            this(in.readEnum(State.class), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeEnum(state);
+            out.writeVLong(hardwareBlocks);
+            out.writeVLong(softwareBlocks);
+            out.writeVLong(failedBlocks);
+            out.writeVLong(slowBlocks);
+            out.writeVLong(trips);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject("qat_circuit_breaker");
+            builder.field("state", state.name().toLowerCase(Locale.ROOT));
+            builder.field("trips", trips);
+            builder.field("hardware_blocks", hardwareBlocks);
+            builder.field("software_blocks", softwareBlocks);
+            builder.field("failed_blocks", failedBlocks);
+            builder.field("slow_blocks", slowBlocks);
+            return builder.endObject();
+        }
+    }
+
+    private final LongSupplier nanoTime;
+    private volatile boolean enabled = true;
+    private volatile long slowCallThresholdNanos = TimeValue.timeValueMillis(50).nanos();
+    private volatile long openDurationNanos = TimeValue.timeValueSeconds(30).nanos();
+
+    private State state = State.CLOSED;
+    private long openedNanos;
+    private int windowCalls;
+    private int windowBadCalls;
+    private long hardwareBlocks;
+    private long softwareBlocks;
+    private long failedBlocks;
+    private long slowBlocks;
+    private long trips;
+
+    /**
+     * Creates a new breaker.
+     *
+     * @param nanoTime the clock of the open duration.
+     */
+    QatCircuitBreaker(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Sets whether the breaker may open, a disabled breaker always lets blocks be compressed with QAT.
+     *
+     * @param enabled whether the breaker is enabled.
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets the latency from which compressing a block with QAT counts as slow.
+     *
+     * @param threshold the latency.
+     */
+    void setSlowCallThreshold(TimeValue threshold) {
+        this.slowCallThresholdNanos = threshold.nanos();
+    }
+
+    /**
+     * Sets how long compression stays in software before QAT is probed again.
+     *
+     * @param duration the duration.
+     */
+    void setOpenDuration(TimeValue duration) {
+        this.openDurationNanos = duration.nanos();
+    }
+
+    /**
+     * Returns whether the next block should be compressed with QAT. Callers that get {@code true} must report the
+     * outcome with {@link #onHardwareBlock}, and {@link #onSoftwareBlock} otherwise.
+     */
+    synchronized boolean allowHardware() {
+        if (enabled == false) {
+            return true;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoTime.getAsLong() - openedNanos < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                // another block is probing
+                return false;
+        }
+    }
+
+    /**
+     * Records a block that was compressed with QAT.
+     *
+     * @param tookNanos how long compressing the block took.
+     * @param failed whether QAT failed, and the block was compressed in software instead.
+     */
+    synchronized void onHardwareBlock(long tookNanos, boolean failed) {
+        final boolean slow = tookNanos >= slowCallThresholdNanos;
+        ++hardwareBlocks;
+        if (failed) {
+            ++failedBlocks;
+        } else if (slow) {
+            ++slowBlocks;
+        }
+        if (enabled == false) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                logger.warn("QAT is still slow or failing, compressing stored fields in software for [{}]", openDuration());
+                open();
+            } else {
+                logger.info("QAT recovered, compressing stored fields with QAT again");
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+        ++windowCalls;
+        if (failed || slow) {
+            ++windowBadCalls;
+        }
+        if (state == State.CLOSED && windowCalls >= MIN_CALLS && 2 * windowBadCalls >= windowCalls) {
+            logger.warn(
+                "QAT is slow or failing for [{}] of the last [{}] blocks, compressing stored fields in software for [{}]",
+                windowBadCalls,
+                windowCalls,
+                openDuration()
+            );
+            open();
+        } else if (windowCalls >= WINDOW_SIZE) {
+            resetWindow();
+        }
+    }
+
+    /** Records a block that was compressed in software because the breaker was open. */
+    synchronized void onSoftwareBlock() {
+        ++softwareBlocks;
+    }
+
+    private TimeValue openDuration() {
+        return TimeValue.timeValueNanos(openDurationNanos);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedNanos = nanoTime.getAsLong();
+        ++trips;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowCalls = 0;
+        windowBadCalls = 0;
+    }
+
+    /** Returns the outcomes since the node started, see {@link CustomCodecsStatsAction}. */
+    synchronized Stats stats() {
+        return new Stats(state, hardwareBlocks, softwareBlocks, failedBlocks, slowBlocks, trips);
+    }
+}
@@ -8,6 +8,7 @@
 
 package org.opensearch.index.codec.customcodecs;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.codecs.compressing.CompressionMode;
 import org.apache.lucene.codecs.compressing.Compressor;
 import org.apache.lucene.codecs.compressing.Decompressor;
@@ -16,6 +17,12 @@ import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.opensearch.common.CheckedSupplier;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.common.settings.Setting.Property;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.unit.TimeValue;
 
 import java.io.IOException;
 import java.util.function.Supplier;
@@ -30,9 +37,126 @@ public class QatCompressionMode extends CompressionMode {
 
     private static final int NUM_SUB_BLOCKS = 10;
 
+    /** The maximum number of QAT sessions that are kept between compressions and decompressions, across all indices. */
+    static final Setting<Integer> MAX_IDLE_SESSIONS_SETTING = Setting.intSetting(
+        "indices.codec.qat.max_idle_sessions",
+        2 * Runtime.getRuntime().availableProcessors(),
+        0,
+        Property.NodeScope
+    );
+
+    /** How long a QAT session is kept between compressions and decompressions before it is freed. */
+    static final Setting<TimeValue> SESSION_IDLE_TIMEOUT_SETTING = Setting.timeSetting(
+        "indices.codec.qat.session_idle_timeout",
+        TimeValue.timeValueMinutes(5),
+        TimeValue.ZERO,
+        Property.NodeScope
+    );
+
+    /** How QAT sessions poll for completed requests. */
+    enum PollingPolicy {
+        /**
+         * Busy polling for flushes and searches, which are latency sensitive, and periodical polling for the writes and
+         * reads of merges.
+         */
+        AUTO(QatZipper.PollingMode.BUSY, QatZipper.PollingMode.PERIODICAL),
+        /** Busy polling, which lowers the latency of every call at the cost of a core spinning while QAT works. */
+        BUSY(QatZipper.PollingMode.BUSY, QatZipper.PollingMode.BUSY),
+        /** Periodical polling, which leaves the core to other threads while QAT works. */
+        PERIODICAL(QatZipper.PollingMode.PERIODICAL, QatZipper.PollingMode.PERIODICAL);
+
+        private final QatZipper.PollingMode flushesAndSearches;
+        private final QatZipper.PollingMode merges;
+
+        PollingPolicy(QatZipper.PollingMode flushesAndSearches, QatZipper.PollingMode merges) {
+            this.flushesAndSearches = flushesAndSearches;
+            this.merges = merges;
+        }
+
+        /**
+         * Returns the polling mode of new compressors and decompressors.
+         *
+         * @param merge whether they are created for a merge.
+         */
+        QatZipper.PollingMode pollingMode(boolean merge) {
+            return merge ? merges : flushesAndSearches;
+        }
+    }
+
+    /** How QAT sessions poll for completed requests, either auto, busy or periodical. */
+    static final Setting<PollingPolicy> POLLING_MODE_SETTING = new Setting<>("indices.codec.qat.polling_mode", "auto", s -> {
+        switch (s) {
+            case "auto":
+                return PollingPolicy.AUTO;
+            case "busy":
+                return PollingPolicy.BUSY;
+            case "periodical":
+                return PollingPolicy.PERIODICAL;
+            default:
+                throw new IllegalArgumentException(
+                    "Unknown value for [indices.codec.qat.polling_mode] must be one of [auto, busy, periodical] but was: " + s
+                );
+        }
+    }, Property.NodeScope);
+
+    private static final ThreadLocal<Boolean> CREATING_FOR_MERGE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * Creates the stored fields writer or the merge instance of a stored fields reader of a merge, so that the
+     * compressors and decompressors created along with it use the polling mode of merges.
+     *
+     * @param supplier creates the writer or reader.
+     */
+    static <T, E extends Exception> T forMerge(CheckedSupplier<T, E> supplier) throws E {
+        CREATING_FOR_MERGE.set(Boolean.TRUE);
+        try {
+            return supplier.get();
+        } finally {
+            CREATING_FOR_MERGE.remove();
+        }
+    }
+
+    /**
+     * Wraps the stored fields reader of a QAT format, so that its merge instances decompress with the polling mode of
+     * merges.
+     *
+     * @param reader the stored fields reader.
+     * @return the wrapped reader.
+     */
+    public static StoredFieldsReader withMergePolling(StoredFieldsReader reader) {
+        return new MergePollingStoredFieldsReader(reader);
+    }
+
+    /**
+     * The parameters of a QAT session. Any session can decompress what any other session of the same algorithm
+     * compressed, decompressors share the sessions of compressors of the same level so that fewer sessions stay idle.
+     */
+    record SessionKey(QatZipper.Algorithm algorithm, int compressionLevel, QatZipper.Mode qatMode, QatZipper.PollingMode pollingMode) {
+    }
+
+    /**
+     * Creates the pool of QAT sessions of a node, see {@link CodecServices}. Compressors lease a session for their
+     * lifetime, decompressors are cloned for every stored fields reader and are never closed, so they lease a session for
+     * every call.
+     *
+     * @param settings the node settings.
+     */
+    static SessionPool<SessionKey, QatZipper> newSessionPool(Settings settings) {
+        return new SessionPool<>(
+            key -> QatZipperFactory.createInstance(key.algorithm(), key.compressionLevel(), key.qatMode(), key.pollingMode()),
+            QatZipper::end,
+            MAX_IDLE_SESSIONS_SETTING.get(settings),
+            SESSION_IDLE_TIMEOUT_SETTING.get(settings),
+            System::nanoTime
+        );
+    }
+
     private final QatZipper.Algorithm algorithm;
     private final int compressionLevel;
     private final Supplier<QatZipper.Mode> supplier;
+    private final BlockLayout layout;
+    private final int subBlockLength;
+    private final CodecServices services;
 
     /** default constructor */
     protected QatCompressionMode() {
@@ -66,19 +190,79 @@ public class QatCompressionMode extends CompressionMode {
      * @param supplier a supplier for QAT acceleration mode.
      */
     protected QatCompressionMode(QatZipper.Algorithm algorithm, int compressionLevel, Supplier<QatZipper.Mode> supplier) {
+        this(algorithm, compressionLevel, supplier, BlockLayout.INTERLEAVED);
+    }
+
+    /**
+     * Creates a new instance with the given sub-block layout.
+     *
+     * @param algorithm The compression algorithm (LZ4, DEFLATE, or ZSTD)
+     * @param compressionLevel The compression level to use.
+     * @param supplier a supplier for QAT acceleration mode.
+     * @param layout The layout of the sub-blocks.
+     */
+    QatCompressionMode(QatZipper.Algorithm algorithm, int compressionLevel, Supplier<QatZipper.Mode> supplier, BlockLayout layout) {
+        this(algorithm, compressionLevel, supplier, layout, 0);
+    }
+
+    /**
+     * Creates a new instance with the given sub-block layout and sub-block length.
+     *
+     * @param algorithm The compression algorithm (LZ4, DEFLATE, or ZSTD)
+     * @param compressionLevel The compression level to use.
+     * @param supplier a supplier for QAT acceleration mode.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, zero splits
+     *                       every block into a fixed number of sub-blocks.
+     */
+    QatCompressionMode(
+        QatZipper.Algorithm algorithm,
+        int compressionLevel,
+        Supplier<QatZipper.Mode> supplier,
+        BlockLayout layout,
+        int subBlockLength
+    ) {
+        this(algorithm, compressionLevel, supplier, layout, subBlockLength, CodecServices.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance with the given sub-block layout and sub-block length, which uses the services of a node.
+     *
+     * @param algorithm The compression algorithm (LZ4, DEFLATE, or ZSTD)
+     * @param compressionLevel The compression level to use.
+     * @param supplier a supplier for QAT acceleration mode.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, or zero.
+     * @param services The services of the node, which hold the QAT sessions, circuit breaker and polling policy.
+     */
+    QatCompressionMode(
+        QatZipper.Algorithm algorithm,
+        int compressionLevel,
+        Supplier<QatZipper.Mode> supplier,
+        BlockLayout layout,
+        int subBlockLength,
+        CodecServices services
+    ) {
         this.algorithm = algorithm;
         this.compressionLevel = compressionLevel;
         this.supplier = supplier;
+        this.layout = layout;
+        this.subBlockLength = subBlockLength;
+        this.services = services;
     }
 
     @Override
     public Compressor newCompressor() {
-        return new QatCompressor(algorithm, compressionLevel, supplier.get());
+        return new QatCompressor(services, sessionKey(CREATING_FOR_MERGE.get()), layout, subBlockLength);
     }
 
     @Override
     public Decompressor newDecompressor() {
-        return new QatDecompressor(algorithm, supplier.get());
+        return new QatDecompressor(services, sessionKey(CREATING_FOR_MERGE.get()), sessionKey(true), layout);
+    }
+
+    private SessionKey sessionKey(boolean merge) {
+        return new SessionKey(algorithm, compressionLevel, supplier.get(), services.qatPollingPolicy().pollingMode(merge));
     }
 
     public int getCompressionLevel() {
@@ -86,15 +270,51 @@ public class QatCompressionMode extends CompressionMode {
     }
 
     /** The QatCompressor.  */
-    private static final class QatCompressor extends Compressor {
+    static final class QatCompressor extends Compressor {
 
+        private byte[] uncompressedBuffer;
         private byte[] compressedBuffer;
-        private final QatZipper qatZipper;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
+        private final CodecServices services;
+        private final SessionKey sessionKey;
+        private QatZipper qatZipper;
+        private final QatSoftwareEncoder softwareEncoder;
+        private final BlockLayout layout;
+        private final int subBlockLength;
+        private boolean hardware;
+        private boolean failed;
 
         /** compressor with a given algorithm, compresion level, and execution mode */
-        public QatCompressor(QatZipper.Algorithm algorithm, int compressionLevel, QatZipper.Mode qatMode) {
+        public QatCompressor(CodecServices services, SessionKey sessionKey, BlockLayout layout, int subBlockLength) {
+            this.services = services;
+            this.sessionKey = sessionKey;
+            this.layout = layout;
+            this.subBlockLength = subBlockLength;
+            uncompressedBuffer = BytesRef.EMPTY_BYTES;
             compressedBuffer = BytesRef.EMPTY_BYTES;
-            qatZipper = QatZipperFactory.createInstance(algorithm, compressionLevel, qatMode, QatZipper.PollingMode.PERIODICAL);
+            compressedLengths = new int[NUM_SUB_BLOCKS];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS);
+            softwareEncoder = new QatSoftwareEncoder(sessionKey.algorithm(), sessionKey.compressionLevel());
+        }
+
+        /* the bound of a sub-block, whether it ends up being compressed with QAT or in software */
+        private int maxCompressedLength(int length) {
+            final int softwareLength = softwareEncoder.maxCompressedLength(length);
+            return qatZipper == null ? softwareLength : Math.max(qatZipper.maxCompressedLength(length), softwareLength);
+        }
+
+        /* compresses a sub-block with QAT unless the breaker is open, and in software if QAT fails */
+        private int compressSubBlock(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength)
+            throws IOException {
+            if (hardware && failed == false && qatZipper != null) {
+                try {
+                    return qatZipper.compress(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+                } catch (RuntimeException e) {
+                    failed = true;
+                }
+            }
+            return softwareEncoder.compress(src, srcOffset, srcLength, dst, dstOffset, dstLength);
         }
 
         private void compress(byte[] bytes, int offset, int length, DataOutput out) throws IOException {
@@ -106,6 +326,8 @@ public class QatCompressionMode extends CompressionMode {
             final int end = offset + length;
             assert end >= 0 : "Buffer read size must be greater than 0.";
 
+            // every sub-block fits the bound of the largest one, which saves a native call per sub-block
+            compressedBuffer = ArrayUtil.growNoCopy(compressedBuffer, maxCompressedLength(blockLength));
             for (int start = offset; start < end; start += blockLength) {
                 int l = Math.min(blockLength, end - start);
 
@@ -114,41 +336,152 @@ public class QatCompressionMode extends CompressionMode {
                     return;
                 }
 
-                final int maxCompressedLength = qatZipper.maxCompressedLength(l);
-                compressedBuffer = ArrayUtil.growNoCopy(compressedBuffer, maxCompressedLength);
-
-                int compressedSize = qatZipper.compress(bytes, start, l, compressedBuffer, 0, compressedBuffer.length);
+                int compressedSize = compressSubBlock(bytes, start, l, compressedBuffer, 0, compressedBuffer.length);
                 out.writeVInt(compressedSize);
                 out.writeBytes(compressedBuffer, compressedSize);
             }
         }
 
+        private void compressWithOffsetTable(byte[] bytes, int offset, int length, DataOutput out) throws IOException {
+            final int blockLength = OffsetTable.blockLength(length, NUM_SUB_BLOCKS, subBlockLength);
+            out.writeVInt(blockLength);
+
+            // sub-blocks are compressed into a single buffer so that their lengths can be written first
+            final int numSubBlocks = OffsetTable.numSubBlocks(length, blockLength);
+            compressedLengths = ArrayUtil.grow(compressedLengths, numSubBlocks);
+            rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks);
+            rawSubBlocks.clear(0, numSubBlocks);
+            // the buffer is sized for all sub-blocks at once, with the bound of the largest one, so that compressing a
+            // sub-block only takes a single native call
+            compressedBuffer = ArrayUtil.growNoCopy(
+                compressedBuffer,
+                Math.toIntExact((long) numSubBlocks * maxCompressedLength(blockLength))
+            );
+            int compressedLength = 0;
+            for (int i = 0; i < numSubBlocks; ++i) {
+                final int start = offset + i * blockLength;
+                final int l = Math.min(blockLength, offset + length - start);
+                compressedLengths[i] = compressSubBlock(
+                    bytes,
+                    start,
+                    l,
+                    compressedBuffer,
+                    compressedLength,
+                    compressedBuffer.length - compressedLength
+                );
+                if (layout.hasRawSubBlocks()
+                    && OffsetTable.storeRaw(bytes, start, l, compressedBuffer, compressedLength, compressedLengths[i])) {
+                    compressedLengths[i] = l;
+                    rawSubBlocks.set(i);
+                }
+                compressedLength += compressedLengths[i];
+            }
+
+            OffsetTable.write(out, layout, compressedLengths, rawSubBlocks, numSubBlocks);
+            out.writeBytes(compressedBuffer, compressedLength);
+        }
+
         @Override
         public void compress(ByteBuffersDataInput buffersInput, DataOutput out) throws IOException {
             final int length = (int) buffersInput.length();
-            byte[] bytes = new byte[length];
-            buffersInput.readBytes(bytes, 0, length);
-            compress(bytes, 0, length, out);
+            // the input is copied into a buffer that is retained across blocks instead of a fresh array per block
+            uncompressedBuffer = ArrayUtil.growNoCopy(uncompressedBuffer, length);
+            buffersInput.readBytes(uncompressedBuffer, 0, length);
+            // nodes without QAT compress in software, without a session
+            final QatCircuitBreaker breaker = services.qatCircuitBreaker();
+            hardware = QatZipperFactory.isQatAvailable() && breaker.allowHardware();
+            failed = false;
+            final long startNanos = System.nanoTime();
+            // the outcome is always reported, otherwise a probe that throws would keep the breaker half-open
+            boolean success = false;
+            try {
+                if (hardware) {
+                    acquireSession();
+                }
+                if (layout.hasOffsetTable()) {
+                    compressWithOffsetTable(uncompressedBuffer, 0, length, out);
+                } else {
+                    compress(uncompressedBuffer, 0, length, out);
+                }
+                success = true;
+            } finally {
+                if (hardware) {
+                    breaker.onHardwareBlock(System.nanoTime() - startNanos, failed || success == false);
+                } else {
+                    breaker.onSoftwareBlock();
+                }
+            }
+        }
+
+        /* sessions are only created once a block goes to QAT, and blocks go to software if that fails */
+        private void acquireSession() {
+            if (qatZipper == null) {
+                try {
+                    qatZipper = services.qatSessions().acquire(sessionKey);
+                } catch (RuntimeException e) {
+                    failed = true;
+                }
+            }
+        }
+
+        /** Returns the parameters of the QAT session of this compressor. */
+        SessionKey sessionKey() {
+            return sessionKey;
         }
 
         @Override
-        public void close() throws IOException {}
+        public void close() throws IOException {
+            if (qatZipper != null) {
+                services.qatSessions().release(sessionKey, qatZipper);
+                qatZipper = null;
+            }
+            softwareEncoder.close();
+        }
     }
 
     /** The QatDecompressor */
-    private static final class QatDecompressor extends Decompressor {
+    static final class QatDecompressor extends Decompressor {
 
         private byte[] compressed;
-        private final QatZipper qatZipper;
-        private final QatZipper.Mode qatMode;
-        private final QatZipper.Algorithm algorithm;
+        private final QatSoftwareDecoder softwareDecoder;
+        private final CodecServices services;
+        private final SessionKey sessionKey;
+        private final SessionKey mergeSessionKey;
+        private final BlockLayout layout;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
 
         /** decompressor with a given algorithm, compression level, and execution mode */
-        public QatDecompressor(QatZipper.Algorithm algorithm, QatZipper.Mode qatMode) {
-            this.algorithm = algorithm;
-            this.qatMode = qatMode;
+        public QatDecompressor(CodecServices services, SessionKey sessionKey, SessionKey mergeSessionKey, BlockLayout layout) {
+            this.services = services;
+            this.sessionKey = sessionKey;
+            this.mergeSessionKey = mergeSessionKey;
+            this.layout = layout;
             compressed = BytesRef.EMPTY_BYTES;
-            qatZipper = QatZipperFactory.createInstance(algorithm, qatMode, QatZipper.PollingMode.PERIODICAL);
+            compressedLengths = new int[NUM_SUB_BLOCKS];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS);
+            softwareDecoder = new QatSoftwareDecoder(sessionKey.algorithm());
+        }
+
+        private int decompressFull(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) throws IOException {
+            // nodes without QAT can still read segments that were written with it, e.g. after a relocation
+            if (QatZipperFactory.isQatAvailable() == false) {
+                return softwareDecoder.decompress(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+            }
+            final QatZipper qatZipper;
+            try {
+                qatZipper = services.qatSessions().acquire(sessionKey);
+            } catch (RuntimeException e) {
+                return softwareDecoder.decompress(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+            }
+            try {
+                return qatZipper.decompressFull(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+            } catch (RuntimeException e) {
+                // the frames are standard ones, whether QAT or the software fallback of the compressor wrote them
+                return softwareDecoder.decompress(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+            } finally {
+                services.qatSessions().release(sessionKey, qatZipper);
+            }
         }
 
         /*resuable decompress function*/
@@ -161,6 +494,11 @@ public class QatCompressionMode extends CompressionMode {
                 return;
             }
 
+            if (layout.hasOffsetTable()) {
+                decompressWithOffsetTable(in, originalLength, offset, length, bytes);
+                return;
+            }
+
             final int blockLength = in.readVInt();
             bytes.offset = bytes.length = 0;
             int offsetInBlock = 0;
@@ -202,7 +540,7 @@ public class QatCompressionMode extends CompressionMode {
 
             // Single JNI call: native side loops through all concatenated
             // compressed frames, decompressing them into the output buffer.
-            int totalWritten = qatZipper.decompressFull(compressed, 0, srcPos, bytes.bytes, 0, totalDecompressed);
+            int totalWritten = decompressFull(compressed, 0, srcPos, bytes.bytes, 0, totalDecompressed);
             assert totalWritten == totalDecompressed : "Decompressed byte count ("
                 + totalWritten
                 + ") does not match expected ("
@@ -215,9 +553,64 @@ public class QatCompressionMode extends CompressionMode {
             assert bytes.isValid() : "Decompression output is corrupted.";
         }
 
+        private void decompressWithOffsetTable(DataInput in, int originalLength, int offset, int length, BytesRef bytes)
+            throws IOException {
+            final int blockLength = in.readVInt();
+            final int numSubBlocks = OffsetTable.numSubBlocks(originalLength, blockLength);
+            rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks);
+            compressedLengths = OffsetTable.read(in, layout, numSubBlocks, compressedLengths, rawSubBlocks);
+
+            // skip the sub-blocks before the interval at once
+            final int first = offset / blockLength;
+            final int last = (offset + length - 1) / blockLength;
+            in.skipBytes(OffsetTable.sum(compressedLengths, 0, first));
+
+            final int totalDecompressed = Math.min(originalLength, (last + 1) * blockLength) - first * blockLength;
+            bytes.bytes = ArrayUtil.growNoCopy(bytes.bytes, totalDecompressed);
+            int decompressedOffset = 0;
+            for (int i = first; i <= last;) {
+                if (rawSubBlocks.get(i)) {
+                    // stored sub-blocks are read straight into the output, e.g. from the mapped file
+                    final int l = Math.min(blockLength, originalLength - i * blockLength);
+                    in.readBytes(bytes.bytes, decompressedOffset, l);
+                    decompressedOffset += l;
+                    ++i;
+                    continue;
+                }
+                // runs of compressed sub-blocks are read at once and still take a single native call
+                int runCompressed = 0;
+                int runDecompressed = 0;
+                for (; i <= last && rawSubBlocks.get(i) == false; ++i) {
+                    runCompressed += compressedLengths[i];
+                    runDecompressed += Math.min(blockLength, originalLength - i * blockLength);
+                }
+                compressed = ArrayUtil.growNoCopy(compressed, runCompressed);
+                in.readBytes(compressed, 0, runCompressed);
+                int written = decompressFull(compressed, 0, runCompressed, bytes.bytes, decompressedOffset, runDecompressed);
+                assert written == runDecompressed : "Decompressed byte count ("
+                    + written
+                    + ") does not match expected ("
+                    + runDecompressed
+                    + ").";
+                decompressedOffset += runDecompressed;
+            }
+            assert decompressedOffset == totalDecompressed : "decompression output is corrupted.";
+
+            bytes.offset = offset - first * blockLength;
+            bytes.length = length;
+
+            assert bytes.isValid() : "Decompression output is corrupted.";
+        }
+
+        /** Returns the parameters of the QAT sessions of this decompressor. */
+        SessionKey sessionKey() {
+            return sessionKey;
+        }
+
         @Override
         public Decompressor clone() {
-            return new QatDecompressor(algorithm, qatMode);
+            // merge instances of readers clone the decompressor of the reader
+            return new QatDecompressor(services, CREATING_FOR_MERGE.get() ? mergeSessionKey : sessionKey, mergeSessionKey, layout);
         }
     }
 }
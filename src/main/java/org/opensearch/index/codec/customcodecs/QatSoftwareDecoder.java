@@ -0,0 +1,262 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.util.BitUtil;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.intel.qat.QatZipper;
+
+/**
+ * Decodes the frames that {@link QatZipper} writes without the QAT library, so that segments of QAT codecs can be read
+ * on nodes without QAT hardware. LZ4 frames are decoded in Java, gzip members and raw deflate streams with
+ * {@link Inflater} and zstd frames with zstd-jni. Like {@link QatZipper#decompressFull}, the input may hold several
+ * concatenated frames.
+ *
+ * @opensearch.internal
+ */
+final class QatSoftwareDecoder {
+
+    private static final int LZ4_MAGIC = 0x184D2204;
+    private static final int LZ4_SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int LZ4_SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+    private static final int LZ4_MIN_MATCH = 4;
+
+    private static final int GZIP_MAGIC = 0x8B1F;
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private final QatZipper.Algorithm algorithm;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param algorithm the algorithm that the frames were compressed with.
+     */
+    QatSoftwareDecoder(QatZipper.Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Decompresses concatenated frames.
+     *
+     * @param src the compressed bytes.
+     * @param srcOffset the offset of the first frame.
+     * @param srcLength the length of all frames.
+     * @param dst the destination.
+     * @param dstOffset the offset in the destination.
+     * @param dstLength the decompressed length of all frames.
+     * @return the number of decompressed bytes.
+     */
+    int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) throws IOException {
+        return switch (algorithm) {
+            case LZ4 -> decompressLz4(src, srcOffset, srcOffset + srcLength, dst, dstOffset, dstOffset + dstLength) - dstOffset;
+            case DEFLATE -> decompressDeflate(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+            case ZSTD -> decompressZstd(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+        };
+    }
+
+    private static int decompressZstd(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength)
+        throws IOException {
+        final ZstdDecompressCtx dctx = ZstdDecompressCtxPool.INSTANCE.acquire();
+        try {
+            return dctx.decompressByteArray(dst, dstOffset, dstLength, src, srcOffset, srcLength);
+        } catch (ZstdException e) {
+            throw new CorruptIndexException("invalid zstd frame", "qat", e);
+        } finally {
+            ZstdDecompressCtxPool.INSTANCE.release(dctx);
+        }
+    }
+
+    /* gzip members, which QAT writes with an extra field that holds the member lengths, or a raw deflate stream */
+    private static int decompressDeflate(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength)
+        throws IOException {
+        final Inflater inflater = new Inflater(true);
+        try {
+            final int srcEnd = srcOffset + srcLength;
+            int written = 0;
+            int pos = srcOffset;
+            do {
+                final boolean gzip = srcEnd - pos >= 2 && (short) BitUtil.VH_LE_SHORT.get(src, pos) == (short) GZIP_MAGIC;
+                if (gzip) {
+                    pos = skipGzipHeader(src, pos, srcEnd);
+                }
+                inflater.reset();
+                inflater.setInput(src, pos, srcEnd - pos);
+                while (inflater.finished() == false) {
+                    final int n = inflater.inflate(dst, dstOffset + written, dstLength - written);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || written == dstLength)) {
+                        throw new CorruptIndexException("truncated deflate stream", "qat");
+                    }
+                    written += n;
+                }
+                pos = srcEnd - inflater.getRemaining();
+                if (gzip == false) {
+                    break;
+                }
+                pos += GZIP_TRAILER_LENGTH;
+            } while (pos < srcEnd);
+            return written;
+        } catch (DataFormatException e) {
+            throw new CorruptIndexException("invalid deflate stream", "qat", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int skipGzipHeader(byte[] src, int pos, int end) throws IOException {
+        checkBounds(pos + 10, end);
+        final int flags = src[pos + 3] & 0xFF;
+        pos += 10;
+        if ((flags & FEXTRA) != 0) {
+            checkBounds(pos + 2, end);
+            pos += 2 + ((short) BitUtil.VH_LE_SHORT.get(src, pos) & 0xFFFF);
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(src, pos, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            pos = skipZeroTerminated(src, pos, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        checkBounds(pos, end);
+        return pos;
+    }
+
+    private static int skipZeroTerminated(byte[] src, int pos, int end) throws IOException {
+        while (pos < end && src[pos] != 0) {
+            ++pos;
+        }
+        checkBounds(pos + 1, end);
+        return pos + 1;
+    }
+
+    /* LZ4 frames, see https://github.com/lz4/lz4/blob/dev/doc/lz4_Frame_format.md */
+    private static int decompressLz4(byte[] src, int pos, int srcEnd, byte[] dst, int dstOffset, int dstEnd) throws IOException {
+        int dPos = dstOffset;
+        while (pos < srcEnd) {
+            checkBounds(pos + 4, srcEnd);
+            final int magic = (int) BitUtil.VH_LE_INT.get(src, pos);
+            pos += 4;
+            if ((magic & LZ4_SKIPPABLE_MAGIC_MASK) == LZ4_SKIPPABLE_MAGIC) {
+                checkBounds(pos + 4, srcEnd);
+                pos += 4 + (int) BitUtil.VH_LE_INT.get(src, pos);
+                continue;
+            }
+            if (magic != LZ4_MAGIC) {
+                throw new CorruptIndexException("invalid LZ4 frame magic: " + Integer.toHexString(magic), "qat");
+            }
+            checkBounds(pos + 2, srcEnd);
+            final int flags = src[pos] & 0xFF;
+            final boolean blockChecksum = (flags & 0x10) != 0;
+            final boolean contentSize = (flags & 0x08) != 0;
+            final boolean contentChecksum = (flags & 0x04) != 0;
+            final boolean dictId = (flags & 0x01) != 0;
+            if ((flags >>> 6) != 1) {
+                throw new CorruptIndexException("unsupported LZ4 frame version: " + (flags >>> 6), "qat");
+            }
+            // flags, block descriptor and header checksum
+            pos += 3 + (contentSize ? 8 : 0) + (dictId ? 4 : 0);
+            // matches of linked blocks may reference previous blocks, which precede them in the destination
+            final int frameStart = dPos;
+            while (true) {
+                checkBounds(pos + 4, srcEnd);
+                final int blockSize = (int) BitUtil.VH_LE_INT.get(src, pos);
+                pos += 4;
+                if (blockSize == 0) {
+                    break;
+                }
+                final int length = blockSize & 0x7FFFFFFF;
+                checkBounds(pos + length, srcEnd);
+                if (blockSize < 0) {
+                    checkBounds(dPos + length, dstEnd);
+                    System.arraycopy(src, pos, dst, dPos, length);
+                    dPos += length;
+                } else {
+                    dPos = decompressLz4Block(src, pos, pos + length, dst, frameStart, dPos, dstEnd);
+                }
+                pos += length + (blockChecksum ? 4 : 0);
+            }
+            pos += contentChecksum ? 4 : 0;
+        }
+        return dPos;
+    }
+
+    private static int decompressLz4Block(byte[] src, int pos, int end, byte[] dst, int dstStart, int dPos, int dstEnd) throws IOException {
+        while (pos < end) {
+            final int token = src[pos++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == 0x0F) {
+                int b;
+                do {
+                    checkBounds(pos + 1, end);
+                    b = src[pos++] & 0xFF;
+                    literalLength += b;
+                } while (b == 0xFF);
+            }
+            checkBounds(pos + literalLength, end);
+            checkBounds(dPos + literalLength, dstEnd);
+            System.arraycopy(src, pos, dst, dPos, literalLength);
+            pos += literalLength;
+            dPos += literalLength;
+            if (pos == end) {
+                // the last sequence only has literals
+                break;
+            }
+
+            checkBounds(pos + 2, end);
+            final int matchOffset = (short) BitUtil.VH_LE_SHORT.get(src, pos) & 0xFFFF;
+            pos += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 0x0F) {
+                int b;
+                do {
+                    checkBounds(pos + 1, end);
+                    b = src[pos++] & 0xFF;
+                    matchLength += b;
+                } while (b == 0xFF);
+            }
+            matchLength += LZ4_MIN_MATCH;
+            if (matchOffset == 0 || dPos - matchOffset < dstStart) {
+                throw new CorruptIndexException("invalid LZ4 match offset: " + matchOffset, "qat");
+            }
+            checkBounds(dPos + matchLength, dstEnd);
+            // matches may overlap with their own output, which has to be copied byte by byte
+            final int matchStart = dPos - matchOffset;
+            if (matchOffset >= matchLength) {
+                System.arraycopy(dst, matchStart, dst, dPos, matchLength);
+            } else {
+                for (int i = 0; i < matchLength; ++i) {
+                    dst[dPos + i] = dst[matchStart + i];
+                }
+            }
+            dPos += matchLength;
+        }
+        return dPos;
+    }
+
+    private static void checkBounds(int pos, int end) throws IOException {
+        if (pos > end || pos < 0) {
+            throw new CorruptIndexException("truncated frame", "qat");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.compress.LZ4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.intel.qat.QatZipper;
+
+/**
+ * Compresses into the standard frames that {@link QatZipper} writes, without the QAT library, so that compressors can
+ * keep going while the accelerator is unavailable. Writes a single LZ4 frame with independent blocks, a single gzip
+ * member or a single zstd frame, which both {@link QatZipper} and {@link QatSoftwareDecoder} can decompress.
+ *
+ * @opensearch.internal
+ */
+final class QatSoftwareEncoder implements Closeable {
+
+    private static final int LZ4_MAGIC = 0x184D2204;
+    private static final int LZ4_MAX_BLOCK_SIZE = 4 * 1024 * 1024;
+    /* version 01 with independent blocks, 4MB blocks, and the xxhash32 based header checksum of these two bytes */
+    private static final byte LZ4_FLG = 0x60;
+    private static final byte LZ4_BD = 0x70;
+    private static final byte LZ4_HC = 0x73;
+    private static final int LZ4_HEADER_LENGTH = 7;
+    private static final int LZ4_UNCOMPRESSED_BLOCK = 0x80000000;
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final QatZipper.Algorithm algorithm;
+    private final int compressionLevel;
+    private LZ4.FastCompressionHashTable hashTable;
+    private Deflater deflater;
+    private ZstdCompressCtx cctx;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param algorithm the algorithm to compress with.
+     * @param compressionLevel the compression level, for deflate and zstd.
+     */
+    QatSoftwareEncoder(QatZipper.Algorithm algorithm, int compressionLevel) {
+        this.algorithm = algorithm;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Returns the maximum compressed length of the given number of bytes.
+     *
+     * @param length the uncompressed length.
+     */
+    int maxCompressedLength(int length) {
+        return switch (algorithm) {
+            // LZ4 may expand a block by a few bytes before it is found to be better stored uncompressed
+            case LZ4 -> LZ4_HEADER_LENGTH + (length / LZ4_MAX_BLOCK_SIZE + 1) * (Integer.BYTES + 16) + length + length / 255
+                + Integer.BYTES;
+            // the bound of zlib for stored blocks
+            case DEFLATE -> GZIP_HEADER.length + length + ((length + 7) >> 3) + ((length + 63) >> 6) + 5 + GZIP_TRAILER_LENGTH;
+            case ZSTD -> Math.toIntExact(Zstd.compressBound(length));
+        };
+    }
+
+    /**
+     * Compresses a single frame.
+     *
+     * @param src the uncompressed bytes.
+     * @param srcOffset the offset of the uncompressed bytes.
+     * @param srcLength the uncompressed length.
+     * @param dst the destination, which must have room for {@link #maxCompressedLength}.
+     * @param dstOffset the offset in the destination.
+     * @param dstLength the room in the destination.
+     * @return the compressed length.
+     */
+    int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) throws IOException {
+        assert dstLength >= maxCompressedLength(srcLength) : "destination is too small";
+        return switch (algorithm) {
+            case LZ4 -> compressLz4(src, srcOffset, srcLength, dst, dstOffset);
+            case DEFLATE -> compressGzip(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+            case ZSTD -> compressZstd(src, srcOffset, srcLength, dst, dstOffset, dstLength);
+        };
+    }
+
+    private int compressLz4(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) throws IOException {
+        if (hashTable == null) {
+            hashTable = new LZ4.FastCompressionHashTable();
+        }
+        int pos = dstOffset;
+        BitUtil.VH_LE_INT.set(dst, pos, LZ4_MAGIC);
+        dst[pos + 4] = LZ4_FLG;
+        dst[pos + 5] = LZ4_BD;
+        dst[pos + 6] = LZ4_HC;
+        pos += LZ4_HEADER_LENGTH;
+        final int srcEnd = srcOffset + srcLength;
+        for (int start = srcOffset; start < srcEnd; start += LZ4_MAX_BLOCK_SIZE) {
+            final int length = Math.min(LZ4_MAX_BLOCK_SIZE, srcEnd - start);
+            final int blockStart = pos + Integer.BYTES;
+            final ByteArrayDataOutput out = new ByteArrayDataOutput(dst, blockStart, dst.length - blockStart);
+            LZ4.compress(src, start, length, out, hashTable);
+            int blockSize = out.getPosition() - blockStart;
+            // blocks that do not shrink are stored uncompressed
+            if (blockSize >= length) {
+                BitUtil.VH_LE_INT.set(dst, pos, LZ4_UNCOMPRESSED_BLOCK | length);
+                System.arraycopy(src, start, dst, blockStart, length);
+                blockSize = length;
+            } else {
+                BitUtil.VH_LE_INT.set(dst, pos, blockSize);
+            }
+            pos = blockStart + blockSize;
+        }
+        // end mark
+        BitUtil.VH_LE_INT.set(dst, pos, 0);
+        pos += Integer.BYTES;
+        return pos - dstOffset;
+    }
+
+    private int compressGzip(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+        if (deflater == null) {
+            deflater = new Deflater(Math.min(compressionLevel, Deflater.BEST_COMPRESSION), true);
+        }
+        deflater.reset();
+        deflater.setInput(src, srcOffset, srcLength);
+        deflater.finish();
+        int pos = dstOffset;
+        System.arraycopy(GZIP_HEADER, 0, dst, pos, GZIP_HEADER.length);
+        pos += GZIP_HEADER.length;
+        final int end = dstOffset + dstLength - GZIP_TRAILER_LENGTH;
+        while (deflater.finished() == false) {
+            final int n = deflater.deflate(dst, pos, end - pos);
+            if (n == 0 && pos == end) {
+                throw new IllegalStateException("gzip member does not fit into " + dstLength + " bytes");
+            }
+            pos += n;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(src, srcOffset, srcLength);
+        BitUtil.VH_LE_INT.set(dst, pos, (int) crc.getValue());
+        BitUtil.VH_LE_INT.set(dst, pos + 4, srcLength);
+        pos += GZIP_TRAILER_LENGTH;
+        return pos - dstOffset;
+    }
+
+    private int compressZstd(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+        if (cctx == null) {
+            cctx = new ZstdCompressCtx();
+            cctx.setLevel(compressionLevel);
+        }
+        return cctx.compressByteArray(dst, dstOffset, dstLength, src, srcOffset, srcLength);
+    }
+
+    @Override
+    public void close() {
+        if (deflater != null) {
+            deflater.end();
+        }
+        if (cctx != null) {
+            cctx.close();
+        }
+    }
+}
@@ -72,6 +72,17 @@ public class QatZstd104Codec extends Lucene104QatCodec implements CodecSettings,
         super(Mode.QAT_ZSTD, compressionLevel, supplier, defaultCodecSupplier);
     }
 
+    /**
+     * Creates a new QatZstd104Codec instance.
+     *
+     * @param parameters The stored fields parameters.
+     * @param supplier supplier for QAT acceleration mode.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    QatZstd104Codec(StoredFieldsParameters parameters, Supplier<QatZipper.Mode> supplier, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.QAT_ZSTD, parameters, supplier, defaultCodecSupplier);
+    }
+
     /** The name for this codec. */
     @Override
     public String toString() {
@@ -80,14 +91,13 @@ public class QatZstd104Codec extends Lucene104QatCodec implements CodecSettings,
 
     @Override
     public boolean supports(Setting<?> setting) {
-        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING);
+        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING);
     }
 
     @Override
     public Set<String> aliases() {
-        if (!QatZipperFactory.isQatAvailable()) {
-            return Set.of();
-        }
         return Mode.QAT_ZSTD.getAliases();
     }
 }
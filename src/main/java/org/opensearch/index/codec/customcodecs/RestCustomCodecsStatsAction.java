@@ -0,0 +1,46 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.core.common.Strings;
+import org.opensearch.rest.BaseRestHandler;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.rest.action.RestActions.NodesResponseRestListener;
+import org.opensearch.transport.client.node.NodeClient;
+
+import java.util.List;
+
+import static org.opensearch.rest.RestRequest.Method.GET;
+
+/**
+ * Returns the stats of the custom codecs of nodes, e.g. the state of the QAT circuit breaker and the use of the caches of stored fields blocks and zstd dictionaries.
+ *
+ * @opensearch.internal
+ */
+public final class RestCustomCodecsStatsAction extends BaseRestHandler {
+
+    @Override
+    public String getName() {
+        return "custom_codecs_stats_action";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return List.of(new Route(GET, "/_plugins/_custom_codecs/stats"), new Route(GET, "/_plugins/_custom_codecs/{nodeId}/stats"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) {
+        final CustomCodecsStatsRequest statsRequest = new CustomCodecsStatsRequest(
+            Strings.splitStringByCommaToArray(request.param("nodeId"))
+        );
+        statsRequest.timeout(request.param("timeout"));
+        return channel -> client.execute(CustomCodecsStatsAction.INSTANCE, statsRequest, new NodesResponseRestListener<>(channel));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.StoredFieldVisitor;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stored fields reader that releases its segment in the caches of a node on close, which invalidates the cached entries
+ * of the segment once no other reader of the segment is open, see {@link CodecServices#wrap}.
+ * <p>
+ * Merges use the merge instance of the wrapped reader, so that the stored fields writer still recognizes it and can
+ * copy compressed blocks as-is.
+ *
+ * @opensearch.internal
+ */
+final class SegmentReleasingStoredFieldsReader extends StoredFieldsReader {
+
+    private final StoredFieldsReader delegate;
+    private final Runnable release;
+    /* shared with the clones, so that the segment is released once */
+    private final AtomicBoolean released;
+
+    SegmentReleasingStoredFieldsReader(StoredFieldsReader delegate, Runnable release) {
+        this(delegate, release, new AtomicBoolean());
+    }
+
+    private SegmentReleasingStoredFieldsReader(StoredFieldsReader delegate, Runnable release, AtomicBoolean released) {
+        this.delegate = delegate;
+        this.release = release;
+        this.released = released;
+    }
+
+    @Override
+    public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+        delegate.document(docID, visitor);
+    }
+
+    @Override
+    public void prefetch(int docID) throws IOException {
+        delegate.prefetch(docID);
+    }
+
+    @Override
+    public StoredFieldsReader clone() {
+        return new SegmentReleasingStoredFieldsReader(delegate.clone(), release, released);
+    }
+
+    @Override
+    public StoredFieldsReader getMergeInstance() {
+        return delegate.getMergeInstance();
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+        delegate.checkIntegrity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            delegate.close();
+        } finally {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + delegate + ")";
+    }
+}
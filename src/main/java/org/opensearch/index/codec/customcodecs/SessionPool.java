@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.common.unit.TimeValue;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded pool of reusable native sessions, keyed by the parameters they were created with.
+ * <p>
+ * Sessions are leased for the duration of a call, or for the lifetime of a compressor, and returned afterwards. At most
+ * {@code maxIdle} sessions are retained across all keys, and sessions that stayed idle for longer than the idle timeout
+ * are evicted when sessions are returned. Sessions that are not retained are freed right away.
+ *
+ * @param <K> the parameters of a session.
+ * @param <S> the session.
+ *
+ * @opensearch.internal
+ */
+final class SessionPool<K, S> {
+
+    private record Idle<S>(S session, long releasedNanos) {
+    }
+
+    private final Function<K, S> factory;
+    private final Consumer<S> closer;
+    private final LongSupplier nanoTime;
+    private final Map<K, Deque<Idle<S>>> idle = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private volatile int maxIdle;
+    private volatile long idleTimeoutNanos;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param factory creates a session for the given parameters.
+     * @param closer frees the native resources of a session.
+     * @param maxIdle the maximum number of sessions kept between leases.
+     * @param idleTimeout how long a session is kept between leases.
+     * @param nanoTime the clock of the idle timeout.
+     */
+    SessionPool(Function<K, S> factory, Consumer<S> closer, int maxIdle, TimeValue idleTimeout, LongSupplier nanoTime) {
+        this.factory = factory;
+        this.closer = closer;
+        this.nanoTime = nanoTime;
+        setMaxIdle(maxIdle);
+        setIdleTimeout(idleTimeout);
+    }
+
+    /**
+     * Sets the maximum number of sessions kept between leases, zero frees every session when it is returned.
+     *
+     * @param maxIdle the maximum number of idle sessions.
+     */
+    void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Sets how long a session is kept between leases.
+     *
+     * @param idleTimeout the idle timeout.
+     */
+    void setIdleTimeout(TimeValue idleTimeout) {
+        this.idleTimeoutNanos = idleTimeout.nanos();
+    }
+
+    /**
+     * Returns the most recently returned session for the given parameters, or a new one if none is idle.
+     *
+     * @param key the parameters of the session.
+     */
+    S acquire(K key) {
+        final Deque<Idle<S>> sessions = idle.get(key);
+        final Idle<S> session = sessions == null ? null : sessions.pollFirst();
+        if (session != null) {
+            idleCount.decrementAndGet();
+            return session.session();
+        }
+        return factory.apply(key);
+    }
+
+    /**
+     * Returns a session to the pool. The session is freed if the pool is full.
+     *
+     * @param key the parameters that the session was obtained with from {@link #acquire}.
+     * @param session the session.
+     */
+    void release(K key, S session) {
+        final long now = nanoTime.getAsLong();
+        evictIdle(now);
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            closer.accept(session);
+            return;
+        }
+        idle.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).offerFirst(new Idle<>(session, now));
+    }
+
+    /* sessions are returned to the head of their deque, so the oldest ones are at the tail */
+    private void evictIdle(long now) {
+        for (Deque<Idle<S>> sessions : idle.values()) {
+            Idle<S> oldest;
+            while ((oldest = sessions.peekLast()) != null
+                && now - oldest.releasedNanos() >= idleTimeoutNanos
+                && sessions.removeLastOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                closer.accept(oldest.session());
+            }
+        }
+    }
+
+    /** Returns the number of idle sessions. */
+    int idleCount() {
+        return idleCount.get();
+    }
+
+    /** Frees all idle sessions. */
+    void clear() {
+        for (Deque<Idle<S>> sessions : idle.values()) {
+            Idle<S> session;
+            while ((session = sessions.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                closer.accept(session.session());
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.cache.Cache;
+import org.opensearch.common.cache.CacheBuilder;
+import org.opensearch.common.cache.RemovalReason;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.common.settings.Setting.Property;
+import org.opensearch.core.common.unit.ByteSizeValue;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cache of decompressed stored fields blocks of a node, see {@link CodecServices}, keyed by segment and block start pointer.
+ * <p>
+ * The cache is disabled unless {@link #BLOCK_CACHE_SIZE_SETTING} is set. A block is only admitted the second time it is
+ * read, which a bounded set of recently seen keys keeps track of, so that blocks read once, e.g. by a scroll, do not
+ * evict hot blocks. The recently seen keys of a closed segment are left to age out, segment ids are never reused.
+ * <p>
+ * The blocks of a segment are invalidated once all its stored fields readers are closed, see {@link OpenSegments}, and
+ * blocks of segments without an open reader are not cached.
+ * <p>
+ * Blocks are cached off heap in direct buffers, so the size of the cache counts against the direct memory of the node
+ * rather than its heap, and only the keys of the cached blocks are on heap.
+ *
+ * @opensearch.internal
+ */
+final class StoredFieldsBlockCache {
+
+    /** The maximum size of the cache, zero disables it. */
+    static final Setting<ByteSizeValue> BLOCK_CACHE_SIZE_SETTING = Setting.memorySizeSetting(
+        "indices.codec.stored_fields.block_cache.size",
+        "0b",
+        Property.NodeScope
+    );
+
+    /** The maximum number of recently seen blocks that are remembered for admission. */
+    private static final int DOORKEEPER_SIZE = 64 * 1024;
+
+    /** Approximate size of a cache entry on top of the block. */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    /**
+     * A decompressed block.
+     *
+     * @param bytes the decompressed block, which callers read with absolute gets only
+     * @param endPointer the file pointer right after the compressed block, where decompression leaves the input
+     */
+    record Block(ByteBuffer bytes, long endPointer) {
+
+        /** Returns the length of the decompressed block. */
+        int length() {
+            return bytes.capacity();
+        }
+    }
+
+    private record Key(BytesRef segmentId, long blockOffset) {
+    }
+
+    private final Cache<Key, Block> cache;
+    private final Cache<Key, Boolean> doorkeeper;
+    private final OpenSegments<Key> segments = new OpenSegments<>();
+    private volatile boolean enabled;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxWeight the maximum size of the cached blocks, in bytes.
+     */
+    StoredFieldsBlockCache(long maxWeight) {
+        this.cache = CacheBuilder.<Key, Block>builder()
+            .setMaximumWeight(maxWeight)
+            .weigher((key, block) -> block.length() + ENTRY_OVERHEAD)
+            .removalListener(notification -> {
+                // a replaced block keeps its offset in the index
+                if (notification.getRemovalReason() != RemovalReason.REPLACED) {
+                    segments.unindex(notification.getKey().segmentId(), notification.getKey());
+                }
+            })
+            .build();
+        this.doorkeeper = CacheBuilder.<Key, Boolean>builder().setMaximumWeight(DOORKEEPER_SIZE).build();
+        this.enabled = maxWeight > 0;
+    }
+
+    /**
+     * Sets the maximum size of the cache, zero disables it.
+     *
+     * @param maxWeight the maximum size of the cached blocks, in bytes.
+     */
+    void setMaxWeight(long maxWeight) {
+        cache.setMaximumWeight(maxWeight);
+        enabled = maxWeight > 0;
+        if (enabled == false) {
+            clear();
+        }
+    }
+
+    /** Returns whether the cache is enabled. */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the decompressed block, or {@code null} if it is not cached.
+     *
+     * @param segmentId the id of the segment.
+     * @param blockOffset the file pointer of the block in the stored fields data.
+     */
+    Block get(BytesRef segmentId, long blockOffset) {
+        return cache.get(new Key(segmentId, blockOffset));
+    }
+
+    /**
+     * Returns whether a block that is not cached should be, which is the case if it was read recently.
+     *
+     * @param segmentId the id of the segment.
+     * @param blockOffset the file pointer of the block in the stored fields data.
+     */
+    boolean admit(BytesRef segmentId, long blockOffset) {
+        final Key key = new Key(segmentId, blockOffset);
+        if (doorkeeper.get(key) != null) {
+            doorkeeper.invalidate(key);
+            return true;
+        }
+        doorkeeper.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * Copies a decompressed block off heap and caches it, if its segment is open.
+     *
+     * @param segmentId the id of the segment.
+     * @param blockOffset the file pointer of the block in the stored fields data.
+     * @param bytes the decompressed block.
+     * @param endPointer the file pointer right after the compressed block.
+     * @return the block, which is cached unless the segment is closed.
+     */
+    Block put(BytesRef segmentId, long blockOffset, BytesRef bytes, long endPointer) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes.bytes, bytes.offset, bytes.length);
+        final Block block = new Block(buffer.asReadOnlyBuffer(), endPointer);
+        segments.put(cache, segmentId, new Key(segmentId, blockOffset), block);
+        return block;
+    }
+
+    /**
+     * Records that a stored fields reader of a segment was opened.
+     *
+     * @param segmentId the id of the segment.
+     */
+    void acquire(BytesRef segmentId) {
+        segments.acquire(segmentId);
+    }
+
+    /**
+     * Records that a stored fields reader of a segment was closed, and removes all blocks of the segment if it was the last.
+     *
+     * @param segmentId the id of the segment.
+     */
+    void release(BytesRef segmentId) {
+        segments.release(cache, segmentId);
+    }
+
+    /** Returns the size and the hit, miss and eviction counts of the cache. */
+    CodecCacheStats stats() {
+        return CodecCacheStats.of(cache);
+    }
+
+    /** Returns the number of cached blocks. */
+    int count() {
+        return cache.count();
+    }
+
+    /** Removes all cached blocks, the open segments stay open. */
+    void clear() {
+        cache.invalidateAll();
+        doorkeeper.invalidateAll();
+        segments.clear();
+    }
+}
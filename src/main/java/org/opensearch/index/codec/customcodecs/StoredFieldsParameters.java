@@ -0,0 +1,136 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.index.SegmentInfo;
+
+import java.util.Objects;
+
+/**
+ * The parameters of the stored fields of the custom codecs on top of their mode, which codecs get from the index
+ * settings. Codecs that are instantiated by name use {@link #of(int)}.
+ *
+ * @param compressionLevel the compression level of segments written by flushes.
+ * @param mergeCompressionLevel the compression level of segments written by merges.
+ * @param subBlockLength the target decompressed length of the sub-blocks that new blocks are split into, or zero.
+ * @param mergeParameters the advanced zstd parameters of segments written by merges.
+ * @param columnGrouped whether {@code _source} is compressed separately from the other stored fields.
+ * @param services the services of the node that the codecs belong to, or {@code null} if they resolve the services of
+ *                 every segment through {@link CodecServices#of}.
+ *
+ * @opensearch.internal
+ */
+record StoredFieldsParameters(int compressionLevel, int mergeCompressionLevel, int subBlockLength, ZstdParameters mergeParameters,
+    boolean columnGrouped, CodecServices services) {
+
+    /**
+     * Creates a new instance.
+     */
+    StoredFieldsParameters {
+        Objects.requireNonNull(mergeParameters);
+    }
+
+    /**
+     * Returns the parameters of the given compression level for flushes and merges, and defaults otherwise.
+     *
+     * @param compressionLevel the compression level.
+     */
+    static StoredFieldsParameters of(int compressionLevel) {
+        return new StoredFieldsParameters(compressionLevel, compressionLevel, 0, ZstdParameters.DEFAULT, false, null);
+    }
+
+    /**
+     * Returns a copy with the given compression level of segments written by merges.
+     *
+     * @param mergeCompressionLevel the compression level.
+     */
+    StoredFieldsParameters withMergeCompressionLevel(int mergeCompressionLevel) {
+        return new StoredFieldsParameters(
+            compressionLevel,
+            mergeCompressionLevel,
+            subBlockLength,
+            mergeParameters,
+            columnGrouped,
+            services
+        );
+    }
+
+    /**
+     * Returns a copy with the given sub-block length.
+     *
+     * @param subBlockLength the target decompressed length of a sub-block, or zero.
+     */
+    StoredFieldsParameters withSubBlockLength(int subBlockLength) {
+        return new StoredFieldsParameters(
+            compressionLevel,
+            mergeCompressionLevel,
+            subBlockLength,
+            mergeParameters,
+            columnGrouped,
+            services
+        );
+    }
+
+    /**
+     * Returns a copy with the given advanced zstd parameters of segments written by merges.
+     *
+     * @param mergeParameters the parameters.
+     */
+    StoredFieldsParameters withMergeParameters(ZstdParameters mergeParameters) {
+        return new StoredFieldsParameters(
+            compressionLevel,
+            mergeCompressionLevel,
+            subBlockLength,
+            mergeParameters,
+            columnGrouped,
+            services
+        );
+    }
+
+    /**
+     * Returns a copy with the given stored fields layout.
+     *
+     * @param columnGrouped whether {@code _source} is compressed separately from the other stored fields.
+     */
+    StoredFieldsParameters withColumnGrouped(boolean columnGrouped) {
+        return new StoredFieldsParameters(
+            compressionLevel,
+            mergeCompressionLevel,
+            subBlockLength,
+            mergeParameters,
+            columnGrouped,
+            services
+        );
+    }
+
+    /**
+     * Returns a copy with the given services.
+     *
+     * @param services the services of the node that the codecs belong to.
+     */
+    StoredFieldsParameters withServices(CodecServices services) {
+        return new StoredFieldsParameters(
+            compressionLevel,
+            mergeCompressionLevel,
+            subBlockLength,
+            mergeParameters,
+            columnGrouped,
+            services
+        );
+    }
+
+    /**
+     * Returns the services of the given segment, which are the ones of the codecs if they belong to a node.
+     *
+     * @param si the segment.
+     */
+    CodecServices services(SegmentInfo si) {
+        return services != null ? services : CodecServices.of(si.dir);
+    }
+}
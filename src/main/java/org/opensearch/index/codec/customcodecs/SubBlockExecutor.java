@@ -0,0 +1,263 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.IOSupplier;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.common.settings.Setting.Property;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.core.common.unit.ByteSizeValue;
+import org.opensearch.threadpool.ExecutorBuilder;
+import org.opensearch.threadpool.FixedExecutorBuilder;
+import org.opensearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A bounded thread pool of a node, see {@link CodecServices}, that processes the independent sub-blocks of a stored fields block concurrently.
+ * <p>
+ * The pool is disabled unless {@link #THREADS_SETTING} is set, in which case the plugin registers it with the node's
+ * {@link ThreadPool} under {@link #THREAD_POOL_NAME}. Compressors only use it if they were created for a merge, see
+ * {@link #forWriter}, so that flushes keep compressing on the indexing threads. Decompressors only use it for reads of
+ * at least {@link #PARALLEL_DECOMPRESSION_THRESHOLD_SETTING}, so that small documents are not slowed down by the
+ * hand-off. Sub-blocks that the pool rejects are processed on the calling thread.
+ *
+ * @opensearch.internal
+ */
+final class SubBlockExecutor {
+
+    /** The name of the thread pool. */
+    static final String THREAD_POOL_NAME = "stored_fields_sub_blocks";
+
+    /** The maximum number of sub-block tasks that wait for a thread before the pool rejects them. */
+    static final int QUEUE_SIZE = 1000;
+
+    /**
+     * The number of threads that compress sub-blocks during merges and decompress the sub-blocks of large reads, zero
+     * processes them on the calling thread.
+     */
+    static final Setting<Integer> THREADS_SETTING = Setting.intSetting(
+        "indices.codec.stored_fields.sub_block_threads",
+        0,
+        0,
+        Property.NodeScope
+    );
+
+    /** The decompressed length from which reads decompress their sub-blocks in parallel, zero disables it. */
+    static final Setting<ByteSizeValue> PARALLEL_DECOMPRESSION_THRESHOLD_SETTING = Setting.byteSizeSetting(
+        "indices.codec.stored_fields.parallel_decompression_threshold",
+        new ByteSizeValue(0),
+        Property.NodeScope
+    );
+
+    /** A task that processes a single sub-block. */
+    @FunctionalInterface
+    interface SubBlockTask {
+        /**
+         * Processes a sub-block.
+         *
+         * @param subBlock the index of the sub-block.
+         */
+        void run(int subBlock);
+    }
+
+    /**
+     * The threads that sub-blocks are handed off to.
+     *
+     * @param executor the executor.
+     * @param parallelism the number of threads of the executor.
+     */
+    record Pool(ExecutorService executor, int parallelism) {
+    }
+
+    private final ThreadLocal<Boolean> creatingMergeWriter = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private volatile Pool pool;
+    private volatile long parallelDecompressionThreshold;
+
+    SubBlockExecutor() {}
+
+    /**
+     * Returns the builder of the thread pool, or {@code null} if {@link #THREADS_SETTING} disables it.
+     *
+     * @param settings the node settings.
+     */
+    static ExecutorBuilder<?> executorBuilder(Settings settings) {
+        final int threads = THREADS_SETTING.get(settings);
+        if (threads == 0) {
+            return null;
+        }
+        return new FixedExecutorBuilder(settings, THREAD_POOL_NAME, threads, QUEUE_SIZE, "thread_pool." + THREAD_POOL_NAME);
+    }
+
+    /**
+     * Hands sub-blocks off to the thread pool that was built by {@link #executorBuilder}, if any.
+     *
+     * @param threadPool the node's thread pool.
+     */
+    void setThreadPool(ThreadPool threadPool) {
+        final ThreadPool.Info info = threadPool.info(THREAD_POOL_NAME);
+        setExecutor(info == null ? null : threadPool.executor(THREAD_POOL_NAME), info == null ? 0 : info.getMax());
+    }
+
+    /**
+     * Sets the executor that sub-blocks are handed off to, the executor is not owned by this instance.
+     *
+     * @param executor the executor, or {@code null} to process sub-blocks on the calling thread.
+     * @param parallelism the number of threads of the executor.
+     */
+    void setExecutor(ExecutorService executor, int parallelism) {
+        this.pool = executor == null ? null : new Pool(executor, parallelism);
+    }
+
+    /**
+     * Sets the decompressed length from which reads decompress their sub-blocks in parallel, zero disables it.
+     *
+     * @param threshold the threshold in bytes.
+     */
+    void setParallelDecompressionThreshold(long threshold) {
+        this.parallelDecompressionThreshold = threshold;
+    }
+
+    /**
+     * Creates a stored fields writer, so that the compressors created along with it use the pool if the writer is
+     * created for a merge.
+     *
+     * @param context the context the writer is created with.
+     * @param writer creates the writer.
+     */
+    <T> T forWriter(IOContext context, IOSupplier<T> writer) throws IOException {
+        if (pool == null || context.context() != IOContext.Context.MERGE) {
+            return writer.get();
+        }
+        creatingMergeWriter.set(Boolean.TRUE);
+        try {
+            return writer.get();
+        } finally {
+            creatingMergeWriter.remove();
+        }
+    }
+
+    /** Returns the pool that a new compressor should use, or {@code null} if it should compress on the calling thread. */
+    Pool poolForNewCompressor() {
+        return creatingMergeWriter.get() ? pool : null;
+    }
+
+    /**
+     * Returns the pool that should decompress the sub-blocks of a read, or {@code null} if they should be decompressed
+     * on the calling thread.
+     *
+     * @param length the decompressed length of the sub-blocks that intersect with the read.
+     */
+    Pool poolForDecompression(int length) {
+        final long threshold = parallelDecompressionThreshold;
+        return threshold > 0 && length >= threshold ? pool : null;
+    }
+
+    /**
+     * Runs the task for every sub-block, and returns once all sub-blocks were processed. The sub-blocks of a worker
+     * that the pool rejects, e.g. because its queue is full or it was shut down, are processed on the calling thread.
+     *
+     * @param pool the pool.
+     * @param numSubBlocks the number of sub-blocks.
+     * @param task the task.
+     */
+    static void run(Pool pool, int numSubBlocks, SubBlockTask task) {
+        // each worker takes every numWorkers-th sub-block, so that at most one task per thread is queued
+        final int numWorkers = Math.min(numSubBlocks, pool.parallelism());
+        final List<Future<?>> futures = new ArrayList<>(numWorkers);
+        Throwable failure = null;
+        for (int w = 0; w < numWorkers && failure == null; ++w) {
+            final int worker = w;
+            final Runnable runnable = () -> {
+                for (int i = worker; i < numSubBlocks; i += numWorkers) {
+                    task.run(i);
+                }
+            };
+            try {
+                futures.add(pool.executor().submit(runnable));
+            } catch (RejectedExecutionException e) {
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+        }
+        // the submitted workers write into the caller's buffers, so they are always waited for
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = addFailure(failure, e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            failure = addFailure(failure, new ThreadInterruptedException(new InterruptedException()));
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    private static Throwable addFailure(Throwable failure, Throwable t) {
+        if (failure == null) {
+            return t;
+        }
+        failure.addSuppressed(t);
+        return failure;
+    }
+
+    /**
+     * Moves sub-blocks that were compressed into fixed-size regions of a buffer next to each other.
+     *
+     * @param buffer the buffer.
+     * @param offset the offset of the first region in the buffer.
+     * @param regionLength the length of a region.
+     * @param compressedLengths the compressed lengths of the sub-blocks.
+     * @param lengthsOffset the index of the compressed length of the first sub-block.
+     * @param numSubBlocks the number of sub-blocks.
+     * @return the offset in the buffer right after the last sub-block.
+     */
+    static int compact(byte[] buffer, int offset, int regionLength, int[] compressedLengths, int lengthsOffset, int numSubBlocks) {
+        int end = offset;
+        for (int i = 0; i < numSubBlocks; ++i) {
+            final int compressedLength = compressedLengths[lengthsOffset + i];
+            System.arraycopy(buffer, offset + i * regionLength, buffer, end, compressedLength);
+            end += compressedLength;
+        }
+        return end;
+    }
+
+    /** Stops handing sub-blocks off, the thread pool itself is shut down along with the node's. */
+    void close() {
+        pool = null;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.Codec;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.index.codec.CodecAliases;
+import org.opensearch.index.codec.CodecSettings;
+import org.opensearch.index.engine.EngineConfig;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Validates that an index setting is only changed from its default for codecs that support it, see
+ * {@link CodecSettings#supports}. Codecs are looked up by name or alias, like for
+ * {@link EngineConfig#INDEX_CODEC_COMPRESSION_LEVEL_SETTING}.
+ *
+ * @opensearch.internal
+ */
+final class SupportedByCodecValidator<T> implements Setting.Validator<T> {
+
+    private final Supplier<Setting<T>> setting;
+    private final Function<Map<Setting<?>, Object>, T> defaultValue;
+    private final List<Setting<?>> dependencies;
+    private final Consumer<T> valueValidator;
+    private final BiConsumer<T, Map<Setting<?>, Object>> dependentValidator;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param setting supplies the validated setting, which does not exist yet when its validator is created.
+     * @param defaultValue the default value of the setting, which every codec supports.
+     */
+    SupportedByCodecValidator(Supplier<Setting<T>> setting, T defaultValue) {
+        this(setting, defaultValue, value -> {});
+    }
+
+    /**
+     * Creates a new instance that also validates values on their own.
+     *
+     * @param setting supplies the validated setting, which does not exist yet when its validator is created.
+     * @param defaultValue the default value of the setting, which every codec supports.
+     * @param valueValidator throws an {@link IllegalArgumentException} for invalid values.
+     */
+    SupportedByCodecValidator(Supplier<Setting<T>> setting, T defaultValue, Consumer<T> valueValidator) {
+        this(setting, settings -> defaultValue, List.of(EngineConfig.INDEX_CODEC_SETTING), valueValidator, (value, settings) -> {});
+    }
+
+    /**
+     * Creates a new instance that also validates values on their own and against another index setting.
+     *
+     * @param setting supplies the validated setting, which does not exist yet when its validator is created.
+     * @param defaultValue the default value of the setting, which every codec supports.
+     * @param valueValidator throws an {@link IllegalArgumentException} for invalid values.
+     * @param dependency the other index setting.
+     * @param dependentValidator throws an {@link IllegalArgumentException} for values other than the default that are
+     *                           invalid given the value of the other setting.
+     */
+    @SuppressWarnings("unchecked")
+    <D> SupportedByCodecValidator(
+        Supplier<Setting<T>> setting,
+        T defaultValue,
+        Consumer<T> valueValidator,
+        Setting<D> dependency,
+        BiConsumer<T, D> dependentValidator
+    ) {
+        this(
+            setting,
+            settings -> defaultValue,
+            List.of(EngineConfig.INDEX_CODEC_SETTING, dependency),
+            valueValidator,
+            (value, settings) -> dependentValidator.accept(value, (D) settings.get(dependency))
+        );
+    }
+
+    /**
+     * Creates a new instance for a setting that defaults to another one, every codec supports values that are equal to
+     * the value of the other setting.
+     *
+     * @param setting supplies the validated setting, which does not exist yet when its validator is created.
+     * @param fallbackSetting the setting that the validated setting defaults to.
+     */
+    @SuppressWarnings("unchecked")
+    SupportedByCodecValidator(Supplier<Setting<T>> setting, Setting<T> fallbackSetting) {
+        this(
+            setting,
+            settings -> (T) settings.get(fallbackSetting),
+            List.of(EngineConfig.INDEX_CODEC_SETTING, fallbackSetting),
+            value -> {},
+            (value, settings) -> {}
+        );
+    }
+
+    private SupportedByCodecValidator(
+        Supplier<Setting<T>> setting,
+        Function<Map<Setting<?>, Object>, T> defaultValue,
+        List<Setting<?>> dependencies,
+        Consumer<T> valueValidator,
+        BiConsumer<T, Map<Setting<?>, Object>> dependentValidator
+    ) {
+        this.setting = setting;
+        this.defaultValue = defaultValue;
+        this.dependencies = dependencies;
+        this.valueValidator = valueValidator;
+        this.dependentValidator = dependentValidator;
+    }
+
+    @Override
+    public void validate(T value) {
+        valueValidator.accept(value);
+    }
+
+    @Override
+    public void validate(T value, Map<Setting<?>, Object> settings) {
+        if (defaultValue.apply(settings).equals(value)) {
+            return;
+        }
+        final String codecName = (String) settings.get(EngineConfig.INDEX_CODEC_SETTING);
+        if (isSupported(codecName) == false) {
+            throw new IllegalArgumentException("[" + setting.get().getKey() + "] cannot be set for the " + codecName + " codec.");
+        }
+        dependentValidator.accept(value, settings);
+    }
+
+    /* older codecs may share an alias with the current one, it is enough for one of them to support the setting */
+    private boolean isSupported(String codecName) {
+        for (String name : Codec.availableCodecs()) {
+            final Codec codec = Codec.forName(name);
+            final boolean matches = name.equals(codecName)
+                || (codec instanceof CodecAliases && ((CodecAliases) codec).aliases().contains(codecName));
+            if (matches && codec instanceof CodecSettings && ((CodecSettings) codec).supports(setting.get())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<Setting<?>> settings() {
+        return dependencies.iterator();
+    }
+}
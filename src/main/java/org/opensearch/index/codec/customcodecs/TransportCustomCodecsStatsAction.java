@@ -0,0 +1,105 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.action.FailedNodeException;
+import org.opensearch.action.support.ActionFilters;
+import org.opensearch.action.support.nodes.TransportNodesAction;
+import org.opensearch.cluster.service.ClusterService;
+import org.opensearch.common.inject.Inject;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.threadpool.ThreadPool;
+import org.opensearch.transport.TransportRequest;
+import org.opensearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Collects the stats of the custom codecs from the services of every node, see {@link CodecServices}.
+ *
+ * @opensearch.internal
+ */
+public final class TransportCustomCodecsStatsAction extends TransportNodesAction<
+    CustomCodecsStatsRequest,
+    CustomCodecsStatsResponse,
+    TransportCustomCodecsStatsAction.NodeRequest,
+    CustomCodecsNodeStats> {
+
+    private final CodecServices services;
+
+    /**
+     * Creates the action.
+     *
+     * @param threadPool the thread pool.
+     * @param clusterService the cluster service.
+     * @param transportService the transport service.
+     * @param actionFilters the action filters.
+     * @param services the services of the node.
+     */
+    @Inject
+    public TransportCustomCodecsStatsAction(
+        ThreadPool threadPool,
+        ClusterService clusterService,
+        TransportService transportService,
+        ActionFilters actionFilters,
+        CodecServices services
+    ) {
+        super(
+            CustomCodecsStatsAction.NAME,
+            threadPool,
+            clusterService,
+            transportService,
+            actionFilters,
+            CustomCodecsStatsRequest::new,
+            NodeRequest::new,
+            ThreadPool.Names.MANAGEMENT,
+            CustomCodecsNodeStats.class
+        );
+        this.services = services;
+    }
+
+    @Override
+    protected CustomCodecsStatsResponse newResponse(
+        CustomCodecsStatsRequest request,
+        List<CustomCodecsNodeStats> responses,
+        List<FailedNodeException> failures
+    ) {
+        return new CustomCodecsStatsResponse(clusterService.getClusterName(), responses, failures);
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(CustomCodecsStatsRequest request) {
+        return new NodeRequest();
+    }
+
+    @Override
+    protected CustomCodecsNodeStats newNodeResponse(StreamInput in) throws IOException {
+        return new CustomCodecsNodeStats(in);
+    }
+
+    @Override
+    protected CustomCodecsNodeStats nodeOperation(NodeRequest request) {
+        return new CustomCodecsNodeStats(clusterService.localNode(), services);
+    }
+
+    /**
+     * The request for the stats of a single node.
+     *
+     * @opensearch.internal
+     */
+    public static final class NodeRequest extends TransportRequest {
+
+        NodeRequest() {}
+
+        NodeRequest(StreamInput in) throws IOException {
+            super(in);
+        }
+    }
+}
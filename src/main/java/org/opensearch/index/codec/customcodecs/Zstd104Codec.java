@@ -49,6 +49,16 @@ public class Zstd104Codec extends Lucene104CustomCodec implements CodecSettings,
         super(Mode.ZSTD, compressionLevel, defaultCodecSupplier);
     }
 
+    /**
+     * Creates a new ZstdCodec instance.
+     *
+     * @param parameters The stored fields parameters.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    Zstd104Codec(StoredFieldsParameters parameters, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD, parameters, defaultCodecSupplier);
+    }
+
     /** The name for this codec. */
     @Override
     public String toString() {
@@ -57,7 +67,12 @@ public class Zstd104Codec extends Lucene104CustomCodec implements CodecSettings,
 
     @Override
     public boolean supports(Setting<?> setting) {
-        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING);
+        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_SUB_BLOCK_SIZE_SETTING)
+            || setting.equals(INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING)
+            || setting.equals(INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING)
+            || setting.equals(INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING);
     }
 
     @Override
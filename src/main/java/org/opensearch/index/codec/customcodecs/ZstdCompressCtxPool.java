@@ -0,0 +1,72 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.ZstdCompressCtx;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of reusable {@link ZstdCompressCtx} instances.
+ * <p>
+ * Compressors that hand sub-blocks off to the {@link SubBlockExecutor} lease a context from this pool for every
+ * sub-block instead of owning one per worker, so that the number of live contexts is bounded by the number of
+ * threads that compress concurrently rather than by the number of concurrent merges. At most {@code maxIdle}
+ * contexts are retained between calls, any context released beyond that is freed right away.
+ *
+ * @opensearch.internal
+ */
+final class ZstdCompressCtxPool {
+
+    /** The node-wide pool shared by the zstd compressors. */
+    static final ZstdCompressCtxPool INSTANCE = new ZstdCompressCtxPool(Runtime.getRuntime().availableProcessors());
+
+    private final BlockingQueue<ZstdCompressCtx> idle;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxIdle the maximum number of contexts kept between calls.
+     */
+    ZstdCompressCtxPool(int maxIdle) {
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /** Returns an idle context, or a new one if none is available. */
+    ZstdCompressCtx acquire() {
+        final ZstdCompressCtx cctx = idle.poll();
+        return cctx != null ? cctx : new ZstdCompressCtx();
+    }
+
+    /**
+     * Resets the context and returns it to the pool. The context is freed if the pool is full.
+     *
+     * @param cctx the context that was obtained from {@link #acquire()}.
+     */
+    void release(ZstdCompressCtx cctx) {
+        cctx.reset();
+        if (idle.offer(cctx) == false) {
+            cctx.close();
+        }
+    }
+
+    /** Returns the number of idle contexts. */
+    int idleCount() {
+        return idle.size();
+    }
+
+    /** Frees all idle contexts. */
+    void clear() {
+        ZstdCompressCtx cctx;
+        while ((cctx = idle.poll()) != null) {
+            cctx.close();
+        }
+    }
+}
@@ -12,7 +12,6 @@ import com.github.luben.zstd.Zstd;
 import com.github.luben.zstd.ZstdCompressCtx;
 import com.github.luben.zstd.ZstdDecompressCtx;
 import com.github.luben.zstd.ZstdDictCompress;
-import com.github.luben.zstd.ZstdDictDecompress;
 
 import org.apache.lucene.codecs.compressing.CompressionMode;
 import org.apache.lucene.codecs.compressing.Compressor;
@@ -20,8 +19,11 @@ import org.apache.lucene.codecs.compressing.Decompressor;
 import org.apache.lucene.store.ByteBuffersDataInput;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.SetOnce;
 
 import java.io.IOException;
 
@@ -34,10 +36,15 @@ public class ZstdCompressionMode extends CompressionMode {
     private static final int DICT_SIZE_FACTOR = 6;
 
     private final int compressionLevel;
+    private final BlockLayout layout;
+    private final int subBlockLength;
+    private final ZstdParameters parameters;
+    private final SubBlockExecutor executor;
+    private final ZstdDictionaryCache dictionaryCache;
 
     /** default constructor */
     protected ZstdCompressionMode() {
-        this.compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        this(DEFAULT_COMPRESSION_LEVEL);
     }
 
     /**
@@ -46,31 +53,146 @@ public class ZstdCompressionMode extends CompressionMode {
      * @param compressionLevel The compression level to use.
      */
     protected ZstdCompressionMode(int compressionLevel) {
+        this(compressionLevel, BlockLayout.INTERLEAVED);
+    }
+
+    /**
+     * Creates a new instance with the given sub-block layout.
+     *
+     * @param compressionLevel The compression level to use.
+     * @param layout The layout of the sub-blocks.
+     */
+    ZstdCompressionMode(int compressionLevel, BlockLayout layout) {
+        this(compressionLevel, layout, 0);
+    }
+
+    /**
+     * Creates a new instance with the given sub-block layout and sub-block length.
+     *
+     * @param compressionLevel The compression level to use.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, zero splits
+     *                       every block into a fixed number of sub-blocks.
+     */
+    ZstdCompressionMode(int compressionLevel, BlockLayout layout, int subBlockLength) {
+        this(compressionLevel, layout, subBlockLength, ZstdParameters.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance with the given sub-block layout, sub-block length and advanced compression parameters.
+     *
+     * @param compressionLevel The compression level to use.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, zero splits
+     *                       every block into a fixed number of sub-blocks.
+     * @param parameters The advanced compression parameters.
+     */
+    ZstdCompressionMode(int compressionLevel, BlockLayout layout, int subBlockLength, ZstdParameters parameters) {
+        this(
+            compressionLevel,
+            layout,
+            subBlockLength,
+            parameters,
+            CodecServices.DEFAULT.subBlockExecutor(),
+            CodecServices.DEFAULT.dictionaryCache()
+        );
+    }
+
+    /**
+     * Creates a new instance that compresses the sub-blocks of merges with the given executor, and caches the
+     * dictionaries of blocks in the given cache.
+     *
+     * @param compressionLevel The compression level to use.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, or zero.
+     * @param parameters The advanced compression parameters.
+     * @param executor The executor of sub-blocks of the node.
+     * @param dictionaryCache The cache of dictionaries of the node.
+     */
+    ZstdCompressionMode(
+        int compressionLevel,
+        BlockLayout layout,
+        int subBlockLength,
+        ZstdParameters parameters,
+        SubBlockExecutor executor,
+        ZstdDictionaryCache dictionaryCache
+    ) {
         this.compressionLevel = compressionLevel;
+        this.layout = layout;
+        this.subBlockLength = subBlockLength;
+        this.parameters = parameters;
+        this.executor = executor;
+        this.dictionaryCache = dictionaryCache;
+    }
+
+    /**
+     * Returns the number of bytes that a sub-block of a full block is compressed with, the sub-block and the dictionary,
+     * which bounds the window that compressing it uses. Blocks that hold a document larger than the block length are
+     * larger, and so are their sub-blocks if the sub-block length is zero.
+     *
+     * @param subBlockLength The target decompressed length of a sub-block, or zero.
+     */
+    static int windowLength(int subBlockLength) {
+        final int blockLength = Lucene104CustomStoredFieldsFormat.ZSTD_BLOCK_LENGTH;
+        final int dictLength = blockLength / (NUM_SUB_BLOCKS * DICT_SIZE_FACTOR);
+        return dictLength + OffsetTable.blockLength(blockLength - dictLength, NUM_SUB_BLOCKS, subBlockLength);
     }
 
     /** Creates a new compressor instance. */
     @Override
     public Compressor newCompressor() {
-        return new ZstdCompressor(compressionLevel);
+        return new ZstdCompressor(compressionLevel, layout, subBlockLength, parameters, executor.poolForNewCompressor());
     }
 
     /** Creates a new decompressor instance. */
     @Override
     public Decompressor newDecompressor() {
-        return new ZstdDecompressor();
+        return new ZstdDecompressor(layout, dictionaryCache);
     }
 
     /** zstandard compressor */
     private static final class ZstdCompressor extends Compressor {
 
         private final int compressionLevel;
+        private final BlockLayout layout;
+        private final int subBlockLength;
+        private final ZstdParameters parameters;
         private byte[] compressedBuffer;
+        private byte[] uncompressedBuffer;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
+        private ZstdCompressCtx cctx;
+        private final SubBlockExecutor.Pool pool;
 
         /** compressor with a given compresion level */
-        public ZstdCompressor(int compressionLevel) {
+        public ZstdCompressor(
+            int compressionLevel,
+            BlockLayout layout,
+            int subBlockLength,
+            ZstdParameters parameters,
+            SubBlockExecutor.Pool pool
+        ) {
             this.compressionLevel = compressionLevel;
+            this.layout = layout;
+            this.subBlockLength = subBlockLength;
+            this.parameters = parameters;
+            this.pool = pool;
             compressedBuffer = BytesRef.EMPTY_BYTES;
+            uncompressedBuffer = BytesRef.EMPTY_BYTES;
+            compressedLengths = new int[NUM_SUB_BLOCKS + 1];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS + 1);
+        }
+
+        /* the context is created on first use and reset, rather than re-created, for every subsequent block */
+        private ZstdCompressCtx compressCtx() {
+            if (cctx == null) {
+                cctx = new ZstdCompressCtx();
+            } else {
+                cctx.reset();
+            }
+            cctx.setLevel(compressionLevel);
+            parameters.apply(cctx);
+            return cctx;
         }
 
         /*resuable compress function*/
@@ -99,56 +221,205 @@ public class ZstdCompressionMode extends CompressionMode {
             final int end = offset + length;
             assert end >= 0 : "buffer read size must be greater than 0";
 
-            try (ZstdCompressCtx cctx = new ZstdCompressCtx()) {
-                cctx.setLevel(compressionLevel);
+            final ZstdCompressCtx cctx = compressCtx();
 
-                // dictionary compression first
-                doCompress(bytes, offset, dictLength, cctx, out);
-                try (ZstdDictCompress dictCompress = new ZstdDictCompress(bytes, offset, dictLength, compressionLevel)) {
+            // dictionary compression first
+            doCompress(bytes, offset, dictLength, cctx, out);
+            try (ZstdDictCompress dictCompress = new ZstdDictCompress(bytes, offset, dictLength, compressionLevel)) {
+                cctx.loadDict(dictCompress);
+
+                for (int start = offset + dictLength; start < end; start += blockLength) {
+                    int l = Math.min(blockLength, end - start);
+                    doCompress(bytes, start, l, cctx, out);
+                }
+            }
+        }
+
+        /* compresses into the buffer after the given number of bytes, and returns the compressed length */
+        private int doCompress(byte[] bytes, int offset, int length, ZstdCompressCtx cctx, int compressedOffset) {
+            if (length == 0) {
+                return 0;
+            }
+            compressedBuffer = ArrayUtil.grow(compressedBuffer, compressedOffset + (int) Zstd.compressBound(length));
+            return cctx.compressByteArray(
+                compressedBuffer,
+                compressedOffset,
+                compressedBuffer.length - compressedOffset,
+                bytes,
+                offset,
+                length
+            );
+        }
+
+        private void compressWithOffsetTable(byte[] bytes, int offset, int length, DataOutput out) throws IOException {
+            final int dictLength = length / (NUM_SUB_BLOCKS * DICT_SIZE_FACTOR);
+            final int blockLength = OffsetTable.blockLength(length - dictLength, NUM_SUB_BLOCKS, subBlockLength);
+            out.writeVInt(dictLength);
+            out.writeVInt(blockLength);
+
+            final ZstdCompressCtx cctx = compressCtx();
+
+            // the dictionary and the sub-blocks are compressed into a single buffer so that their lengths can be written first
+            final int numSubBlocks = OffsetTable.numSubBlocks(length - dictLength, blockLength);
+            compressedLengths = ArrayUtil.grow(compressedLengths, numSubBlocks + 1);
+            rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks + 1);
+            rawSubBlocks.clear(0, numSubBlocks + 1);
+            compressedLengths[0] = doCompress(bytes, offset, dictLength, cctx, 0);
+            storeRawIfLarger(bytes, offset, dictLength, 0, 0);
+            int compressedLength = compressedLengths[0];
+            try (ZstdDictCompress dictCompress = new ZstdDictCompress(bytes, offset, dictLength, compressionLevel)) {
+                if (pool != null && numSubBlocks > 1) {
+                    compressedLength = compressSubBlocksInParallel(
+                        bytes,
+                        offset + dictLength,
+                        length - dictLength,
+                        blockLength,
+                        numSubBlocks,
+                        dictCompress,
+                        compressedLength
+                    );
+                } else {
                     cctx.loadDict(dictCompress);
 
-                    for (int start = offset + dictLength; start < end; start += blockLength) {
-                        int l = Math.min(blockLength, end - start);
-                        doCompress(bytes, start, l, cctx, out);
+                    for (int i = 0; i < numSubBlocks; ++i) {
+                        final int start = offset + dictLength + i * blockLength;
+                        final int l = Math.min(blockLength, offset + length - start);
+                        compressedLengths[i + 1] = doCompress(bytes, start, l, cctx, compressedLength);
+                        storeRawIfLarger(bytes, start, l, i + 1, compressedLength);
+                        compressedLength += compressedLengths[i + 1];
                     }
                 }
             }
+
+            OffsetTable.write(out, layout, compressedLengths, rawSubBlocks, numSubBlocks + 1);
+            out.writeBytes(compressedBuffer, compressedLength);
+        }
+
+        /* stores the bytes of the given entry of the offset table raw if compressing them did not make them smaller */
+        private void storeRawIfLarger(byte[] bytes, int offset, int length, int index, int compressedOffset) {
+            if (layout.hasRawSubBlocks()
+                && OffsetTable.storeRaw(bytes, offset, length, compressedBuffer, compressedOffset, compressedLengths[index])) {
+                compressedLengths[index] = length;
+                rawSubBlocks.set(index);
+            }
+        }
+
+        private int compressSubBlocksInParallel(
+            byte[] bytes,
+            int offset,
+            int length,
+            int blockLength,
+            int numSubBlocks,
+            ZstdDictCompress dictCompress,
+            int compressedOffset
+        ) {
+            // every sub-block gets a region after the dictionary that fits its compressed bytes, regions are compacted afterwards
+            final int regionLength = (int) Zstd.compressBound(blockLength);
+            compressedBuffer = ArrayUtil.grow(
+                compressedBuffer,
+                Math.addExact(compressedOffset, Math.multiplyExact(regionLength, numSubBlocks))
+            );
+            final byte[] buffer = compressedBuffer;
+            final int[] lengths = compressedLengths;
+            SubBlockExecutor.run(pool, numSubBlocks, i -> {
+                final int start = offset + i * blockLength;
+                final int l = Math.min(blockLength, offset + length - start);
+                final int regionOffset = compressedOffset + i * regionLength;
+                // contexts are not thread-safe, they are leased from a node-wide pool rather than owned per worker
+                final ZstdCompressCtx ctx = ZstdCompressCtxPool.INSTANCE.acquire();
+                try {
+                    ctx.setLevel(compressionLevel);
+                    parameters.apply(ctx);
+                    ctx.loadDict(dictCompress);
+                    lengths[i + 1] = ctx.compressByteArray(buffer, regionOffset, regionLength, bytes, start, l);
+                } finally {
+                    ZstdCompressCtxPool.INSTANCE.release(ctx);
+                }
+            });
+            // regions fit the raw bytes too, only the bit set is not safe to update concurrently
+            for (int i = 0; i < numSubBlocks; ++i) {
+                final int start = offset + i * blockLength;
+                storeRawIfLarger(bytes, start, Math.min(blockLength, offset + length - start), i + 1, compressedOffset + i * regionLength);
+            }
+            return SubBlockExecutor.compact(buffer, compressedOffset, regionLength, lengths, 1, numSubBlocks);
         }
 
         @Override
         public void compress(ByteBuffersDataInput buffersInput, DataOutput out) throws IOException {
             final int length = (int) buffersInput.length();
-            byte[] bytes = new byte[length];
-            buffersInput.readBytes(bytes, 0, length);
-            compress(bytes, 0, length, out);
+            // the input is copied into a buffer that is retained across blocks instead of a fresh array per block
+            uncompressedBuffer = ArrayUtil.growNoCopy(uncompressedBuffer, length);
+            buffersInput.readBytes(uncompressedBuffer, 0, length);
+            if (layout.hasOffsetTable()) {
+                compressWithOffsetTable(uncompressedBuffer, 0, length, out);
+            } else {
+                compress(uncompressedBuffer, 0, length, out);
+            }
         }
 
         @Override
-        public void close() throws IOException {}
+        public void close() throws IOException {
+            if (cctx != null) {
+                cctx.close();
+                cctx = null;
+            }
+        }
     }
 
     /** zstandard decompressor */
     private static final class ZstdDecompressor extends Decompressor {
 
+        private final BlockLayout layout;
+        private final ZstdDictionaryCache dictionaryCache;
+        private final SetOnce<BytesRef> segmentKey;
         private byte[] compressedBuffer;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
 
         /** default decompressor */
-        public ZstdDecompressor() {
+        ZstdDecompressor(BlockLayout layout, ZstdDictionaryCache dictionaryCache) {
+            this(layout, dictionaryCache, new SetOnce<>());
+        }
+
+        /* clones read the same stored fields data, and share the key of its segment once it is read */
+        private ZstdDecompressor(BlockLayout layout, ZstdDictionaryCache dictionaryCache, SetOnce<BytesRef> segmentKey) {
+            this.layout = layout;
+            this.dictionaryCache = dictionaryCache;
+            this.segmentKey = segmentKey;
             compressedBuffer = BytesRef.EMPTY_BYTES;
+            compressedLengths = new int[NUM_SUB_BLOCKS + 1];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS + 1);
         }
 
         /*resuable decompress function*/
-        private void doDecompress(DataInput in, ZstdDecompressCtx dctx, BytesRef bytes, int decompressedLen) throws IOException {
-            final int compressedLength = in.readVInt();
+        private void doDecompress(DataInput in, int compressedLength, ZstdDecompressCtx dctx, BytesRef bytes, int decompressedLen)
+            throws IOException {
             if (compressedLength == 0) {
                 return;
             }
 
             compressedBuffer = ArrayUtil.growNoCopy(compressedBuffer, compressedLength);
             in.readBytes(compressedBuffer, 0, compressedLength);
+            doDecompress(compressedBuffer, 0, compressedLength, dctx, bytes, decompressedLen);
+        }
 
+        private static void doDecompress(
+            byte[] compressed,
+            int compressedOffset,
+            int compressedLength,
+            ZstdDecompressCtx dctx,
+            BytesRef bytes,
+            int decompressedLen
+        ) {
             bytes.bytes = ArrayUtil.grow(bytes.bytes, bytes.length + decompressedLen);
-            int uncompressed = dctx.decompressByteArray(bytes.bytes, bytes.length, decompressedLen, compressedBuffer, 0, compressedLength);
+            int uncompressed = dctx.decompressByteArray(
+                bytes.bytes,
+                bytes.length,
+                decompressedLen,
+                compressed,
+                compressedOffset,
+                compressedLength
+            );
 
             if (decompressedLen != uncompressed) {
                 throw new IllegalStateException(decompressedLen + " " + uncompressed);
@@ -156,6 +427,56 @@ public class ZstdCompressionMode extends CompressionMode {
             bytes.length += uncompressed;
         }
 
+        /* the key of the segment is read from the header of the stored fields data */
+        private BytesRef segmentKey(IndexInput in) throws IOException {
+            BytesRef key = segmentKey.get();
+            if (key == null) {
+                segmentKey.trySet(OpenSegments.segmentKey(in));
+                key = segmentKey.get();
+            }
+            return key;
+        }
+
+        /*
+         * returns the dictionary of the block with a reference that the caller releases, the dictionary is cached unless
+         * the position of the block in the file is unknown
+         */
+        private ZstdDictionaryCache.Dictionary dictionary(
+            DataInput in,
+            ZstdDecompressCtx dctx,
+            BytesRef bytes,
+            int dictLength,
+            int compressedDictLength,
+            boolean rawDict,
+            long blockOffset
+        ) throws IOException {
+            if (blockOffset >= 0) {
+                final ZstdDictionaryCache.Dictionary dictionary = dictionaryCache.get(segmentKey((IndexInput) in), blockOffset);
+                if (dictionary != null) {
+                    if (dictionary.raw().length == dictLength) {
+                        in.skipBytes(compressedDictLength);
+                        System.arraycopy(dictionary.raw(), 0, bytes.bytes, 0, dictLength);
+                        bytes.length = dictLength;
+                        return dictionary;
+                    }
+                    dictionary.decRef();
+                }
+            }
+
+            if (rawDict) {
+                in.readBytes(bytes.bytes, 0, dictLength);
+                bytes.length = dictLength;
+            } else {
+                doDecompress(in, compressedDictLength, dctx, bytes, dictLength);
+            }
+            final byte[] raw = ArrayUtil.copyOfSubArray(bytes.bytes, 0, dictLength);
+            final ZstdDictionaryCache.Dictionary dictionary = new ZstdDictionaryCache.Dictionary(raw);
+            if (blockOffset >= 0) {
+                dictionaryCache.put(segmentKey((IndexInput) in), blockOffset, dictionary);
+            }
+            return dictionary;
+        }
+
         @Override
         public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
             assert offset + length <= originalLength : "buffer read size must be within limit";
@@ -169,42 +490,97 @@ public class ZstdCompressionMode extends CompressionMode {
             bytes.bytes = ArrayUtil.growNoCopy(bytes.bytes, dictLength);
             bytes.offset = bytes.length = 0;
 
-            try (ZstdDecompressCtx dctx = new ZstdDecompressCtx()) {
+            final long blockOffset = in instanceof IndexInput ? ((IndexInput) in).getFilePointer() : -1L;
+            final ZstdDecompressCtx dctx = ZstdDecompressCtxPool.INSTANCE.acquire();
+            ZstdDictionaryCache.Dictionary dictionary = null;
+            try {
+                if (layout.hasOffsetTable()) {
+                    final int numSubBlocks = OffsetTable.numSubBlocks(originalLength - dictLength, blockLength);
+                    rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks + 1);
+                    compressedLengths = OffsetTable.read(in, layout, numSubBlocks + 1, compressedLengths, rawSubBlocks);
+                    dictionary = dictionary(in, dctx, bytes, dictLength, compressedLengths[0], rawSubBlocks.get(0), blockOffset);
+                    dctx.loadDict(dictionary.digested());
+                    decompressWithOffsetTable(in, dctx, originalLength, dictLength, blockLength, offset, length, bytes);
+                    return;
+                }
 
                 // decompress dictionary first
-                doDecompress(in, dctx, bytes, dictLength);
-                try (ZstdDictDecompress dictDecompress = new ZstdDictDecompress(bytes.bytes, 0, dictLength)) {
-                    dctx.loadDict(dictDecompress);
-
-                    int offsetInBlock = dictLength;
-                    int offsetInBytesRef = offset;
-
-                    // Skip unneeded blocks
-                    while (offsetInBlock + blockLength < offset) {
-                        final int compressedLength = in.readVInt();
-                        in.skipBytes(compressedLength);
-                        offsetInBlock += blockLength;
-                        offsetInBytesRef -= blockLength;
-                    }
+                dictionary = dictionary(in, dctx, bytes, dictLength, in.readVInt(), false, blockOffset);
+                dctx.loadDict(dictionary.digested());
+
+                int offsetInBlock = dictLength;
+                int offsetInBytesRef = offset;
+
+                // Skip unneeded blocks
+                while (offsetInBlock + blockLength < offset) {
+                    final int compressedLength = in.readVInt();
+                    in.skipBytes(compressedLength);
+                    offsetInBlock += blockLength;
+                    offsetInBytesRef -= blockLength;
+                }
 
-                    // Read blocks that intersect with the interval we need
-                    while (offsetInBlock < offset + length) {
-                        int l = Math.min(blockLength, originalLength - offsetInBlock);
-                        doDecompress(in, dctx, bytes, l);
-                        offsetInBlock += blockLength;
-                    }
+                // Read blocks that intersect with the interval we need
+                while (offsetInBlock < offset + length) {
+                    int l = Math.min(blockLength, originalLength - offsetInBlock);
+                    doDecompress(in, in.readVInt(), dctx, bytes, l);
+                    offsetInBlock += blockLength;
+                }
+
+                bytes.offset = offsetInBytesRef;
+                bytes.length = length;
+
+                assert bytes.isValid() : "decompression output is corrupted";
+            } finally {
+                // the context refers to the dictionary until it is reset
+                ZstdDecompressCtxPool.INSTANCE.release(dctx);
+                if (dictionary != null) {
+                    dictionary.decRef();
+                }
+            }
+        }
 
-                    bytes.offset = offsetInBytesRef;
-                    bytes.length = length;
+        /* decompresses the sub-blocks that intersect with the interval, the dictionary is already in the bytes */
+        private void decompressWithOffsetTable(
+            DataInput in,
+            ZstdDecompressCtx dctx,
+            int originalLength,
+            int dictLength,
+            int blockLength,
+            int offset,
+            int length,
+            BytesRef bytes
+        ) throws IOException {
+            int first = 0;
+            int last = -1;
+            if (offset + length > dictLength) {
+                first = Math.max(0, offset - dictLength) / blockLength;
+                last = (offset + length - 1 - dictLength) / blockLength;
+            }
 
-                    assert bytes.isValid() : "decompression output is corrupted";
+            // skip the sub-blocks before the interval at once
+            in.skipBytes(OffsetTable.sum(compressedLengths, 1, first + 1));
+
+            for (int i = first; i <= last; ++i) {
+                final int l = Math.min(blockLength, originalLength - dictLength - i * blockLength);
+                if (rawSubBlocks.get(i + 1)) {
+                    // stored sub-blocks are read straight into the output, e.g. from the mapped file
+                    bytes.bytes = ArrayUtil.grow(bytes.bytes, bytes.length + l);
+                    in.readBytes(bytes.bytes, bytes.length, l);
+                    bytes.length += l;
+                } else {
+                    doDecompress(in, compressedLengths[i + 1], dctx, bytes, l);
                 }
             }
+
+            bytes.offset = offset - first * blockLength;
+            bytes.length = length;
+
+            assert bytes.isValid() : "decompression output is corrupted";
         }
 
         @Override
         public Decompressor clone() {
-            return new ZstdDecompressor();
+            return new ZstdDecompressor(layout, dictionaryCache, segmentKey);
         }
     }
 }
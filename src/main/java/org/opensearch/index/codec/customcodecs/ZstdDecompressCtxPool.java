@@ -0,0 +1,71 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of reusable {@link ZstdDecompressCtx} instances.
+ * <p>
+ * Decompressors are cloned for every stored fields reader and are never closed, so they cannot own a native
+ * context. Instead, they lease a context from this pool for the duration of a single decompress call. At most
+ * {@code maxIdle} contexts are retained between calls, any context released beyond that is freed right away.
+ *
+ * @opensearch.internal
+ */
+final class ZstdDecompressCtxPool {
+
+    /** The node-wide pool shared by the zstd decompressors. */
+    static final ZstdDecompressCtxPool INSTANCE = new ZstdDecompressCtxPool(2 * Runtime.getRuntime().availableProcessors());
+
+    private final BlockingQueue<ZstdDecompressCtx> idle;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxIdle the maximum number of contexts kept between calls.
+     */
+    ZstdDecompressCtxPool(int maxIdle) {
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /** Returns an idle context, or a new one if none is available. */
+    ZstdDecompressCtx acquire() {
+        final ZstdDecompressCtx dctx = idle.poll();
+        return dctx != null ? dctx : new ZstdDecompressCtx();
+    }
+
+    /**
+     * Resets the context and returns it to the pool. The context is freed if the pool is full.
+     *
+     * @param dctx the context that was obtained from {@link #acquire()}.
+     */
+    void release(ZstdDecompressCtx dctx) {
+        dctx.reset();
+        if (idle.offer(dctx) == false) {
+            dctx.close();
+        }
+    }
+
+    /** Returns the number of idle contexts. */
+    int idleCount() {
+        return idle.size();
+    }
+
+    /** Frees all idle contexts. */
+    void clear() {
+        ZstdDecompressCtx dctx;
+        while ((dctx = idle.poll()) != null) {
+            dctx.close();
+        }
+    }
+}
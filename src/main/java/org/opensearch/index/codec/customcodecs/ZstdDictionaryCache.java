@@ -0,0 +1,186 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.ZstdDictDecompress;
+
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.cache.Cache;
+import org.opensearch.common.cache.CacheBuilder;
+import org.opensearch.common.cache.RemovalReason;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded cache of the dictionaries of {@link ZstdCompressionMode} blocks of a node, see {@link CodecServices}, keyed
+ * by segment and block offset.
+ * <p>
+ * Every block of that mode starts with its own dictionary, which has to be decompressed and digested before any other
+ * sub-block of the block can be read. Caching both forms lets reads of neighboring documents in the same block skip
+ * that work. Dictionaries are reference counted: the cache holds one reference and every read that uses a dictionary
+ * holds another, so that the native memory of a digested dictionary is freed as soon as it is evicted and no longer
+ * read, rather than when it is garbage collected.
+ * <p>
+ * Segments are identified by the id and suffix in the codec header of their stored fields data, see
+ * {@link OpenSegments#segmentKey}. The dictionaries of a segment are invalidated once all its stored fields readers are
+ * closed. The dictionaries of segments that are read without a registered reader, e.g. through the codecs of older
+ * versions, age out of the cache instead, segment ids are never reused.
+ *
+ * @opensearch.internal
+ */
+final class ZstdDictionaryCache {
+
+    /** The default maximum weight of the cache, in bytes. */
+    static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+
+    /** Approximate size of the entropy tables of a digested dictionary, on top of its content. */
+    private static final long DIGESTED_OVERHEAD = 32L * 1024;
+
+    /** A reference counted dictionary, which frees the digested dictionary when its last reference is released. */
+    static final class Dictionary {
+
+        private final byte[] raw;
+        private final ZstdDictDecompress digested;
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        /**
+         * Creates a dictionary with a single reference, which the caller holds.
+         *
+         * @param raw the decompressed dictionary, which is also the first part of the decompressed block
+         */
+        Dictionary(byte[] raw) {
+            this.raw = raw;
+            this.digested = new ZstdDictDecompress(raw);
+        }
+
+        /** Returns the decompressed dictionary, which is also the first part of the decompressed block. */
+        byte[] raw() {
+            return raw;
+        }
+
+        /** Returns the dictionary digested for decompression, only while a reference is held. */
+        ZstdDictDecompress digested() {
+            return digested;
+        }
+
+        /** Takes another reference, returns {@code false} if the dictionary was already freed. */
+        boolean tryIncRef() {
+            int count;
+            while ((count = refCount.get()) > 0) {
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Releases a reference, and frees the digested dictionary if it was the last one. */
+        void decRef() {
+            final int count = refCount.decrementAndGet();
+            assert count >= 0 : count;
+            if (count == 0) {
+                digested.close();
+            }
+        }
+
+        /** Returns the number of references. */
+        int refCount() {
+            return refCount.get();
+        }
+    }
+
+    private record Key(BytesRef segment, long blockOffset) {
+    }
+
+    private final Cache<Key, Dictionary> cache;
+    private final OpenSegments<Key> segments = new OpenSegments<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxWeight the maximum weight of the cached dictionaries, in bytes.
+     */
+    ZstdDictionaryCache(long maxWeight) {
+        this.cache = CacheBuilder.<Key, Dictionary>builder()
+            .setMaximumWeight(maxWeight)
+            .weigher((key, dictionary) -> 2L * dictionary.raw().length + DIGESTED_OVERHEAD)
+            .removalListener(notification -> {
+                notification.getValue().decRef();
+                // a replaced dictionary keeps its offset in the index
+                if (notification.getRemovalReason() != RemovalReason.REPLACED) {
+                    segments.unindex(notification.getKey().segment(), notification.getKey());
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Returns the dictionary of a block with a reference that the caller must release, or {@code null} if it is not
+     * cached.
+     *
+     * @param segment the key of the segment, see {@link OpenSegments#segmentKey}.
+     * @param blockOffset the file pointer of the dictionary in the stored fields data.
+     */
+    Dictionary get(BytesRef segment, long blockOffset) {
+        final Dictionary dictionary = cache.get(new Key(segment, blockOffset));
+        // the dictionary may have been evicted and freed concurrently
+        return dictionary != null && dictionary.tryIncRef() ? dictionary : null;
+    }
+
+    /**
+     * Caches the dictionary of a block, the cache takes a reference of its own.
+     *
+     * @param segment the key of the segment, see {@link OpenSegments#segmentKey}.
+     * @param blockOffset the file pointer of the dictionary in the stored fields data.
+     * @param dictionary the dictionary, which the caller holds a reference of.
+     */
+    void put(BytesRef segment, long blockOffset, Dictionary dictionary) {
+        if (dictionary.tryIncRef()) {
+            final Key key = new Key(segment, blockOffset);
+            if (segments.put(cache, segment, key, dictionary) == false) {
+                cache.put(key, dictionary);
+            }
+        }
+    }
+
+    /**
+     * Records that a stored fields reader of a segment was opened.
+     *
+     * @param segmentId the id of the segment.
+     */
+    void acquire(BytesRef segmentId) {
+        segments.acquire(segmentId);
+    }
+
+    /**
+     * Records that a stored fields reader of a segment was closed, and removes all dictionaries of the segment if it
+     * was the last.
+     *
+     * @param segmentId the id of the segment.
+     */
+    void release(BytesRef segmentId) {
+        segments.release(cache, segmentId);
+    }
+
+    /** Returns the size and the hit, miss and eviction counts of the cache. */
+    CodecCacheStats stats() {
+        return CodecCacheStats.of(cache);
+    }
+
+    /** Returns the number of cached dictionaries. */
+    int count() {
+        return cache.count();
+    }
+
+    /** Removes all cached dictionaries, the open segments stay open. */
+    void clear() {
+        cache.invalidateAll();
+        segments.clear();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.Codec;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.index.codec.CodecAliases;
+import org.opensearch.index.codec.CodecSettings;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * ZstdFastCodec provides ZSTD compressor without a dictionary support at negative compression levels, which trade
+ * compression ratio for speeds close to LZ4. The compression level is the negated acceleration factor.
+ */
+public class ZstdFast104Codec extends Lucene104CustomCodec implements CodecSettings, CodecAliases {
+
+    /** The default acceleration factor. */
+    public static final int DEFAULT_ACCELERATION = 1;
+
+    /** Creates a new ZstdFastCodec instance with the default acceleration factor. */
+    public ZstdFast104Codec() {
+        this(DEFAULT_ACCELERATION);
+    }
+
+    /**
+     * Creates a new ZstdFastCodec instance.
+     *
+     * @param acceleration The acceleration factor, higher is faster.
+     */
+    public ZstdFast104Codec(int acceleration) {
+        super(Mode.ZSTD_FAST, -acceleration);
+    }
+
+    /**
+     * Creates a new ZstdFastCodec instance.
+     *
+     * @param acceleration The acceleration factor, higher is faster.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    public ZstdFast104Codec(int acceleration, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_FAST, -acceleration, defaultCodecSupplier);
+    }
+
+    /**
+     * Creates a new ZstdFastCodec instance.
+     *
+     * @param parameters The stored fields parameters.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    ZstdFast104Codec(StoredFieldsParameters parameters, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_FAST, parameters, defaultCodecSupplier);
+    }
+
+    /** The name for this codec. */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public boolean supports(Setting<?> setting) {
+        return setting.equals(INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING)
+            || setting.equals(INDEX_CODEC_SUB_BLOCK_SIZE_SETTING)
+            || setting.equals(INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING);
+    }
+
+    @Override
+    public Set<String> aliases() {
+        return Mode.ZSTD_FAST.getAliases();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.Codec;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.index.codec.CodecAliases;
+import org.opensearch.index.codec.CodecSettings;
+import org.opensearch.index.engine.EngineConfig;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+/**
+ * ZstdHybridCodec picks the cheapest adequate encoding for every stored fields block: raw, LZ4,
+ * or ZSTD with or without a dictionary.
+ */
+public class ZstdHybrid104Codec extends Lucene104CustomCodec implements CodecSettings, CodecAliases {
+
+    /** Creates a new ZstdHybridCodec instance with the default compression level. */
+    public ZstdHybrid104Codec() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new ZstdHybridCodec instance.
+     *
+     * @param compressionLevel The compression level.
+     */
+    public ZstdHybrid104Codec(int compressionLevel) {
+        super(Mode.ZSTD_HYBRID, compressionLevel);
+    }
+
+    /**
+     * Creates a new ZstdHybridCodec instance.
+     *
+     * @param compressionLevel The compression level.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    public ZstdHybrid104Codec(int compressionLevel, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_HYBRID, compressionLevel, defaultCodecSupplier);
+    }
+
+    /**
+     * Creates a new ZstdHybridCodec instance.
+     *
+     * @param parameters The stored fields parameters.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    ZstdHybrid104Codec(StoredFieldsParameters parameters, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_HYBRID, parameters, defaultCodecSupplier);
+    }
+
+    /** The name for this codec. */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public boolean supports(Setting<?> setting) {
+        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_SUB_BLOCK_SIZE_SETTING)
+            || setting.equals(INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING);
+    }
+
+    @Override
+    public Set<String> aliases() {
+        return Mode.ZSTD_HYBRID.getAliases();
+    }
+}
@@ -46,6 +46,16 @@ public class ZstdNoDict104Codec extends Lucene104CustomCodec implements CodecSet
         super(Mode.ZSTD_NO_DICT, compressionLevel, defaultCodecSupplier);
     }
 
+    /**
+     * Creates a new ZstdNoDictCodec instance.
+     *
+     * @param parameters The stored fields parameters.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    ZstdNoDict104Codec(StoredFieldsParameters parameters, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_NO_DICT, parameters, defaultCodecSupplier);
+    }
+
     /** The name for this codec. */
     @Override
     public String toString() {
@@ -54,7 +64,10 @@ public class ZstdNoDict104Codec extends Lucene104CustomCodec implements CodecSet
 
     @Override
     public boolean supports(Setting<?> setting) {
-        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING);
+        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_SUB_BLOCK_SIZE_SETTING)
+            || setting.equals(INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING);
     }
 
     @Override
@@ -18,6 +18,7 @@ import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 
 import java.io.IOException;
 
@@ -29,10 +30,13 @@ public class ZstdNoDictCompressionMode extends CompressionMode {
     private static final int NUM_SUB_BLOCKS = 10;
 
     private final int compressionLevel;
+    private final BlockLayout layout;
+    private final int subBlockLength;
+    private final SubBlockExecutor executor;
 
     /** default constructor */
     protected ZstdNoDictCompressionMode() {
-        this.compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+        this(DEFAULT_COMPRESSION_LEVEL);
     }
 
     /**
@@ -41,31 +45,80 @@ public class ZstdNoDictCompressionMode extends CompressionMode {
      * @param compressionLevel The compression level.
      */
     protected ZstdNoDictCompressionMode(int compressionLevel) {
+        this(compressionLevel, BlockLayout.INTERLEAVED);
+    }
+
+    /**
+     * Creates a new instance with the given compression level and sub-block layout.
+     *
+     * @param compressionLevel The compression level.
+     * @param layout The layout of the sub-blocks.
+     */
+    ZstdNoDictCompressionMode(int compressionLevel, BlockLayout layout) {
+        this(compressionLevel, layout, 0);
+    }
+
+    /**
+     * Creates a new instance with the given compression level, sub-block layout and sub-block length.
+     *
+     * @param compressionLevel The compression level.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, zero splits
+     *                       every block into a fixed number of sub-blocks.
+     */
+    ZstdNoDictCompressionMode(int compressionLevel, BlockLayout layout, int subBlockLength) {
+        this(compressionLevel, layout, subBlockLength, CodecServices.DEFAULT.subBlockExecutor());
+    }
+
+    /**
+     * Creates a new instance that processes the sub-blocks of merges and large reads with the given executor.
+     *
+     * @param compressionLevel The compression level.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, or zero.
+     * @param executor The executor of sub-blocks of the node.
+     */
+    ZstdNoDictCompressionMode(int compressionLevel, BlockLayout layout, int subBlockLength, SubBlockExecutor executor) {
         this.compressionLevel = compressionLevel;
+        this.layout = layout;
+        this.subBlockLength = subBlockLength;
+        this.executor = executor;
     }
 
     /** Creates a new compressor instance. */
     @Override
     public Compressor newCompressor() {
-        return new ZstdCompressor(compressionLevel);
+        return new ZstdCompressor(compressionLevel, layout, subBlockLength, executor.poolForNewCompressor());
     }
 
     /** Creates a new decompressor instance. */
     @Override
     public Decompressor newDecompressor() {
-        return new ZstdDecompressor();
+        return new ZstdDecompressor(layout, executor);
     }
 
     /** zstandard compressor */
     private static final class ZstdCompressor extends Compressor {
 
         private final int compressionLevel;
+        private final BlockLayout layout;
+        private final int subBlockLength;
+        private final SubBlockExecutor.Pool pool;
         private byte[] compressedBuffer;
+        private byte[] uncompressedBuffer;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
 
         /** compressor with a given compresion level */
-        public ZstdCompressor(int compressionLevel) {
+        public ZstdCompressor(int compressionLevel, BlockLayout layout, int subBlockLength, SubBlockExecutor.Pool pool) {
             this.compressionLevel = compressionLevel;
+            this.layout = layout;
+            this.subBlockLength = subBlockLength;
+            this.pool = pool;
             compressedBuffer = BytesRef.EMPTY_BYTES;
+            uncompressedBuffer = BytesRef.EMPTY_BYTES;
+            compressedLengths = new int[NUM_SUB_BLOCKS];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS);
         }
 
         private void compress(byte[] bytes, int offset, int length, DataOutput out) throws IOException {
@@ -103,12 +156,87 @@ public class ZstdNoDictCompressionMode extends CompressionMode {
             }
         }
 
+        private void compressWithOffsetTable(byte[] bytes, int offset, int length, DataOutput out) throws IOException {
+            final int blockLength = OffsetTable.blockLength(length, NUM_SUB_BLOCKS, subBlockLength);
+            out.writeVInt(blockLength);
+
+            // sub-blocks are compressed into a single buffer so that their lengths can be written first
+            final int numSubBlocks = OffsetTable.numSubBlocks(length, blockLength);
+            compressedLengths = ArrayUtil.grow(compressedLengths, numSubBlocks);
+            rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks);
+            rawSubBlocks.clear(0, numSubBlocks);
+            final int compressedLength;
+            if (pool != null && numSubBlocks > 1) {
+                compressedLength = compressSubBlocksInParallel(bytes, offset, length, blockLength, numSubBlocks);
+            } else {
+                compressedLength = compressSubBlocks(bytes, offset, length, blockLength, numSubBlocks);
+            }
+
+            OffsetTable.write(out, layout, compressedLengths, rawSubBlocks, numSubBlocks);
+            out.writeBytes(compressedBuffer, compressedLength);
+        }
+
+        private int compressSubBlocks(byte[] bytes, int offset, int length, int blockLength, int numSubBlocks) {
+            int compressedLength = 0;
+            for (int i = 0; i < numSubBlocks; ++i) {
+                final int start = offset + i * blockLength;
+                final int l = Math.min(blockLength, offset + length - start);
+                compressedBuffer = ArrayUtil.grow(compressedBuffer, compressedLength + (int) Zstd.compressBound(l));
+                compressedLengths[i] = (int) Zstd.compressByteArray(
+                    compressedBuffer,
+                    compressedLength,
+                    compressedBuffer.length - compressedLength,
+                    bytes,
+                    start,
+                    l,
+                    compressionLevel
+                );
+                if (layout.hasRawSubBlocks()
+                    && OffsetTable.storeRaw(bytes, start, l, compressedBuffer, compressedLength, compressedLengths[i])) {
+                    compressedLengths[i] = l;
+                    rawSubBlocks.set(i);
+                }
+                compressedLength += compressedLengths[i];
+            }
+            return compressedLength;
+        }
+
+        private int compressSubBlocksInParallel(byte[] bytes, int offset, int length, int blockLength, int numSubBlocks) {
+            // every sub-block gets a region that fits its compressed bytes, regions are compacted afterwards
+            final int regionLength = (int) Zstd.compressBound(blockLength);
+            compressedBuffer = ArrayUtil.growNoCopy(compressedBuffer, Math.multiplyExact(regionLength, numSubBlocks));
+            final byte[] buffer = compressedBuffer;
+            final int[] lengths = compressedLengths;
+            SubBlockExecutor.run(pool, numSubBlocks, i -> {
+                final int start = offset + i * blockLength;
+                final int l = Math.min(blockLength, offset + length - start);
+                lengths[i] = (int) Zstd.compressByteArray(buffer, i * regionLength, regionLength, bytes, start, l, compressionLevel);
+            });
+            if (layout.hasRawSubBlocks()) {
+                // regions fit the raw bytes too, only the bit set is not safe to update concurrently
+                for (int i = 0; i < numSubBlocks; ++i) {
+                    final int start = offset + i * blockLength;
+                    final int l = Math.min(blockLength, offset + length - start);
+                    if (OffsetTable.storeRaw(bytes, start, l, buffer, i * regionLength, lengths[i])) {
+                        lengths[i] = l;
+                        rawSubBlocks.set(i);
+                    }
+                }
+            }
+            return SubBlockExecutor.compact(buffer, 0, regionLength, lengths, 0, numSubBlocks);
+        }
+
         @Override
         public void compress(ByteBuffersDataInput buffersInput, DataOutput out) throws IOException {
             final int length = (int) buffersInput.length();
-            byte[] bytes = new byte[length];
-            buffersInput.readBytes(bytes, 0, length);
-            compress(bytes, 0, length, out);
+            // the input is copied into a buffer that is retained across blocks instead of a fresh array per block
+            uncompressedBuffer = ArrayUtil.growNoCopy(uncompressedBuffer, length);
+            buffersInput.readBytes(uncompressedBuffer, 0, length);
+            if (layout.hasOffsetTable()) {
+                compressWithOffsetTable(uncompressedBuffer, 0, length, out);
+            } else {
+                compress(uncompressedBuffer, 0, length, out);
+            }
         }
 
         @Override
@@ -118,11 +246,21 @@ public class ZstdNoDictCompressionMode extends CompressionMode {
     /** zstandard decompressor */
     private static final class ZstdDecompressor extends Decompressor {
 
+        private final BlockLayout layout;
+        private final SubBlockExecutor executor;
         private byte[] compressed;
+        private int[] compressedLengths;
+        private int[] subBlockOffsets;
+        private FixedBitSet rawSubBlocks;
 
         /** default decompressor */
-        public ZstdDecompressor() {
+        public ZstdDecompressor(BlockLayout layout, SubBlockExecutor executor) {
+            this.layout = layout;
+            this.executor = executor;
             compressed = BytesRef.EMPTY_BYTES;
+            compressedLengths = new int[NUM_SUB_BLOCKS];
+            subBlockOffsets = new int[NUM_SUB_BLOCKS];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS);
         }
 
         @Override
@@ -134,6 +272,11 @@ public class ZstdNoDictCompressionMode extends CompressionMode {
                 return;
             }
 
+            if (layout.hasOffsetTable()) {
+                decompressWithOffsetTable(in, originalLength, offset, length, bytes);
+                return;
+            }
+
             final int blockLength = in.readVInt();
             bytes.offset = bytes.length = 0;
             int offsetInBlock = 0;
@@ -171,9 +314,88 @@ public class ZstdNoDictCompressionMode extends CompressionMode {
             assert bytes.isValid() : "decompression output is corrupted.";
         }
 
+        private void decompressWithOffsetTable(DataInput in, int originalLength, int offset, int length, BytesRef bytes)
+            throws IOException {
+            final int blockLength = in.readVInt();
+            final int numSubBlocks = OffsetTable.numSubBlocks(originalLength, blockLength);
+            rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks);
+            compressedLengths = OffsetTable.read(in, layout, numSubBlocks, compressedLengths, rawSubBlocks);
+
+            // skip the sub-blocks before the interval at once
+            final int first = offset / blockLength;
+            final int last = (offset + length - 1) / blockLength;
+            in.skipBytes(OffsetTable.sum(compressedLengths, 0, first));
+
+            final int decompressedLength = Math.min(originalLength, (last + 1) * blockLength) - first * blockLength;
+            bytes.bytes = ArrayUtil.growNoCopy(bytes.bytes, decompressedLength);
+            final SubBlockExecutor.Pool pool = last > first ? executor.poolForDecompression(decompressedLength) : null;
+            if (pool != null) {
+                final int compressedLength = OffsetTable.sum(compressedLengths, first, last + 1);
+                compressed = ArrayUtil.growNoCopy(compressed, compressedLength);
+                in.readBytes(compressed, 0, compressedLength);
+                decompressSubBlocksInParallel(pool, originalLength, blockLength, first, last, bytes.bytes);
+            } else {
+                bytes.length = 0;
+                for (int i = first; i <= last; ++i) {
+                    final int l = Math.min(blockLength, originalLength - i * blockLength);
+                    if (rawSubBlocks.get(i)) {
+                        // stored sub-blocks are read straight into the output, e.g. from the mapped file
+                        in.readBytes(bytes.bytes, bytes.length, l);
+                        bytes.length += l;
+                    } else {
+                        compressed = ArrayUtil.growNoCopy(compressed, compressedLengths[i]);
+                        in.readBytes(compressed, 0, compressedLengths[i]);
+                        bytes.length += (int) Zstd.decompressByteArray(bytes.bytes, bytes.length, l, compressed, 0, compressedLengths[i]);
+                    }
+                }
+            }
+
+            bytes.offset = offset - first * blockLength;
+            bytes.length = length;
+
+            assert bytes.isValid() : "decompression output is corrupted.";
+        }
+
+        private void decompressSubBlocksInParallel(
+            SubBlockExecutor.Pool pool,
+            int originalLength,
+            int blockLength,
+            int first,
+            int last,
+            byte[] decompressed
+        ) {
+            // the offsets of the sub-blocks in the compressed and decompressed buffers are known up-front
+            subBlockOffsets = ArrayUtil.growNoCopy(subBlockOffsets, last - first + 1);
+            for (int i = first, compressedOffset = 0; i <= last; ++i) {
+                subBlockOffsets[i - first] = compressedOffset;
+                compressedOffset += compressedLengths[i];
+            }
+            final byte[] compressed = this.compressed;
+            final int[] compressedLengths = this.compressedLengths;
+            final int[] subBlockOffsets = this.subBlockOffsets;
+            final FixedBitSet rawSubBlocks = this.rawSubBlocks;
+            SubBlockExecutor.run(pool, last - first + 1, j -> {
+                final int i = first + j;
+                final int l = Math.min(blockLength, originalLength - i * blockLength);
+                if (rawSubBlocks.get(i)) {
+                    System.arraycopy(compressed, subBlockOffsets[j], decompressed, j * blockLength, l);
+                    return;
+                }
+                final int decompressedLength = (int) Zstd.decompressByteArray(
+                    decompressed,
+                    j * blockLength,
+                    l,
+                    compressed,
+                    subBlockOffsets[j],
+                    compressedLengths[i]
+                );
+                assert decompressedLength == l : "decompression output is corrupted.";
+            });
+        }
+
         @Override
         public Decompressor clone() {
-            return new ZstdDecompressor();
+            return new ZstdDecompressor(layout, executor);
         }
     }
 }
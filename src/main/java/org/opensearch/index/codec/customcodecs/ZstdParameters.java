@@ -0,0 +1,106 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+
+import org.apache.lucene.index.SegmentInfo;
+
+/**
+ * Advanced zstd compression parameters, on top of the compression level. They only change how blocks are compressed,
+ * blocks are decompressed the same way regardless.
+ *
+ * @param longDistanceMatching whether to look for matches further back than the regular match finder does.
+ * @param windowLog the base 2 logarithm of the window size, zero lets zstd pick one for the compression level.
+ *
+ * @opensearch.internal
+ */
+public record ZstdParameters(boolean longDistanceMatching, int windowLog) {
+
+    /** The parameters that zstd picks for the compression level. */
+    public static final ZstdParameters DEFAULT = new ZstdParameters(false, 0);
+
+    /** The largest window log that decompressors accept without raising their limit. */
+    public static final int MAX_WINDOW_LOG = 27;
+
+    /** The smallest window log that zstd accepts. */
+    public static final int MIN_WINDOW_LOG = 10;
+
+    /**
+     * The smallest sub-block length that long distance matching finds matches with that the regular match finder of
+     * compression levels 1 to 6 does not.
+     */
+    public static final int MIN_LONG_DISTANCE_MATCHING_SUB_BLOCK_LENGTH = 256 * 1024;
+
+    static final String LONG_DISTANCE_MATCHING_KEY = Lucene104CustomStoredFieldsFormat.class.getSimpleName() + ".zstdLongDistanceMatching";
+    static final String WINDOW_LOG_KEY = Lucene104CustomStoredFieldsFormat.class.getSimpleName() + ".zstdWindowLog";
+
+    /**
+     * Creates a new instance.
+     */
+    public ZstdParameters {
+        if (windowLog != 0 && (windowLog < MIN_WINDOW_LOG || windowLog > MAX_WINDOW_LOG)) {
+            throw new IllegalArgumentException(
+                "zstd window log must be 0 or between " + MIN_WINDOW_LOG + " and " + MAX_WINDOW_LOG + ", got " + windowLog
+            );
+        }
+    }
+
+    /**
+     * Returns the largest window log that makes a difference when full blocks are compressed with the given sub-block
+     * length, since zstd does not look for matches before the start of the bytes that it compresses.
+     *
+     * @param subBlockLength the target decompressed length of a sub-block, or zero.
+     */
+    static int maxEffectiveWindowLog(int subBlockLength) {
+        final int windowLength = ZstdCompressionMode.windowLength(subBlockLength);
+        return Math.max(MIN_WINDOW_LOG, Integer.SIZE - Integer.numberOfLeadingZeros(windowLength - 1));
+    }
+
+    /**
+     * Applies the parameters to a context, after its compression level was set.
+     *
+     * @param ctx the context.
+     */
+    void apply(ZstdCompressCtx ctx) {
+        if (windowLog != 0) {
+            ctx.setWindowLog(windowLog);
+        }
+        if (longDistanceMatching) {
+            ctx.setEnableLongDistanceMatching(Zstd.ParamSwitch.ENABLE);
+        }
+    }
+
+    /**
+     * Records the parameters in the attributes of a segment, default parameters are not recorded.
+     *
+     * @param si the segment.
+     */
+    void putAttributes(SegmentInfo si) {
+        if (equals(DEFAULT) == false) {
+            si.putAttribute(LONG_DISTANCE_MATCHING_KEY, Boolean.toString(longDistanceMatching));
+            si.putAttribute(WINDOW_LOG_KEY, Integer.toString(windowLog));
+        }
+    }
+
+    /**
+     * Returns the parameters recorded in the attributes of a segment.
+     *
+     * @param si the segment.
+     */
+    static ZstdParameters fromAttributes(SegmentInfo si) {
+        final String longDistanceMatching = si.getAttribute(LONG_DISTANCE_MATCHING_KEY);
+        final String windowLog = si.getAttribute(WINDOW_LOG_KEY);
+        if (longDistanceMatching == null || windowLog == null) {
+            return DEFAULT;
+        }
+        return new ZstdParameters(Boolean.parseBoolean(longDistanceMatching), Integer.parseInt(windowLog));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.Codec;
+import org.opensearch.common.settings.Setting;
+import org.opensearch.index.codec.CodecAliases;
+import org.opensearch.index.codec.CodecSettings;
+import org.opensearch.index.engine.EngineConfig;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+/**
+ * ZstdTrainedDictCodec provides ZSTD compressor with a dictionary that is trained once per segment
+ * and stored next to its stored fields.
+ */
+public class ZstdTrainedDict104Codec extends Lucene104CustomCodec implements CodecSettings, CodecAliases {
+
+    /** Creates a new ZstdTrainedDictCodec instance with the default compression level. */
+    public ZstdTrainedDict104Codec() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new ZstdTrainedDictCodec instance.
+     *
+     * @param compressionLevel The compression level.
+     */
+    public ZstdTrainedDict104Codec(int compressionLevel) {
+        super(Mode.ZSTD_TRAINED_DICT, compressionLevel);
+    }
+
+    /**
+     * Creates a new ZstdTrainedDictCodec instance.
+     *
+     * @param compressionLevel The compression level.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    public ZstdTrainedDict104Codec(int compressionLevel, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_TRAINED_DICT, compressionLevel, defaultCodecSupplier);
+    }
+
+    /**
+     * Creates a new ZstdTrainedDictCodec instance.
+     *
+     * @param parameters The stored fields parameters.
+     * @param defaultCodecSupplier default opensearch codec supplier
+     */
+    ZstdTrainedDict104Codec(StoredFieldsParameters parameters, Supplier<Codec> defaultCodecSupplier) {
+        super(Mode.ZSTD_TRAINED_DICT, parameters, defaultCodecSupplier);
+    }
+
+    /** The name for this codec. */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public boolean supports(Setting<?> setting) {
+        return setting.equals(EngineConfig.INDEX_CODEC_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING)
+            || setting.equals(INDEX_CODEC_SUB_BLOCK_SIZE_SETTING);
+    }
+
+    @Override
+    public Set<String> aliases() {
+        return Mode.ZSTD_TRAINED_DICT.getAliases();
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.store.ByteBuffersDataInput;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * ZSTD compression mode that compresses every block of a segment against a dictionary trained once for that segment.
+ * <p>
+ * The dictionary is stored in a side file next to the stored fields, and has to be written before the first block is
+ * compressed. Merges train it on whole documents, or their first {@link #MAX_SAMPLE_SIZE} bytes, sampled evenly across
+ * the merged segments through {@link #train}, so that it fits every block of large merged segments rather than only the
+ * first ones. Flushes only see the documents of the first block in time, and train on fixed-size samples of that block.
+ * Blocks are split into sub-blocks like in {@link ZstdNoDictCompressionMode}, so a single document can be read without
+ * decompressing the dictionary or the whole block. If training fails, for instance because there are too few samples,
+ * an empty dictionary is stored and blocks are compressed without one.
+ * <p>
+ * Instances are bound to a single segment and are created through {@link #forWriting} and {@link #forReading}. Instances
+ * for reading hold the digested dictionary, which is freed by {@link #close()} once the segment is no longer read.
+ *
+ * @opensearch.internal
+ */
+public final class ZstdTrainedDictCompressionMode extends CompressionMode implements Closeable {
+
+    /** Extension of the side file that holds the dictionary of a segment. */
+    public static final String DICT_EXTENSION = "zdict";
+
+    static final String CODEC_NAME = "ZstdTrainedDict";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    static final int MAX_DICT_SIZE = 16 * 1024;
+    static final int SAMPLE_SIZE = 1024;
+    // zstd recommends about a hundred times the dictionary size of samples
+    static final int MAX_SAMPLES_LENGTH = 100 * MAX_DICT_SIZE;
+    static final int MAX_SAMPLES = 2048;
+    static final int MAX_SAMPLE_SIZE = 8 * 1024;
+    // zstd refuses to train on 10 samples or less
+    private static final int MIN_SAMPLES = 16;
+    private static final int NUM_SUB_BLOCKS = 10;
+
+    private final int compressionLevel;
+    private final BlockLayout layout;
+    private final int subBlockLength;
+    private final Directory directory;
+    private final SegmentInfo segmentInfo;
+    private final IOContext context;
+    private final ZstdDictDecompress dictDecompress;
+    private volatile byte[] dictionary;
+
+    private ZstdTrainedDictCompressionMode(
+        int compressionLevel,
+        BlockLayout layout,
+        int subBlockLength,
+        Directory directory,
+        SegmentInfo segmentInfo,
+        IOContext context,
+        ZstdDictDecompress dictDecompress
+    ) {
+        this.compressionLevel = compressionLevel;
+        this.layout = layout;
+        this.subBlockLength = subBlockLength;
+        this.directory = directory;
+        this.segmentInfo = segmentInfo;
+        this.context = context;
+        this.dictDecompress = dictDecompress;
+    }
+
+    /**
+     * Creates a mode that trains the dictionary of the given segment and compresses its blocks.
+     *
+     * @param compressionLevel The compression level.
+     * @param layout The layout of the sub-blocks.
+     * @param subBlockLength The target decompressed length of a sub-block with the offset table layout, or zero.
+     * @param directory The directory the segment is written to.
+     * @param segmentInfo The segment being written.
+     * @param context The IOContext of the flush or merge.
+     */
+    static ZstdTrainedDictCompressionMode forWriting(
+        int compressionLevel,
+        BlockLayout layout,
+        int subBlockLength,
+        Directory directory,
+        SegmentInfo segmentInfo,
+        IOContext context
+    ) {
+        return new ZstdTrainedDictCompressionMode(compressionLevel, layout, subBlockLength, directory, segmentInfo, context, null);
+    }
+
+    /**
+     * Creates a mode that decompresses the blocks of the given segment, loading its dictionary from the side file.
+     *
+     * @param layout The layout of the sub-blocks.
+     * @param directory The directory the segment is read from.
+     * @param segmentInfo The segment being read.
+     * @param context The IOContext of the reader.
+     */
+    static ZstdTrainedDictCompressionMode forReading(BlockLayout layout, Directory directory, SegmentInfo segmentInfo, IOContext context)
+        throws IOException {
+        final byte[] dictionary = readDictionary(directory, segmentInfo, context);
+        final ZstdDictDecompress dictDecompress = dictionary.length == 0 ? null : new ZstdDictDecompress(dictionary);
+        return new ZstdTrainedDictCompressionMode(0, layout, 0, null, segmentInfo, null, dictDecompress);
+    }
+
+    /** Creates a new compressor instance. */
+    @Override
+    public Compressor newCompressor() {
+        if (directory == null) {
+            throw new IllegalStateException("compression mode of segment " + segmentInfo.name + " was opened for reading");
+        }
+        return new ZstdTrainedDictCompressor(compressionLevel, layout, subBlockLength, directory, segmentInfo, context, () -> dictionary);
+    }
+
+    /** Creates a new decompressor instance. */
+    @Override
+    public Decompressor newDecompressor() {
+        if (directory != null) {
+            throw new IllegalStateException("compression mode of segment " + segmentInfo.name + " was opened for writing");
+        }
+        return new ZstdTrainedDictDecompressor(dictDecompress, layout);
+    }
+
+    /**
+     * Trains the dictionary of a mode for writing on the given samples, rather than on the first block. It must be called
+     * before the first block is compressed, and has no effect if training fails.
+     *
+     * @param samples the samples, such as documents of the segment.
+     */
+    void train(byte[][] samples) {
+        if (directory == null) {
+            throw new IllegalStateException("compression mode of segment " + segmentInfo.name + " was opened for reading");
+        }
+        final byte[] trained = trainDictionary(samples);
+        if (trained.length > 0) {
+            dictionary = trained;
+        }
+    }
+
+    /** Frees the digested dictionary of a mode for reading, its decompressors must no longer be used. */
+    @Override
+    public void close() {
+        if (dictDecompress != null) {
+            dictDecompress.close();
+        }
+    }
+
+    static String dictionaryFileName(SegmentInfo segmentInfo) {
+        return IndexFileNames.segmentFileName(segmentInfo.name, "", DICT_EXTENSION);
+    }
+
+    private static byte[] readDictionary(Directory directory, SegmentInfo segmentInfo, IOContext context) throws IOException {
+        try (ChecksumIndexInput input = directory.openChecksumInput(dictionaryFileName(segmentInfo))) {
+            Throwable priorE = null;
+            byte[] dictionary = BytesRef.EMPTY_BYTES;
+            try {
+                CodecUtil.checkIndexHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT, segmentInfo.getId(), "");
+                final int length = input.readVInt();
+                if (length < 0 || length > MAX_DICT_SIZE) {
+                    throw new IllegalStateException("invalid dictionary length " + length + " for segment: " + segmentInfo.name);
+                }
+                dictionary = new byte[length];
+                input.readBytes(dictionary, 0, length);
+            } catch (Throwable exception) {
+                priorE = exception;
+            } finally {
+                CodecUtil.checkFooter(input, priorE);
+            }
+            return dictionary;
+        }
+    }
+
+    /**
+     * Trains a dictionary on fixed-size samples of the given bytes.
+     *
+     * @return the dictionary, or an empty array if there is not enough data or training failed.
+     */
+    static byte[] trainDictionary(byte[] bytes, int offset, int length) {
+        final int numSamples = length / SAMPLE_SIZE;
+        final byte[][] samples = new byte[numSamples][];
+        for (int i = 0; i < numSamples; ++i) {
+            final int start = offset + i * SAMPLE_SIZE;
+            samples[i] = ArrayUtil.copyOfSubArray(bytes, start, start + SAMPLE_SIZE);
+        }
+        return trainDictionary(samples);
+    }
+
+    /**
+     * Trains a dictionary on the given samples.
+     *
+     * @return the dictionary, or an empty array if there are too few samples or training failed.
+     */
+    static byte[] trainDictionary(byte[][] samples) {
+        if (samples.length < MIN_SAMPLES) {
+            return BytesRef.EMPTY_BYTES;
+        }
+        final byte[] dictBuffer = new byte[MAX_DICT_SIZE];
+        try {
+            final long dictLength = Zstd.trainFromBuffer(samples, dictBuffer);
+            if (Zstd.isError(dictLength)) {
+                return BytesRef.EMPTY_BYTES;
+            }
+            return ArrayUtil.copyOfSubArray(dictBuffer, 0, (int) dictLength);
+        } catch (ZstdException e) {
+            return BytesRef.EMPTY_BYTES;
+        }
+    }
+
+    /** zstandard compressor that writes the segment dictionary before its first block, training it on that block if needed */
+    private static final class ZstdTrainedDictCompressor extends Compressor {
+
+        private final int compressionLevel;
+        private final BlockLayout layout;
+        private final int subBlockLength;
+        private final Directory directory;
+        private final SegmentInfo segmentInfo;
+        private final IOContext context;
+        private final Supplier<byte[]> dictionary;
+        private byte[] compressedBuffer;
+        private byte[] uncompressedBuffer;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
+        private ZstdCompressCtx cctx;
+        private ZstdDictCompress dictCompress;
+        private boolean trained;
+
+        ZstdTrainedDictCompressor(
+            int compressionLevel,
+            BlockLayout layout,
+            int subBlockLength,
+            Directory directory,
+            SegmentInfo segmentInfo,
+            IOContext context,
+            Supplier<byte[]> dictionary
+        ) {
+            this.compressionLevel = compressionLevel;
+            this.layout = layout;
+            this.subBlockLength = subBlockLength;
+            this.directory = directory;
+            this.segmentInfo = segmentInfo;
+            this.context = context;
+            this.dictionary = dictionary;
+            compressedBuffer = BytesRef.EMPTY_BYTES;
+            uncompressedBuffer = BytesRef.EMPTY_BYTES;
+            compressedLengths = new int[NUM_SUB_BLOCKS];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS);
+        }
+
+        private void writeDictionary(byte[] bytes, int offset, int length) throws IOException {
+            final byte[] sampled = this.dictionary.get();
+            final byte[] dictionary = sampled != null ? sampled : trainDictionary(bytes, offset, length);
+            try (IndexOutput output = directory.createOutput(dictionaryFileName(segmentInfo), context)) {
+                CodecUtil.writeIndexHeader(output, CODEC_NAME, VERSION_CURRENT, segmentInfo.getId(), "");
+                output.writeVInt(dictionary.length);
+                output.writeBytes(dictionary, dictionary.length);
+                CodecUtil.writeFooter(output);
+            }
+            if (dictionary.length > 0) {
+                dictCompress = new ZstdDictCompress(dictionary, compressionLevel);
+            }
+            trained = true;
+        }
+
+        private ZstdCompressCtx compressCtx() {
+            if (cctx == null) {
+                cctx = new ZstdCompressCtx();
+            } else {
+                cctx.reset();
+            }
+            cctx.setLevel(compressionLevel);
+            if (dictCompress != null) {
+                cctx.loadDict(dictCompress);
+            }
+            return cctx;
+        }
+
+        private void compress(byte[] bytes, int offset, int length, DataOutput out) throws IOException {
+            assert offset >= 0 : "offset value must be greater than 0";
+
+            if (trained == false) {
+                writeDictionary(bytes, offset, length);
+            }
+
+            int blockLength = layout.hasOffsetTable()
+                ? OffsetTable.blockLength(length, NUM_SUB_BLOCKS, subBlockLength)
+                : (length + NUM_SUB_BLOCKS - 1) / NUM_SUB_BLOCKS;
+            out.writeVInt(blockLength);
+
+            final int end = offset + length;
+            assert end >= 0 : "buffer read size must be greater than 0";
+
+            final ZstdCompressCtx cctx = compressCtx();
+            if (layout.hasOffsetTable()) {
+                // sub-blocks are compressed into a single buffer so that their lengths can be written first
+                final int numSubBlocks = OffsetTable.numSubBlocks(length, blockLength);
+                compressedLengths = ArrayUtil.grow(compressedLengths, numSubBlocks);
+                rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks);
+                rawSubBlocks.clear(0, numSubBlocks);
+                int compressedLength = 0;
+                for (int i = 0; i < numSubBlocks; ++i) {
+                    final int start = offset + i * blockLength;
+                    final int l = Math.min(blockLength, end - start);
+                    compressedBuffer = ArrayUtil.grow(compressedBuffer, compressedLength + (int) Zstd.compressBound(l));
+                    compressedLengths[i] = cctx.compressByteArray(
+                        compressedBuffer,
+                        compressedLength,
+                        compressedBuffer.length - compressedLength,
+                        bytes,
+                        start,
+                        l
+                    );
+                    if (layout.hasRawSubBlocks()
+                        && OffsetTable.storeRaw(bytes, start, l, compressedBuffer, compressedLength, compressedLengths[i])) {
+                        compressedLengths[i] = l;
+                        rawSubBlocks.set(i);
+                    }
+                    compressedLength += compressedLengths[i];
+                }
+                OffsetTable.write(out, layout, compressedLengths, rawSubBlocks, numSubBlocks);
+                out.writeBytes(compressedBuffer, compressedLength);
+                return;
+            }
+            for (int start = offset; start < end; start += blockLength) {
+                int l = Math.min(blockLength, end - start);
+
+                final int maxCompressedLength = (int) Zstd.compressBound(l);
+                compressedBuffer = ArrayUtil.growNoCopy(compressedBuffer, maxCompressedLength);
+
+                int compressedSize = cctx.compressByteArray(compressedBuffer, 0, compressedBuffer.length, bytes, start, l);
+
+                out.writeVInt(compressedSize);
+                out.writeBytes(compressedBuffer, compressedSize);
+            }
+        }
+
+        @Override
+        public void compress(ByteBuffersDataInput buffersInput, DataOutput out) throws IOException {
+            final int length = (int) buffersInput.length();
+            uncompressedBuffer = ArrayUtil.growNoCopy(uncompressedBuffer, length);
+            buffersInput.readBytes(uncompressedBuffer, 0, length);
+            compress(uncompressedBuffer, 0, length, out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cctx != null) {
+                cctx.close();
+                cctx = null;
+            }
+            if (dictCompress != null) {
+                dictCompress.close();
+                dictCompress = null;
+            }
+        }
+    }
+
+    /** zstandard decompressor that uses the dictionary of the segment */
+    private static final class ZstdTrainedDictDecompressor extends Decompressor {
+
+        private final ZstdDictDecompress dictDecompress;
+        private final BlockLayout layout;
+        private byte[] compressed;
+        private int[] compressedLengths;
+        private FixedBitSet rawSubBlocks;
+
+        ZstdTrainedDictDecompressor(ZstdDictDecompress dictDecompress, BlockLayout layout) {
+            this.dictDecompress = dictDecompress;
+            this.layout = layout;
+            compressed = BytesRef.EMPTY_BYTES;
+            compressedLengths = new int[NUM_SUB_BLOCKS];
+            rawSubBlocks = new FixedBitSet(NUM_SUB_BLOCKS);
+        }
+
+        @Override
+        public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
+            assert offset + length <= originalLength : "buffer read size must be within limit";
+
+            if (length == 0) {
+                bytes.length = 0;
+                return;
+            }
+
+            if (layout.hasOffsetTable()) {
+                decompressWithOffsetTable(in, originalLength, offset, length, bytes);
+                return;
+            }
+
+            final int blockLength = in.readVInt();
+            bytes.offset = bytes.length = 0;
+            int offsetInBlock = 0;
+            int offsetInBytesRef = offset;
+
+            // Skip unneeded blocks
+            while (offsetInBlock + blockLength < offset) {
+                final int compressedLength = in.readVInt();
+                in.skipBytes(compressedLength);
+                offsetInBlock += blockLength;
+                offsetInBytesRef -= blockLength;
+            }
+
+            final ZstdDecompressCtx dctx = ZstdDecompressCtxPool.INSTANCE.acquire();
+            try {
+                if (dictDecompress != null) {
+                    dctx.loadDict(dictDecompress);
+                }
+
+                // Read blocks that intersect with the interval we need
+                while (offsetInBlock < offset + length) {
+                    final int compressedLength = in.readVInt();
+                    compressed = ArrayUtil.growNoCopy(compressed, compressedLength);
+                    in.readBytes(compressed, 0, compressedLength);
+
+                    final int l = Math.min(blockLength, originalLength - offsetInBlock);
+                    bytes.bytes = ArrayUtil.grow(bytes.bytes, bytes.length + l);
+
+                    final int uncompressed = dctx.decompressByteArray(bytes.bytes, bytes.length, l, compressed, 0, compressedLength);
+                    if (uncompressed != l) {
+                        throw new IllegalStateException(l + " " + uncompressed);
+                    }
+
+                    bytes.length += uncompressed;
+                    offsetInBlock += blockLength;
+                }
+            } finally {
+                ZstdDecompressCtxPool.INSTANCE.release(dctx);
+            }
+
+            bytes.offset = offsetInBytesRef;
+            bytes.length = length;
+
+            assert bytes.isValid() : "decompression output is corrupted.";
+        }
+
+        private void decompressWithOffsetTable(DataInput in, int originalLength, int offset, int length, BytesRef bytes)
+            throws IOException {
+            final int blockLength = in.readVInt();
+            final int numSubBlocks = OffsetTable.numSubBlocks(originalLength, blockLength);
+            rawSubBlocks = FixedBitSet.ensureCapacity(rawSubBlocks, numSubBlocks);
+            compressedLengths = OffsetTable.read(in, layout, numSubBlocks, compressedLengths, rawSubBlocks);
+
+            // skip the sub-blocks before the interval at once
+            final int first = offset / blockLength;
+            final int last = (offset + length - 1) / blockLength;
+            in.skipBytes(OffsetTable.sum(compressedLengths, 0, first));
+
+            bytes.bytes = ArrayUtil.growNoCopy(bytes.bytes, Math.min(originalLength, (last + 1) * blockLength) - first * blockLength);
+            bytes.length = 0;
+            final ZstdDecompressCtx dctx = ZstdDecompressCtxPool.INSTANCE.acquire();
+            try {
+                if (dictDecompress != null) {
+                    dctx.loadDict(dictDecompress);
+                }
+
+                for (int i = first; i <= last; ++i) {
+                    final int l = Math.min(blockLength, originalLength - i * blockLength);
+                    if (rawSubBlocks.get(i)) {
+                        // stored sub-blocks are read straight into the output, e.g. from the mapped file
+                        in.readBytes(bytes.bytes, bytes.length, l);
+                        bytes.length += l;
+                        continue;
+                    }
+                    compressed = ArrayUtil.growNoCopy(compressed, compressedLengths[i]);
+                    in.readBytes(compressed, 0, compressedLengths[i]);
+                    final int uncompressed = dctx.decompressByteArray(bytes.bytes, bytes.length, l, compressed, 0, compressedLengths[i]);
+                    if (uncompressed != l) {
+                        throw new IllegalStateException(l + " " + uncompressed);
+                    }
+                    bytes.length += uncompressed;
+                }
+            } finally {
+                ZstdDecompressCtxPool.INSTANCE.release(dctx);
+            }
+
+            bytes.offset = offset - first * blockLength;
+            bytes.length = length;
+
+            assert bytes.isValid() : "decompression output is corrupted.";
+        }
+
+        @Override
+        public Decompressor clone() {
+            return new ZstdTrainedDictDecompressor(dictDecompress, layout);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.StoredFieldsFormat;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.codecs.StoredFieldsWriter;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.lucene90.compressing.Lucene90CompressingStoredFieldsFormat;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.MergeState;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.StoredFieldDataInput;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomStoredFieldsFormat.ZSTD_BLOCK_LENGTH;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomStoredFieldsFormat.ZSTD_BLOCK_SHIFT;
+import static org.opensearch.index.codec.customcodecs.Lucene104CustomStoredFieldsFormat.ZSTD_MAX_DOCS_PER_BLOCK;
+
+/**
+ * Stored fields format that compresses each segment against its own trained dictionary, see
+ * {@link ZstdTrainedDictCompressionMode}. The compression mode is bound to a segment, so a new one is created for every
+ * reader and writer. This also means that merges never copy compressed chunks as-is, which would be wrong since the
+ * chunks of every segment are compressed with a different dictionary. Merges train the dictionary of the new segment on
+ * documents sampled across the merged segments before writing it. Readers free the dictionary of their segment when they
+ * are closed.
+ *
+ * @opensearch.internal
+ */
+final class ZstdTrainedDictStoredFieldsFormat extends StoredFieldsFormat {
+
+    static final String FORMAT_NAME = "CustomStoredFieldsZstdTrainedDict";
+
+    private final int compressionLevel;
+    private final BlockLayout layout;
+    private final int subBlockLength;
+    private final StoredFieldsBlockCache blockCache;
+
+    ZstdTrainedDictStoredFieldsFormat(int compressionLevel, BlockLayout layout, int subBlockLength, StoredFieldsBlockCache blockCache) {
+        this.compressionLevel = compressionLevel;
+        this.layout = layout;
+        this.subBlockLength = subBlockLength;
+        this.blockCache = blockCache;
+    }
+
+    @Override
+    public StoredFieldsReader fieldsReader(Directory directory, SegmentInfo si, FieldInfos fn, IOContext context) throws IOException {
+        final ZstdTrainedDictCompressionMode compressionMode = ZstdTrainedDictCompressionMode.forReading(layout, directory, si, context);
+        boolean success = false;
+        try {
+            final StoredFieldsReader reader = format(compressionMode).fieldsReader(directory, si, fn, context);
+            success = true;
+            return new DictionaryClosingStoredFieldsReader(reader, compressionMode);
+        } finally {
+            if (success == false) {
+                compressionMode.close();
+            }
+        }
+    }
+
+    @Override
+    public StoredFieldsWriter fieldsWriter(Directory directory, SegmentInfo si, IOContext context) throws IOException {
+        final ZstdTrainedDictCompressionMode compressionMode = ZstdTrainedDictCompressionMode.forWriting(
+            compressionLevel,
+            layout,
+            subBlockLength,
+            directory,
+            si,
+            context
+        );
+        return new DictionaryTrainingStoredFieldsWriter(format(compressionMode).fieldsWriter(directory, si, context), compressionMode);
+    }
+
+    private StoredFieldsFormat format(CompressionMode compressionMode) {
+        return new Lucene90CompressingStoredFieldsFormat(
+            FORMAT_NAME + layout.getFormatSuffix(),
+            new BlockCachingCompressionMode(blockCache, compressionMode),
+            ZSTD_BLOCK_LENGTH,
+            ZSTD_MAX_DOCS_PER_BLOCK,
+            ZSTD_BLOCK_SHIFT
+        );
+    }
+
+    /**
+     * Samples documents evenly across the segments of a merge, skipping deleted ones. Every document is serialized like
+     * the stored fields writer does, up to {@link ZstdTrainedDictCompressionMode#MAX_SAMPLE_SIZE} bytes.
+     */
+    static byte[][] sampleDocuments(MergeState mergeState) throws IOException {
+        long numDocs = 0;
+        for (int maxDoc : mergeState.maxDocs) {
+            numDocs += maxDoc;
+        }
+        final long stride = Math.max(
+            1,
+            (numDocs + ZstdTrainedDictCompressionMode.MAX_SAMPLES - 1) / ZstdTrainedDictCompressionMode.MAX_SAMPLES
+        );
+        final List<byte[]> samples = new ArrayList<>();
+        final SamplingVisitor visitor = new SamplingVisitor();
+        long samplesLength = 0;
+        long next = 0;
+        long docBase = 0;
+        for (int i = 0; i < mergeState.maxDocs.length && samplesLength < ZstdTrainedDictCompressionMode.MAX_SAMPLES_LENGTH; ++i) {
+            final StoredFieldsReader reader = mergeState.storedFieldsReaders[i];
+            final Bits liveDocs = mergeState.liveDocs[i];
+            for (long doc = next - docBase; doc < mergeState.maxDocs[i]; doc += stride) {
+                next = docBase + doc + stride;
+                if (reader == null || (liveDocs != null && liveDocs.get((int) doc) == false)) {
+                    continue;
+                }
+                visitor.out.reset();
+                reader.document((int) doc, visitor);
+                final byte[] sample = visitor.out.toArrayCopy();
+                if (sample.length > 0) {
+                    samples.add(sample);
+                    samplesLength += sample.length;
+                    if (samplesLength >= ZstdTrainedDictCompressionMode.MAX_SAMPLES_LENGTH) {
+                        break;
+                    }
+                }
+            }
+            docBase += mergeState.maxDocs[i];
+        }
+        return samples.toArray(new byte[0][]);
+    }
+
+    /** visitor that serializes the fields of a document, until the sample is full */
+    private static final class SamplingVisitor extends StoredFieldVisitor {
+
+        private final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            return out.size() < ZstdTrainedDictCompressionMode.MAX_SAMPLE_SIZE ? Status.YES : Status.STOP;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+            out.writeVInt(fieldInfo.number);
+            final int length = (int) Math.min(value.length, ZstdTrainedDictCompressionMode.MAX_SAMPLE_SIZE - out.size());
+            out.writeVInt(value.length);
+            out.writeBytes(value, 0, Math.max(0, length));
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, String value) throws IOException {
+            binaryField(fieldInfo, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void intField(FieldInfo fieldInfo, int value) throws IOException {
+            out.writeVInt(fieldInfo.number);
+            out.writeZInt(value);
+        }
+
+        @Override
+        public void longField(FieldInfo fieldInfo, long value) throws IOException {
+            out.writeVInt(fieldInfo.number);
+            out.writeZLong(value);
+        }
+
+        @Override
+        public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+            out.writeVInt(fieldInfo.number);
+            out.writeInt(Float.floatToIntBits(value));
+        }
+
+        @Override
+        public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+            out.writeVInt(fieldInfo.number);
+            out.writeLong(Double.doubleToLongBits(value));
+        }
+    }
+
+    /** writer that trains the dictionary of merged segments on their documents before writing them */
+    private static final class DictionaryTrainingStoredFieldsWriter extends StoredFieldsWriter {
+
+        private final StoredFieldsWriter delegate;
+        private final ZstdTrainedDictCompressionMode compressionMode;
+
+        DictionaryTrainingStoredFieldsWriter(StoredFieldsWriter delegate, ZstdTrainedDictCompressionMode compressionMode) {
+            this.delegate = delegate;
+            this.compressionMode = compressionMode;
+        }
+
+        @Override
+        public int merge(MergeState mergeState) throws IOException {
+            compressionMode.train(sampleDocuments(mergeState));
+            return delegate.merge(mergeState);
+        }
+
+        @Override
+        public void startDocument() throws IOException {
+            delegate.startDocument();
+        }
+
+        @Override
+        public void finishDocument() throws IOException {
+            delegate.finishDocument();
+        }
+
+        @Override
+        public void writeField(FieldInfo info, int value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, long value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, float value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, double value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, StoredFieldDataInput value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, BytesRef value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void writeField(FieldInfo info, String value) throws IOException {
+            delegate.writeField(info, value);
+        }
+
+        @Override
+        public void finish(int numDocs) throws IOException {
+            delegate.finish(numDocs);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return delegate.ramBytesUsed();
+        }
+    }
+
+    /** reader that frees the dictionary of the segment on close, clones and merge instances are never closed */
+    private static final class DictionaryClosingStoredFieldsReader extends StoredFieldsReader {
+
+        private final StoredFieldsReader delegate;
+        private final ZstdTrainedDictCompressionMode compressionMode;
+
+        DictionaryClosingStoredFieldsReader(StoredFieldsReader delegate, ZstdTrainedDictCompressionMode compressionMode) {
+            this.delegate = delegate;
+            this.compressionMode = compressionMode;
+        }
+
+        @Override
+        public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+            delegate.document(docID, visitor);
+        }
+
+        @Override
+        public void prefetch(int docID) throws IOException {
+            delegate.prefetch(docID);
+        }
+
+        @Override
+        public StoredFieldsReader clone() {
+            return delegate.clone();
+        }
+
+        @Override
+        public StoredFieldsReader getMergeInstance() {
+            return delegate.getMergeInstance();
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            delegate.checkIntegrity();
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(delegate, compressionMode);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(" + delegate + ")";
+        }
+    }
+}
@@ -12,7 +12,6 @@ import org.apache.lucene.codecs.Codec;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.index.codec.CodecAliases;
 import org.opensearch.index.codec.CodecSettings;
-import org.opensearch.index.codec.customcodecs.QatZipperFactory;
 import org.opensearch.index.engine.EngineConfig;
 
 import java.util.Set;
@@ -86,9 +85,6 @@ public class QatZstd101Codec extends Lucene101QatCodec implements CodecSettings,
 
     @Override
     public Set<String> aliases() {
-        if (!QatZipperFactory.isQatAvailable()) {
-            return Set.of();
-        }
         return Mode.QAT_ZSTD.getAliases();
     }
 }
@@ -109,7 +109,7 @@ public class Lucene103QatStoredFieldsFormat extends StoredFieldsFormat {
         if (si.getAttribute(MODE_KEY) != null) {
             String value = si.getAttribute(MODE_KEY);
             Lucene103QatCodec.Mode mode = Lucene103QatCodec.Mode.valueOf(value);
-            return impl(mode).fieldsReader(directory, si, fn, context);
+            return QatCompressionMode.withMergePolling(impl(mode).fieldsReader(directory, si, fn, context));
         } else {
             throw new IllegalStateException("missing value for " + MODE_KEY + " for segment: " + si.name);
         }
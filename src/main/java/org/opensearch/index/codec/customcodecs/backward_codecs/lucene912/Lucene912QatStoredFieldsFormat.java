@@ -105,7 +105,7 @@ public class Lucene912QatStoredFieldsFormat extends StoredFieldsFormat {
         if (si.getAttribute(MODE_KEY) != null) {
             String value = si.getAttribute(MODE_KEY);
             Lucene912QatCodec.Mode mode = Lucene912QatCodec.Mode.valueOf(value);
-            return impl(mode).fieldsReader(directory, si, fn, context);
+            return QatCompressionMode.withMergePolling(impl(mode).fieldsReader(directory, si, fn, context));
         } else {
             throw new IllegalStateException("missing value for " + MODE_KEY + " for segment: " + si.name);
         }
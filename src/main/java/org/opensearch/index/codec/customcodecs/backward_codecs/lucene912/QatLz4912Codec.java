@@ -11,7 +11,6 @@ package org.opensearch.index.codec.customcodecs.backward_codecs.lucene912;
 import org.opensearch.common.settings.Setting;
 import org.opensearch.index.codec.CodecAliases;
 import org.opensearch.index.codec.CodecSettings;
-import org.opensearch.index.codec.customcodecs.QatZipperFactory;
 import org.opensearch.index.engine.EngineConfig;
 
 import java.util.Set;
@@ -64,9 +63,6 @@ public class QatLz4912Codec extends Lucene912QatCodec implements CodecSettings,
 
     @Override
     public Set<String> aliases() {
-        if (!QatZipperFactory.isQatAvailable()) {
-            return Set.of();
-        }
         return Mode.QAT_LZ4.getAliases();
     }
 }
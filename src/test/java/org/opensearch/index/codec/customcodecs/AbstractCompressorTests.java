@@ -22,6 +22,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -214,5 +215,18 @@ public abstract class AbstractCompressorTests extends OpenSearchTestCase {
         System.arraycopy(outbytes.bytes, 0, restored, 0, outbytes.length);
 
         assertArrayEquals(bytes, restored);
+
+        // and decompress a random slice, which skips the sub-blocks before it
+        if (length > 0) {
+            final int offset = random().nextInt(length);
+            final int sliceLength = TestUtil.nextInt(random(), 1, length - offset);
+            BytesRef slice = new BytesRef();
+            decompressor.decompress(new ByteArrayDataInput(compressed), length, offset, sliceLength, slice);
+            assertEquals(sliceLength, slice.length);
+            assertArrayEquals(
+                Arrays.copyOfRange(bytes, offset, offset + sliceLength),
+                Arrays.copyOfRange(slice.bytes, slice.offset, slice.offset + slice.length)
+            );
+        }
     }
 }
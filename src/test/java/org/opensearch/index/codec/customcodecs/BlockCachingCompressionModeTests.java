@@ -0,0 +1,121 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteBuffersDataInput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressCodecs("*")
+public class BlockCachingCompressionModeTests extends OpenSearchTestCase {
+
+    public void testKeepsBlockThatIsReadAgain() throws IOException {
+        final CountingCompressionMode counting = new CountingCompressionMode(CompressionMode.FAST);
+        final BlockCachingCompressionMode mode = new BlockCachingCompressionMode(new StoredFieldsBlockCache(0), counting);
+        final byte[] first = randomByteArrayOfLength(randomIntBetween(100, 10000));
+        final byte[] second = randomByteArrayOfLength(randomIntBetween(100, 10000));
+
+        try (Directory dir = newDirectory()) {
+            final long secondOffset;
+            final long end;
+            try (IndexOutput out = dir.createOutput("blocks", IOContext.DEFAULT); Compressor compressor = mode.newCompressor()) {
+                compressor.compress(new ByteBuffersDataInput(List.of(ByteBuffer.wrap(first))), out);
+                secondOffset = out.getFilePointer();
+                compressor.compress(new ByteBuffersDataInput(List.of(ByteBuffer.wrap(second))), out);
+                end = out.getFilePointer();
+            }
+
+            try (IndexInput in = dir.openInput("blocks", IOContext.DEFAULT)) {
+                final Decompressor decompressor = mode.newDecompressor().clone();
+                // the first read of a block only decompresses what it needs
+                assertSlice(decompressor, in, 0, first, 10, 20);
+                assertEquals(List.of("10+20"), counting.calls);
+                // the second read decompresses the block in full, later reads are served from the kept block
+                assertSlice(decompressor, in, 0, first, 50, 30);
+                assertSlice(decompressor, in, 0, first, 0, first.length);
+                assertEquals(secondOffset, in.getFilePointer());
+                assertEquals(List.of("10+20", "0+" + first.length), counting.calls);
+
+                // other instances do not share the kept block
+                assertSlice(decompressor.clone(), in, 0, first, 5, 5);
+                assertEquals(List.of("10+20", "0+" + first.length, "5+5"), counting.calls);
+
+                counting.calls.clear();
+                assertSlice(decompressor, in, secondOffset, second, 1, 2);
+                assertSlice(decompressor, in, secondOffset, second, 3, 4);
+                assertSlice(decompressor, in, secondOffset, second, 7, 8);
+                assertEquals(end, in.getFilePointer());
+                assertEquals(List.of("1+2", "0+" + second.length), counting.calls);
+            }
+        }
+    }
+
+    private static void assertSlice(Decompressor decompressor, IndexInput in, long blockOffset, byte[] block, int offset, int length)
+        throws IOException {
+        in.seek(blockOffset);
+        final BytesRef bytes = new BytesRef();
+        decompressor.decompress(in, block.length, offset, length, bytes);
+        assertEquals(new BytesRef(block, offset, length), bytes);
+    }
+
+    /** records the slices that blocks are decompressed into */
+    private static final class CountingCompressionMode extends CompressionMode {
+
+        private final CompressionMode delegate;
+        private final List<String> calls = new ArrayList<>();
+
+        CountingCompressionMode(CompressionMode delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Compressor newCompressor() {
+            return delegate.newCompressor();
+        }
+
+        @Override
+        public Decompressor newDecompressor() {
+            return new CountingDecompressor(delegate.newDecompressor());
+        }
+
+        private final class CountingDecompressor extends Decompressor {
+
+            private final Decompressor delegate;
+
+            CountingDecompressor(Decompressor delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
+                calls.add(offset + "+" + length);
+                delegate.decompress(in, originalLength, offset, length, bytes);
+            }
+
+            @Override
+            public Decompressor clone() {
+                return new CountingDecompressor(delegate.clone());
+            }
+        }
+    }
+}
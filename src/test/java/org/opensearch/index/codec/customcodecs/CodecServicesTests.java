@@ -0,0 +1,66 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@SuppressCodecs("*")
+public class CodecServicesTests extends OpenSearchTestCase {
+
+    public void testResolvesServicesOfNodeByDataPath() throws IOException {
+        final Path first = createTempDir();
+        final Path second = createTempDir();
+        final CodecServices firstNode = CodecServices.forNode(Settings.EMPTY, null, new Path[] { first });
+        final CodecServices secondNode = CodecServices.forNode(
+            Settings.builder().put(StoredFieldsBlockCache.BLOCK_CACHE_SIZE_SETTING.getKey(), "1mb").build(),
+            null,
+            new Path[] { second }
+        );
+        try {
+            assertNotSame(firstNode.blockCache(), secondNode.blockCache());
+            assertNotSame(firstNode.subBlockExecutor(), secondNode.subBlockExecutor());
+            assertNotSame(firstNode.qatCircuitBreaker(), secondNode.qatCircuitBreaker());
+            assertFalse(firstNode.blockCache().isEnabled());
+            assertTrue(secondNode.blockCache().isEnabled());
+
+            try (Directory dir = FSDirectory.open(Files.createDirectories(first.resolve("indices").resolve("0")))) {
+                assertSame(firstNode, CodecServices.of(dir));
+            }
+            try (Directory dir = FSDirectory.open(second)) {
+                assertSame(secondNode, CodecServices.of(dir));
+            }
+            try (Directory dir = FSDirectory.open(createTempDir())) {
+                assertSame(CodecServices.DEFAULT, CodecServices.of(dir));
+            }
+            try (Directory dir = newDirectory()) {
+                assertSame(CodecServices.DEFAULT, CodecServices.of(dir));
+            }
+
+            // closing a node leaves the other nodes of the JVM alone
+            firstNode.close();
+            try (Directory dir = FSDirectory.open(first)) {
+                assertSame(CodecServices.DEFAULT, CodecServices.of(dir));
+            }
+            try (Directory dir = FSDirectory.open(second)) {
+                assertSame(secondNode, CodecServices.of(dir));
+            }
+        } finally {
+            firstNode.close();
+            secondNode.close();
+        }
+    }
+}
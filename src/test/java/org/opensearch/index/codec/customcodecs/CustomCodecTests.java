@@ -37,6 +37,7 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.lucene104.Lucene104Codec;
 import org.apache.lucene.codecs.lucene90.Lucene90StoredFieldsFormat;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -45,9 +46,11 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
 import org.opensearch.common.settings.IndexScopedSettings;
 import org.opensearch.common.settings.Settings;
+import org.opensearch.core.common.unit.ByteSizeValue;
 import org.opensearch.env.Environment;
 import org.opensearch.index.IndexSettings;
 import org.opensearch.index.analysis.IndexAnalyzers;
+import org.opensearch.index.codec.CodecAliases;
 import org.opensearch.index.codec.CodecService;
 import org.opensearch.index.codec.CodecSettings;
 import org.opensearch.index.codec.composite.composite912.Composite912DocValuesFormat;
@@ -63,6 +66,7 @@ import org.junit.Before;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.mockito.Mockito;
 
@@ -81,7 +85,7 @@ public class CustomCodecTests extends OpenSearchTestCase {
 
     @Before
     public void setup() {
-        plugin = new CustomCodecPlugin();
+        plugin = new CustomCodecPlugin(Settings.EMPTY);
     }
 
     public void testZstd() throws Exception {
@@ -116,6 +120,163 @@ public class CustomCodecTests extends OpenSearchTestCase {
         assert codec.docValuesFormat() instanceof Composite912DocValuesFormat;
     }
 
+    public void testZstdTrainedDict() throws Exception {
+        Codec codec = createCodecService(false).codec("zstd_trained_dict");
+        assertStoredFieldsCompressionEquals(Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT, codec);
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(DEFAULT_COMPRESSION_LEVEL, storedFieldsFormat.getCompressionLevel());
+    }
+
+    public void testZstdWithMergeParameters() throws Exception {
+        final boolean longDistanceMatching = randomBoolean();
+        final int subBlockSize = randomIntBetween(256, 1024) * 1024;
+        final int windowLog = randomIntBetween(ZstdParameters.MIN_WINDOW_LOG, ZstdParameters.maxEffectiveWindowLog(subBlockSize));
+        Settings nodeSettings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .put("index.codec", "zstd")
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), subBlockSize + "b")
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING.getKey(), longDistanceMatching)
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.getKey(), windowLog)
+            .build();
+        Codec codec = buildCodecService(nodeSettings).codec("zstd");
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(new ZstdParameters(longDistanceMatching, windowLog), storedFieldsFormat.getMergeParameters());
+        assertTrue(((CodecSettings) codec).supports(Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING));
+        assertTrue(((CodecSettings) codec).supports(Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING));
+    }
+
+    public void testZstdParametersAreValidatedPerCodec() {
+        final String codecName = randomFrom("zstd_no_dict", "zstd_trained_dict", "zstd_hybrid", "zstd_fast", "default", "best_compression");
+        final Settings longDistanceMatching = Settings.builder()
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING.getKey(), true)
+            .build();
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING.get(longDistanceMatching)
+        );
+        assertEquals("[index.codec.zstd.long_distance_matching] cannot be set for the " + codecName + " codec.", e.getMessage());
+
+        final Settings windowLog = Settings.builder()
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.getKey(), 20)
+            .build();
+        expectThrows(IllegalArgumentException.class, () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.get(windowLog));
+
+        final Settings tooSmallWindowLog = Settings.builder()
+            .put("index.codec", "zstd")
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.getKey(), ZstdParameters.MIN_WINDOW_LOG - 1)
+            .build();
+        expectThrows(IllegalArgumentException.class, () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.get(tooSmallWindowLog));
+    }
+
+    public void testZstdParametersWithoutEffectAreRejected() {
+        assertEquals(16, ZstdParameters.maxEffectiveWindowLog(0));
+        assertEquals(19, ZstdParameters.maxEffectiveWindowLog(1024 * 1024));
+        final int subBlockSize = randomFrom(0, randomIntBetween(4, 255) * 1024);
+        final Settings longDistanceMatching = Settings.builder()
+            .put("index.codec", "zstd")
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), subBlockSize + "b")
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING.getKey(), true)
+            .build();
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_LONG_DISTANCE_MATCHING_SETTING.get(longDistanceMatching)
+        );
+        assertEquals(
+            "[index.codec.zstd.long_distance_matching] has no effect with a [index.codec.stored_fields.sub_block_size] of "
+                + new ByteSizeValue(subBlockSize)
+                + ", it must be at least 256kb",
+            e.getMessage()
+        );
+
+        final int maxWindowLog = ZstdParameters.maxEffectiveWindowLog(subBlockSize);
+        final Settings windowLog = Settings.builder()
+            .put("index.codec", "zstd")
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), subBlockSize + "b")
+            .put(
+                Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.getKey(),
+                randomIntBetween(maxWindowLog + 1, ZstdParameters.MAX_WINDOW_LOG)
+            )
+            .build();
+        e = expectThrows(IllegalArgumentException.class, () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.get(windowLog));
+        assertTrue(e.getMessage(), e.getMessage().endsWith("it must be at most " + maxWindowLog));
+
+        final Settings smallerWindowLog = Settings.builder()
+            .put(windowLog)
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.getKey(), maxWindowLog)
+            .build();
+        assertEquals(maxWindowLog, (int) Lucene104CustomCodec.INDEX_CODEC_ZSTD_WINDOW_LOG_SETTING.get(smallerWindowLog));
+    }
+
+    public void testZstdHybrid() throws Exception {
+        Codec codec = createCodecService(false).codec("zstd_hybrid");
+        assertStoredFieldsCompressionEquals(Lucene104CustomCodec.Mode.ZSTD_HYBRID, codec);
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(DEFAULT_COMPRESSION_LEVEL, storedFieldsFormat.getCompressionLevel());
+    }
+
+    public void testZstdFast() throws Exception {
+        Codec codec = createCodecService(false).codec("zstd_fast");
+        assertStoredFieldsCompressionEquals(Lucene104CustomCodec.Mode.ZSTD_FAST, codec);
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(-ZstdFast104Codec.DEFAULT_ACCELERATION, storedFieldsFormat.getCompressionLevel());
+        assertEquals(-ZstdFast104Codec.DEFAULT_ACCELERATION, storedFieldsFormat.getMergeCompressionLevel());
+    }
+
+    public void testZstdFastWithAcceleration() throws Exception {
+        final int acceleration = randomIntBetween(1, 100);
+        Settings nodeSettings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .put("index.codec", "zstd_fast")
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING.getKey(), acceleration)
+            .build();
+        Codec codec = buildCodecService(nodeSettings).codec("zstd_fast");
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(-acceleration, storedFieldsFormat.getCompressionLevel());
+        assertTrue(((CodecSettings) codec).supports(Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING));
+        assertFalse(((CodecSettings) codec).supports(INDEX_CODEC_COMPRESSION_LEVEL_SETTING));
+    }
+
+    public void testZstdFastAccelerationIsValidatedPerCodec() {
+        final String codecName = randomFrom("zstd", "zstd_no_dict", "zstd_trained_dict", "zstd_hybrid", "default", "best_compression");
+        final Settings acceleration = Settings.builder()
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING.getKey(), randomIntBetween(2, 100))
+            .build();
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> Lucene104CustomCodec.INDEX_CODEC_ZSTD_FAST_ACCELERATION_SETTING.get(acceleration)
+        );
+        assertEquals("[index.codec.zstd_fast.acceleration] cannot be set for the " + codecName + " codec.", e.getMessage());
+    }
+
+    public void testColumnGroupedStoredFields() throws Exception {
+        final String codecName = randomFrom("zstd", "zstd_no_dict", "zstd_hybrid", "zstd_fast");
+        Settings nodeSettings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING.getKey(), true)
+            .build();
+        Codec codec = buildCodecService(nodeSettings).codec(codecName);
+        Lucene104ColumnGroupedStoredFieldsFormat storedFieldsFormat = (Lucene104ColumnGroupedStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(Set.of("_source"), storedFieldsFormat.getPayloadFields());
+        assertTrue(((CodecSettings) codec).supports(Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING));
+    }
+
+    public void testColumnGroupedStoredFieldsAreValidatedPerCodec() {
+        final String codecName = randomFrom("zstd_trained_dict", "default", "best_compression");
+        final Settings columnGrouped = Settings.builder()
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING.getKey(), true)
+            .build();
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> Lucene104CustomCodec.INDEX_CODEC_COLUMN_GROUPED_STORED_FIELDS_SETTING.get(columnGrouped)
+        );
+        assertEquals("[index.codec.stored_fields.column_grouped] cannot be set for the " + codecName + " codec.", e.getMessage());
+    }
+
     public void testZstdDeprecatedCodec() {
         final IllegalArgumentException e = expectThrows(
             IllegalArgumentException.class,
@@ -140,6 +301,99 @@ public class CustomCodecTests extends OpenSearchTestCase {
         assertEquals(randomCompressionLevel, storedFieldsFormat.getCompressionLevel());
     }
 
+    public void testZstdWithSubBlockSize() throws Exception {
+        final String codecName = randomFrom("zstd", "zstd_no_dict", "zstd_trained_dict", "zstd_hybrid", "zstd_fast");
+        final int subBlockSize = randomIntBetween(4, 64) * 1024;
+        Settings nodeSettings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), subBlockSize + "b")
+            .build();
+        Codec codec = buildCodecService(nodeSettings).codec(codecName);
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(subBlockSize, storedFieldsFormat.getSubBlockLength());
+        assertTrue(((CodecSettings) codec).supports(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING));
+    }
+
+    public void testSubBlockSizeIsValidatedPerCodec() {
+        final String codecName = randomFrom("default", "best_compression", "lucene_default");
+        final Settings subBlockSize = Settings.builder()
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), "16kb")
+            .build();
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.get(subBlockSize)
+        );
+        assertEquals("[index.codec.stored_fields.sub_block_size] cannot be set for the " + codecName + " codec.", e.getMessage());
+
+        final Settings tooSmall = Settings.builder()
+            .put("index.codec", randomFrom("zstd", "zstd_no_dict", "qat_lz4"))
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), randomIntBetween(1, 4095) + "b")
+            .build();
+        e = expectThrows(IllegalArgumentException.class, () -> Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.get(tooSmall));
+        assertTrue(e.getMessage(), e.getMessage().contains("must be 0 or at least 4kb"));
+
+        final Settings zero = Settings.builder()
+            .put("index.codec", randomFrom("zstd", "default"))
+            .put(Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.getKey(), "0b")
+            .build();
+        assertEquals(0L, Lucene104CustomCodec.INDEX_CODEC_SUB_BLOCK_SIZE_SETTING.get(zero).getBytes());
+    }
+
+    public void testZstdWithMergeCompressionLevel() throws Exception {
+        final String codecName = randomFrom("zstd", "zstd_no_dict", "zstd_trained_dict", "zstd_hybrid");
+        final int compressionLevel = randomIntBetween(1, 6);
+        final int mergeCompressionLevel = randomIntBetween(1, 6);
+        Settings nodeSettings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .put("index.codec", codecName)
+            .put("index.codec.compression_level", compressionLevel)
+            .put(Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING.getKey(), mergeCompressionLevel)
+            .build();
+        Codec codec = buildCodecService(nodeSettings).codec(codecName);
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(compressionLevel, storedFieldsFormat.getCompressionLevel());
+        assertEquals(mergeCompressionLevel, storedFieldsFormat.getMergeCompressionLevel());
+        assertTrue(((CodecSettings) codec).supports(Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING));
+    }
+
+    public void testMergeCompressionLevelIsValidatedPerCodec() {
+        final String codecName = randomFrom("zstd_fast", "default", "best_compression");
+        final int compressionLevel = randomIntBetween(1, 6);
+        final Settings mergeCompressionLevel = Settings.builder()
+            .put("index.codec", codecName)
+            .put(Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING.getKey(), compressionLevel)
+            .build();
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING.get(
+                Settings.builder()
+                    .put(mergeCompressionLevel)
+                    .put(
+                        INDEX_CODEC_COMPRESSION_LEVEL_SETTING.getKey(),
+                        randomValueOtherThan(compressionLevel, () -> randomIntBetween(1, 6))
+                    )
+                    .build()
+            )
+        );
+        assertEquals("[index.codec.merge_compression_level] cannot be set for the " + codecName + " codec.", e.getMessage());
+
+        // the level of flushes is supported by every codec
+        final Settings sameLevel = Settings.builder()
+            .put(mergeCompressionLevel)
+            .put(INDEX_CODEC_COMPRESSION_LEVEL_SETTING.getKey(), compressionLevel)
+            .build();
+        assertEquals(compressionLevel, (int) Lucene104CustomCodec.INDEX_CODEC_MERGE_COMPRESSION_LEVEL_SETTING.get(sameLevel));
+    }
+
+    public void testMergeCompressionLevelDefaultsToCompressionLevel() throws Exception {
+        final int compressionLevel = randomIntBetween(1, 6);
+        Codec codec = createCodecService(compressionLevel, "zstd").codec("zstd");
+        Lucene104CustomStoredFieldsFormat storedFieldsFormat = (Lucene104CustomStoredFieldsFormat) codec.storedFieldsFormat();
+        assertEquals(compressionLevel, storedFieldsFormat.getMergeCompressionLevel());
+    }
+
     public void testBestCompressionWithCompressionLevel() {
         final Settings zstdSettings = Settings.builder()
             .put(INDEX_CODEC_COMPRESSION_LEVEL_SETTING.getKey(), randomIntBetween(1, 6))
@@ -199,31 +453,39 @@ public class CustomCodecTests extends OpenSearchTestCase {
         assertEquals(DEFAULT_COMPRESSION_LEVEL, storedFieldsFormat.getCompressionLevel());
     }
 
-    public void testQatCodecsNotAvailable() throws IOException {
-        if (!QatZipperFactory.isQatAvailable()) {
-            assertThrows(IllegalArgumentException.class, () -> createCodecService(false).codec("qat_lz4"));
-            assertThrows(IllegalArgumentException.class, () -> createCodecService(false).codec("qat_deflate"));
-            assertThrows(IllegalArgumentException.class, () -> createCodecService(false).codec("qat_zstd"));
-
-            QatLz4104Codec qatLz4104Codec = new QatLz4104Codec();
-            assertTrue(qatLz4104Codec.aliases().isEmpty());
-
-            QatDeflate104Codec qatDeflate104Codec = new QatDeflate104Codec();
-            assertTrue(qatDeflate104Codec.aliases().isEmpty());
-
-            QatZstd104Codec qatZstd104Codec = new QatZstd104Codec();
-            assertTrue(qatZstd104Codec.aliases().isEmpty());
+    public void testQatCodecsWithoutQat() throws Exception {
+        assumeFalse("Qat library is not available", QatZipperFactory.isQatAvailable());
+        // QAT codecs are registered on every node, so that their shards can be relocated to nodes without QAT
+        for (String name : List.of(QAT_LZ4_CODEC, QAT_DEFLATE_CODEC, QAT_ZSTD_CODEC)) {
+            assertTrue(((CodecAliases) createCodecService(false).codec(name)).aliases().contains(name));
         }
+        assertStoredFieldsRoundTrip(new QatLz4104Codec());
+        assertStoredFieldsRoundTrip(new QatDeflate104Codec());
+        assertStoredFieldsRoundTrip(new QatZstd104Codec());
+    }
+
+    public void testAdditionalCodecsWithoutQat() throws IOException {
+        assumeFalse("Qat library is not available", QatZipperFactory.isQatAvailable());
+        Settings nodeSettings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .put("index.codec", randomFrom(QAT_DEFLATE_CODEC, QAT_LZ4_CODEC, QAT_ZSTD_CODEC))
+            .build();
+        IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("_na", nodeSettings);
+        assertTrue(plugin.getAdditionalCodecs(indexSettings).isPresent());
     }
 
-    public void testAdditionalCodecsQatUnavailable() throws IOException {
-        if (!QatZipperFactory.isQatAvailable()) {
-            Settings nodeSettings = Settings.builder()
-                .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
-                .put("index.codec", randomFrom(QAT_DEFLATE_CODEC, QAT_LZ4_CODEC, QAT_ZSTD_CODEC))
-                .build();
-            IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("_na", nodeSettings);
-            assertThrows(IllegalArgumentException.class, () -> plugin.getAdditionalCodecs(indexSettings));
+    // stored fields are compressed and decompressed in software without QAT
+    private void assertStoredFieldsRoundTrip(Codec codec) throws IOException {
+        final String value = randomRealisticUnicodeOfLengthBetween(1, 10_000);
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec))) {
+                Document doc = new Document();
+                doc.add(new StoredField("field", value));
+                iw.addDocument(doc);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertEquals(value, reader.storedFields().document(0).get("field"));
+            }
         }
     }
 
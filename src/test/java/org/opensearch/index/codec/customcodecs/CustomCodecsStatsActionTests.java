@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
+import org.opensearch.Version;
+import org.opensearch.cluster.ClusterName;
+import org.opensearch.cluster.node.DiscoveryNode;
+import org.opensearch.common.io.stream.BytesStreamOutput;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.common.io.stream.StreamInput;
+import org.opensearch.core.xcontent.ToXContent;
+import org.opensearch.core.xcontent.XContentBuilder;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.rest.RestRequest;
+import org.opensearch.test.rest.FakeRestRequest;
+import org.opensearch.test.rest.RestActionTestCase;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SuppressCodecs("*")
+public class CustomCodecsStatsActionTests extends RestActionTestCase {
+
+    @Before
+    public void registerHandler() {
+        controller().registerHandler(new RestCustomCodecsStatsAction());
+    }
+
+    public void testRestRequestTargetsAllNodes() {
+        assertArrayEquals(new String[0], dispatch("/_plugins/_custom_codecs/stats").nodesIds());
+    }
+
+    public void testRestRequestTargetsNodes() {
+        assertArrayEquals(new String[] { "node_1", "node_2" }, dispatch("/_plugins/_custom_codecs/node_1,node_2/stats").nodesIds());
+    }
+
+    private CustomCodecsStatsRequest dispatch(String path) {
+        final AtomicReference<CustomCodecsStatsRequest> executed = new AtomicReference<>();
+        verifyingClient.setExecuteVerifier((action, request) -> {
+            assertSame(CustomCodecsStatsAction.INSTANCE, action);
+            executed.set((CustomCodecsStatsRequest) request);
+            return new CustomCodecsStatsResponse(ClusterName.DEFAULT, List.of(), List.of());
+        });
+        dispatchRequest(new FakeRestRequest.Builder(xContentRegistry()).withMethod(RestRequest.Method.GET).withPath(path).build());
+        assertNotNull(executed.get());
+        return executed.get();
+    }
+
+    public void testStatsOfNodes() throws IOException {
+        final CodecServices services = new CodecServices(Settings.EMPTY, null);
+        final QatCircuitBreaker breaker = services.qatCircuitBreaker();
+        for (int i = 0; i < QatCircuitBreaker.MIN_CALLS; ++i) {
+            assertTrue(breaker.allowHardware());
+            breaker.onHardwareBlock(0, i % 2 == 0);
+        }
+        assertFalse(breaker.allowHardware());
+        breaker.onSoftwareBlock();
+
+        final DiscoveryNode node = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        final CustomCodecsStatsResponse response = new CustomCodecsStatsResponse(
+            ClusterName.DEFAULT,
+            List.of(new CustomCodecsNodeStats(node, services)),
+            List.of()
+        );
+
+        final CustomCodecsStatsResponse read;
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            response.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                read = new CustomCodecsStatsResponse(in);
+            }
+        }
+        assertEquals(1, read.getNodes().size());
+        assertEquals(breaker.stats(), read.getNodes().get(0).qatCircuitBreaker());
+        assertEquals(services.blockCache().stats(), read.getNodes().get(0).blockCache());
+        assertEquals(services.dictionaryCache().stats(), read.getNodes().get(0).dictionaryCache());
+
+        final XContentBuilder builder = JsonXContent.contentBuilder().startObject();
+        read.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        final Map<String, Object> map;
+        try (XContentParser parser = createParser(builder)) {
+            map = parser.map();
+        }
+        assertEquals(
+            Map.of(
+                "node_1",
+                Map.of(
+                    "name",
+                    node.getName(),
+                    "qat_circuit_breaker",
+                    Map.of(
+                        "state",
+                        "open",
+                        "trips",
+                        1,
+                        "hardware_blocks",
+                        QatCircuitBreaker.MIN_CALLS,
+                        "software_blocks",
+                        1,
+                        "failed_blocks",
+                        QatCircuitBreaker.MIN_CALLS / 2,
+                        "slow_blocks",
+                        0
+                    ),
+                    "stored_fields_block_cache",
+                    Map.of("size_in_bytes", 0, "count", 0, "hits", 0, "misses", 0, "evictions", 0),
+                    "zstd_dictionary_cache",
+                    Map.of("size_in_bytes", 0, "count", 0, "hits", 0, "misses", 0, "evictions", 0)
+                )
+            ),
+            map.get("nodes")
+        );
+    }
+}
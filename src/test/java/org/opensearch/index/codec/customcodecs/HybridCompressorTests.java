@@ -0,0 +1,84 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+/** Test the compression mode that picks the encoding of every block. */
+public class HybridCompressorTests extends AbstractCompressorTests {
+
+    // sub-blocks either have a random target length or blocks are split into a fixed number of them
+    private final int subBlockLength = randomBoolean() ? 0 : randomIntBetween(1, 64 * 1024);
+    private final Compressor compressor = new HybridCompressionMode(DEFAULT_COMPRESSION_LEVEL, BlockLayout.CURRENT, subBlockLength)
+        .newCompressor();
+    private final Decompressor decompressor = new HybridCompressionMode(DEFAULT_COMPRESSION_LEVEL, BlockLayout.CURRENT, 0)
+        .newDecompressor();
+
+    @Override
+    Compressor compressor() {
+        return compressor;
+    }
+
+    @Override
+    Decompressor decompressor() {
+        return decompressor;
+    }
+
+    public void testPicksEncodingPerBlock() throws IOException {
+        final CompressionMode mode = new HybridCompressionMode(DEFAULT_COMPRESSION_LEVEL, BlockLayout.CURRENT, 0);
+
+        // incompressible
+        assertEncoding(mode, randomByteArrayOfLength(100 * 1024), HybridCompressionMode.RAW);
+
+        // repetitions that are further apart than a sub-block, which only LZ4 finds
+        final byte[] chunk = randomByteArrayOfLength(4 * 1024);
+        final byte[] repeated = new byte[100 * 1024];
+        for (int i = 0; i < repeated.length; i += chunk.length) {
+            System.arraycopy(chunk, 0, repeated, i, Math.min(chunk.length, repeated.length - i));
+        }
+        assertEncoding(mode, repeated, HybridCompressionMode.LZ4);
+
+        // a small alphabet, which entropy coding compresses much better
+        final byte[] text = new byte[100 * 1024];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) ('a' + random().nextInt(4));
+        }
+        assertEncoding(mode, text, HybridCompressionMode.ZSTD);
+        assertEncoding(mode, ArrayUtil.copyOfSubArray(text, 0, 16 * 1024), HybridCompressionMode.ZSTD_NO_DICT);
+        // blocks that are larger than the sample are compressed again with the picked encoding
+        final int sampledLength = randomIntBetween(HybridCompressionMode.SAMPLE_LENGTH + 1, 64 * 1024 - 1);
+        assertEncoding(mode, ArrayUtil.copyOfSubArray(text, 0, sampledLength), HybridCompressionMode.ZSTD_NO_DICT);
+        assertEncoding(mode, ArrayUtil.copyOfSubArray(repeated, 0, sampledLength), HybridCompressionMode.LZ4);
+    }
+
+    private static void assertEncoding(CompressionMode mode, byte[] bytes, byte expected) throws IOException {
+        final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        try (Compressor compressor = mode.newCompressor()) {
+            compressor.compress(new ByteBuffersDataInput(List.of(ByteBuffer.wrap(bytes))), out);
+        }
+        final byte[] compressed = out.toArrayCopy();
+        assertEquals(expected, compressed[0]);
+
+        final BytesRef restored = new BytesRef();
+        mode.newDecompressor().decompress(new ByteArrayDataInput(compressed), bytes.length, 0, bytes.length, restored);
+        assertEquals(new BytesRef(bytes), restored);
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.codecs.lucene104.Lucene104Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+@SuppressCodecs("*")
+public class Lucene104ColumnGroupedStoredFieldsFormatTests extends OpenSearchTestCase {
+
+    public void testReadsAndMergesColumnGroupedSegments() throws IOException {
+        final Lucene104CustomCodec.Mode mode = randomValueOtherThan(
+            Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT,
+            () -> randomFrom(Lucene104CustomCodec.Mode.values())
+        );
+        final Lucene104CustomCodec plainCodec = codec(mode, false);
+        final Lucene104CustomCodec codec = codec(mode, true);
+
+        try (Directory dir = newDirectory()) {
+            final int numDocs = randomIntBetween(1, 1000);
+            final byte[][] sources = new byte[2 * numDocs][];
+            // segments of the plain layout are merged into column-grouped segments
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(plainCodec))) {
+                for (int i = 0; i < numDocs; ++i) {
+                    sources[i] = randomSource();
+                    addDocument(iw, i, sources[i]);
+                }
+            }
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec))) {
+                for (int i = numDocs; i < sources.length; ++i) {
+                    sources[i] = randomSource();
+                    addDocument(iw, i, sources[i]);
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertDocuments(reader, sources);
+                }
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertEquals(1, reader.leaves().size());
+                    SegmentInfo si = ((SegmentReader) reader.leaves().get(0).reader()).getSegmentInfo().info;
+                    assertEquals("_source", si.getAttribute(Lucene104ColumnGroupedStoredFieldsFormat.PAYLOAD_FIELDS_KEY));
+                    // compound segments keep the payload files in the compound file
+                    final String payloadFile = IndexFileNames.segmentFileName(
+                        si.name,
+                        Lucene104ColumnGroupedStoredFieldsFormat.PAYLOAD_SEGMENT_SUFFIX,
+                        "fdt"
+                    );
+                    assertEquals(si.getUseCompoundFile() == false, si.files().contains(payloadFile));
+                    assertDocuments(reader, sources);
+                }
+            }
+            // segments are read back with the codec that is registered under their name, which has the plain layout
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertDocuments(reader, sources);
+            }
+        }
+    }
+
+    public void testMergesMixedLayoutsWithoutLosingFields() throws IOException {
+        final Lucene104CustomCodec.Mode mode = randomValueOtherThan(
+            Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT,
+            () -> randomFrom(Lucene104CustomCodec.Mode.values())
+        );
+        final boolean firstColumnGrouped = randomBoolean();
+        final boolean mergeColumnGrouped = randomBoolean();
+
+        try (Directory dir = newDirectory()) {
+            final List<Document> documents = new ArrayList<>();
+            // segments alternate between the plain and the column-grouped layout
+            final int numSegments = randomIntBetween(2, 6);
+            for (int i = 0; i < numSegments; ++i) {
+                final IndexWriterConfig iwc = newIndexWriterConfig(null).setCodec(codec(mode, firstColumnGrouped ^ (i % 2 == 1)))
+                    .setMergePolicy(NoMergePolicy.INSTANCE);
+                try (IndexWriter iw = new IndexWriter(dir, iwc)) {
+                    for (int j = randomIntBetween(1, 200); j > 0; --j) {
+                        final Document doc = randomDocument(documents.size());
+                        iw.addDocument(doc);
+                        documents.add(doc);
+                    }
+                }
+            }
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec(mode, mergeColumnGrouped)))) {
+                iw.forceMerge(1);
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertEquals(1, reader.leaves().size());
+                final SegmentInfo si = ((SegmentReader) reader.leaves().get(0).reader()).getSegmentInfo().info;
+                assertEquals(mergeColumnGrouped, si.getAttribute(Lucene104ColumnGroupedStoredFieldsFormat.PAYLOAD_FIELDS_KEY) != null);
+                final StoredFields storedFields = reader.leaves().get(0).reader().storedFields();
+                assertEquals(documents.size(), reader.maxDoc());
+                for (int docID = 0; docID < reader.maxDoc(); ++docID) {
+                    final Map<String, List<Object>> actual = fieldValues(storedFields.document(docID));
+                    final int id = Integer.parseInt(((BytesRef) actual.get("_id").get(0)).utf8ToString());
+                    assertEquals(fieldValues(documents.get(id)), actual);
+                }
+            }
+        }
+    }
+
+    public void testReadsPayloadFieldsOnlyIfNeeded() throws IOException {
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec(Lucene104CustomCodec.Mode.ZSTD, true)))) {
+                addDocument(iw, 0, randomByteArrayOfLength(randomIntBetween(1, 1000)));
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                final FieldInfos fieldInfos = reader.leaves().get(0).reader().getFieldInfos();
+                final List<String> payloadReads = new ArrayList<>();
+                final StoredFieldsReader payloadReader = new RecordingReader(payloadReads, fieldInfos.fieldInfo("_source"));
+                final StoredFieldsReader fieldsReader = Lucene104ColumnGroupedStoredFieldsFormat.newReader(
+                    new RecordingReader(new ArrayList<>(), fieldInfos.fieldInfo("_id")),
+                    payloadReader,
+                    fieldInfos,
+                    "_source"
+                );
+
+                // visitors that stop at the small fields, or that do not need the payload, never read it
+                final List<String> visited = new ArrayList<>();
+                fieldsReader.document(0, new FieldsVisitor(visited, StoredFieldVisitor.Status.STOP, StoredFieldVisitor.Status.YES));
+                fieldsReader.document(0, new FieldsVisitor(visited, StoredFieldVisitor.Status.YES, StoredFieldVisitor.Status.NO));
+                fieldsReader.document(0, new FieldsVisitor(visited, StoredFieldVisitor.Status.YES, StoredFieldVisitor.Status.STOP));
+                assertEquals(List.of("_id", "_id"), visited);
+                assertEquals(List.of(), payloadReads);
+
+                // the visitor is asked once whether it needs the payload, and sees it after the other fields
+                visited.clear();
+                final FieldsVisitor visitor = new FieldsVisitor(visited, StoredFieldVisitor.Status.YES, StoredFieldVisitor.Status.YES);
+                fieldsReader.document(0, visitor);
+                assertEquals(List.of("_id", "_source"), visited);
+                assertEquals(List.of("_id", "_source"), visitor.needed);
+                assertEquals(List.of("_source"), payloadReads);
+            }
+        }
+    }
+
+    public void testRejectsTrainedDictionaries() {
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> new Lucene104ColumnGroupedStoredFieldsFormat(
+                Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT,
+                StoredFieldsParameters.of(DEFAULT_COMPRESSION_LEVEL)
+            )
+        );
+        assertEquals("Column-grouped stored fields are not supported by compression mode: ZSTD_TRAINED_DICT", e.getMessage());
+        expectThrows(
+            IllegalArgumentException.class,
+            () -> new Lucene104ColumnGroupedStoredFieldsFormat(
+                Lucene104CustomCodec.Mode.ZSTD,
+                StoredFieldsParameters.of(DEFAULT_COMPRESSION_LEVEL),
+                Set.of("_source,_id")
+            )
+        );
+    }
+
+    private static Lucene104CustomCodec codec(Lucene104CustomCodec.Mode mode, boolean columnGrouped) {
+        final StoredFieldsParameters parameters = StoredFieldsParameters.of(DEFAULT_COMPRESSION_LEVEL).withColumnGrouped(columnGrouped);
+        return switch (mode) {
+            case ZSTD -> new Zstd104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_NO_DICT -> new ZstdNoDict104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_HYBRID -> new ZstdHybrid104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_FAST -> new ZstdFast104Codec(
+                StoredFieldsParameters.of(-ZstdFast104Codec.DEFAULT_ACCELERATION).withColumnGrouped(columnGrouped),
+                Lucene104Codec::new
+            );
+            default -> throw new AssertionError(mode);
+        };
+    }
+
+    /* some documents have no payload, and large ones are read in slices */
+    private static byte[] randomSource() {
+        return randomBoolean() && randomBoolean() ? null : randomByteArrayOfLength(rarely() ? 1_000_000 : randomIntBetween(1, 1000));
+    }
+
+    private static void addDocument(IndexWriter iw, int id, byte[] source) throws IOException {
+        Document doc = new Document();
+        doc.add(new StoredField("_id", new BytesRef(Integer.toString(id))));
+        doc.add(new StoredField("_routing", randomAlphaOfLengthBetween(1, 10)));
+        if (source != null) {
+            doc.add(new StoredField("_source", source));
+        }
+        iw.addDocument(doc);
+    }
+
+    /* documents with the metadata fields of OpenSearch, some of them multi-valued */
+    private static Document randomDocument(int id) {
+        final Document doc = new Document();
+        doc.add(new StoredField("_id", new BytesRef(Integer.toString(id))));
+        if (randomBoolean()) {
+            doc.add(new StoredField("_routing", randomAlphaOfLengthBetween(1, 10)));
+        }
+        for (int i = randomIntBetween(0, 3); i > 0; --i) {
+            doc.add(new StoredField("_ignored", randomAlphaOfLengthBetween(1, 10)));
+        }
+        doc.add(new StoredField("_seq_no", randomNonNegativeLong()));
+        doc.add(new StoredField("_version", randomInt()));
+        final byte[] source = randomSource();
+        if (source != null) {
+            doc.add(new StoredField("_source", source));
+        }
+        return doc;
+    }
+
+    /* the values of every field, the column-grouped layout changes the order of the fields but not their values */
+    private static Map<String, List<Object>> fieldValues(Document doc) {
+        final Map<String, List<Object>> values = new HashMap<>();
+        for (IndexableField field : doc) {
+            final Object value;
+            if (field.binaryValue() != null) {
+                value = BytesRef.deepCopyOf(field.binaryValue());
+            } else if (field.stringValue() != null) {
+                value = field.stringValue();
+            } else {
+                value = field.numericValue();
+            }
+            values.computeIfAbsent(field.name(), name -> new ArrayList<>()).add(value);
+        }
+        return values;
+    }
+
+    private static void assertDocuments(DirectoryReader reader, byte[][] sources) throws IOException {
+        int numDocs = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+            StoredFieldsReader fieldsReader = ((CodecReader) context.reader()).getFieldsReader();
+            for (int docID = 0; docID < context.reader().maxDoc(); ++docID) {
+                DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor();
+                fieldsReader.document(docID, visitor);
+                Document doc = visitor.getDocument();
+                int id = Integer.parseInt(doc.getBinaryValue("_id").utf8ToString());
+                assertNotNull(doc.get("_routing"));
+                if (sources[id] == null) {
+                    assertNull(doc.getBinaryValue("_source"));
+                } else {
+                    assertEquals(new BytesRef(sources[id]), doc.getBinaryValue("_source"));
+                }
+                // visitors of the small fields only see these
+                DocumentStoredFieldVisitor idVisitor = new DocumentStoredFieldVisitor("_id");
+                fieldsReader.document(docID, idVisitor);
+                assertEquals(1, idVisitor.getDocument().getFields().size());
+                assertEquals(Integer.toString(id), idVisitor.getDocument().getBinaryValue("_id").utf8ToString());
+                ++numDocs;
+            }
+        }
+        assertEquals(sources.length, numDocs);
+    }
+
+    /** visitor that records the fields it is asked about and the fields it visits, with given statuses for {@code _id} and {@code _source} */
+    private static final class FieldsVisitor extends StoredFieldVisitor {
+
+        private final List<String> visited;
+        private final List<String> needed = new ArrayList<>();
+        private final Status idStatus;
+        private final Status payloadStatus;
+
+        FieldsVisitor(List<String> visited, Status idStatus, Status payloadStatus) {
+            this.visited = visited;
+            this.idStatus = idStatus;
+            this.payloadStatus = payloadStatus;
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            needed.add(fieldInfo.name);
+            return fieldInfo.name.equals("_source") ? payloadStatus : idStatus;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) {
+            visited.add(fieldInfo.name);
+        }
+    }
+
+    /** reader of a single binary field that records the fields that it reads */
+    private static final class RecordingReader extends StoredFieldsReader {
+
+        private final List<String> reads;
+        private final FieldInfo fieldInfo;
+
+        RecordingReader(List<String> reads, FieldInfo fieldInfo) {
+            this.reads = reads;
+            this.fieldInfo = fieldInfo;
+        }
+
+        @Override
+        public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+            reads.add(fieldInfo.name);
+            if (visitor.needsField(fieldInfo) == StoredFieldVisitor.Status.YES) {
+                visitor.binaryField(fieldInfo, new byte[] { 42 });
+            }
+        }
+
+        @Override
+        public StoredFieldsReader clone() {
+            return this;
+        }
+
+        @Override
+        public void checkIntegrity() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -8,8 +8,32 @@
 
 package org.opensearch.index.codec.customcodecs;
 
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.StoredFieldsFormat;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.codecs.StoredFieldsWriter;
+import org.apache.lucene.codecs.lucene104.Lucene104Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
 import org.opensearch.test.OpenSearchTestCase;
 
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+@SuppressCodecs("*")
 public class Lucene104CustomStoredFieldsFormatTests extends OpenSearchTestCase {
 
     public void testDefaultLucene104CustomCodecMode() {
@@ -56,4 +80,236 @@ public class Lucene104CustomStoredFieldsFormatTests extends OpenSearchTestCase {
         assertTrue(lucene104CustomStoredFieldsFormat.getCompressionMode() instanceof ZstdNoDictCompressionMode);
     }
 
+    public void testZstdHybridCompressionModes() {
+        Lucene104CustomStoredFieldsFormat lucene104CustomStoredFieldsFormat = new Lucene104CustomStoredFieldsFormat(
+            Lucene104CustomCodec.Mode.ZSTD_HYBRID
+        );
+        assertTrue(lucene104CustomStoredFieldsFormat.getCompressionMode() instanceof HybridCompressionMode);
+    }
+
+    public void testZstdFastCompressionModes() {
+        Lucene104CustomStoredFieldsFormat lucene104CustomStoredFieldsFormat = new Lucene104CustomStoredFieldsFormat(
+            Lucene104CustomCodec.Mode.ZSTD_FAST
+        );
+        assertTrue(lucene104CustomStoredFieldsFormat.getCompressionMode() instanceof ZstdNoDictCompressionMode);
+        assertEquals(-ZstdFast104Codec.DEFAULT_ACCELERATION, lucene104CustomStoredFieldsFormat.getCompressionLevel());
+    }
+
+    public void testReadsAndMergesInterleavedSegments() throws IOException {
+        final Lucene104CustomCodec.Mode mode = randomFrom(Lucene104CustomCodec.Mode.values());
+        final Lucene104CustomCodec codec = switch (mode) {
+            case ZSTD -> new Zstd104Codec();
+            case ZSTD_NO_DICT -> new ZstdNoDict104Codec();
+            case ZSTD_TRAINED_DICT -> new ZstdTrainedDict104Codec();
+            case ZSTD_HYBRID -> new ZstdHybrid104Codec();
+            case ZSTD_FAST -> new ZstdFast104Codec();
+        };
+        final Lucene104CustomStoredFieldsFormat format = new Lucene104CustomStoredFieldsFormat(mode);
+        // writes stored fields the way they were written before segments recorded their sub-block layout
+        final StoredFieldsFormat interleavedFormat = new StoredFieldsFormat() {
+            @Override
+            public StoredFieldsReader fieldsReader(Directory directory, SegmentInfo si, FieldInfos fn, IOContext context)
+                throws IOException {
+                return format.fieldsReader(directory, si, fn, context);
+            }
+
+            @Override
+            public StoredFieldsWriter fieldsWriter(Directory directory, SegmentInfo si, IOContext context) throws IOException {
+                si.putAttribute(Lucene104CustomStoredFieldsFormat.MODE_KEY, mode.name());
+                return format.impl(CodecServices.DEFAULT, mode, BlockLayout.INTERLEAVED).fieldsWriter(directory, si, context);
+            }
+        };
+        final Codec interleavedCodec = new FilterCodec(codec.getName(), codec) {
+            @Override
+            public StoredFieldsFormat storedFieldsFormat() {
+                return interleavedFormat;
+            }
+        };
+
+        try (Directory dir = newDirectory()) {
+            final int numDocs = randomIntBetween(1, 2000);
+            final String[] values = new String[2 * numDocs];
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(interleavedCodec))) {
+                for (int i = 0; i < numDocs; ++i) {
+                    values[i] = randomAlphaOfLengthBetween(1, 500);
+                    addDocument(iw, i, values[i]);
+                }
+            }
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec))) {
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertValues(reader, values, BlockLayout.INTERLEAVED);
+                }
+                for (int i = numDocs; i < values.length; ++i) {
+                    values[i] = randomAlphaOfLengthBetween(1, 500);
+                    addDocument(iw, i, values[i]);
+                }
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertEquals(1, reader.leaves().size());
+                    assertValues(reader, values, BlockLayout.CURRENT);
+                }
+            }
+        }
+    }
+
+    public void testMergesWithMergeCompressionLevel() throws IOException {
+        final int compressionLevel = randomIntBetween(1, 6);
+        final int mergeCompressionLevel = randomValueOtherThan(compressionLevel, () -> randomIntBetween(1, 6));
+        final StoredFieldsParameters parameters = StoredFieldsParameters.of(compressionLevel)
+            .withMergeCompressionLevel(mergeCompressionLevel);
+        final Lucene104CustomCodec codec = switch (randomFrom(Lucene104CustomCodec.Mode.values())) {
+            case ZSTD -> new Zstd104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_NO_DICT -> new ZstdNoDict104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_TRAINED_DICT -> new ZstdTrainedDict104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_HYBRID -> new ZstdHybrid104Codec(parameters, Lucene104Codec::new);
+            // zstd_fast compresses merges at the same, negated, level
+            case ZSTD_FAST -> new ZstdFast104Codec(compressionLevel, Lucene104Codec::new);
+        };
+
+        try (Directory dir = newDirectory()) {
+            final String[] values = new String[randomIntBetween(2, 2000)];
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec))) {
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = randomAlphaOfLengthBetween(1, 500);
+                    addDocument(iw, i, values[i]);
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertEquals(1, reader.leaves().size());
+                    assertValues(reader, values, BlockLayout.CURRENT);
+                }
+            }
+        }
+    }
+
+    public void testMergesWithZstdParameters() throws IOException {
+        final ZstdParameters mergeParameters = new ZstdParameters(
+            randomBoolean(),
+            randomFrom(0, randomIntBetween(ZstdParameters.MIN_WINDOW_LOG, ZstdParameters.MAX_WINDOW_LOG))
+        );
+        final Lucene104CustomCodec codec = new Zstd104Codec(
+            StoredFieldsParameters.of(DEFAULT_COMPRESSION_LEVEL)
+                .withSubBlockLength(randomFrom(0, 1024 * 1024))
+                .withMergeParameters(mergeParameters),
+            Lucene104Codec::new
+        );
+
+        try (Directory dir = newDirectory()) {
+            final String[] values = new String[randomIntBetween(2, 2000)];
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec))) {
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = randomAlphaOfLengthBetween(1, 500);
+                    addDocument(iw, i, values[i]);
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertEquals(1, reader.leaves().size());
+                    assertValues(reader, values, BlockLayout.CURRENT);
+                    SegmentInfo si = ((SegmentReader) reader.leaves().get(0).reader()).getSegmentInfo().info;
+                    assertEquals(mergeParameters, ZstdParameters.fromAttributes(si));
+                }
+            }
+        }
+    }
+
+    public void testZstdParametersRequireZstd() {
+        final Lucene104CustomCodec.Mode mode = randomValueOtherThan(
+            Lucene104CustomCodec.Mode.ZSTD,
+            () -> randomFrom(Lucene104CustomCodec.Mode.values())
+        );
+        expectThrows(
+            IllegalArgumentException.class,
+            () -> new Lucene104CustomStoredFieldsFormat(
+                mode,
+                StoredFieldsParameters.of(DEFAULT_COMPRESSION_LEVEL).withMergeParameters(new ZstdParameters(true, 0))
+            )
+        );
+    }
+
+    public void testSegmentsRecordCompressionParameters() throws IOException {
+        final Lucene104CustomCodec.Mode mode = randomValueOtherThan(
+            Lucene104CustomCodec.Mode.ZSTD_TRAINED_DICT,
+            () -> randomFrom(Lucene104CustomCodec.Mode.values())
+        );
+        final int compressionLevel = randomIntBetween(1, 6);
+        final int subBlockLength = randomBoolean() ? 0 : randomIntBetween(1, 64) * 1024;
+        final StoredFieldsParameters parameters = StoredFieldsParameters.of(compressionLevel).withSubBlockLength(subBlockLength);
+        final Supplier<Lucene104CustomCodec> codec = () -> switch (mode) {
+            case ZSTD -> new Zstd104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_NO_DICT -> new ZstdNoDict104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_HYBRID -> new ZstdHybrid104Codec(parameters, Lucene104Codec::new);
+            case ZSTD_FAST -> new ZstdFast104Codec(
+                StoredFieldsParameters.of(-compressionLevel).withSubBlockLength(subBlockLength),
+                Lucene104Codec::new
+            );
+            default -> throw new AssertionError(mode);
+        };
+        // the acceleration of zstd_fast is recorded as a negative level
+        final int recordedCompressionLevel = mode == Lucene104CustomCodec.Mode.ZSTD_FAST ? -compressionLevel : compressionLevel;
+
+        try (Directory dir = newDirectory()) {
+            final String[] values = new String[randomIntBetween(2, 1000)];
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec.get()))) {
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = randomAlphaOfLengthBetween(1, 500);
+                    addDocument(iw, i, values[i]);
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+            }
+            // segments are read back with the codec that is registered under their name, and merged with another instance
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec.get()))) {
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertValues(reader, values, BlockLayout.CURRENT);
+                    SegmentInfo si = ((SegmentReader) reader.leaves().get(0).reader()).getSegmentInfo().info;
+                    assertEquals(
+                        Integer.toString(recordedCompressionLevel),
+                        si.getAttribute(Lucene104CustomStoredFieldsFormat.COMPRESSION_LEVEL_KEY)
+                    );
+                    assertEquals(Integer.toString(subBlockLength), si.getAttribute(Lucene104CustomStoredFieldsFormat.SUB_BLOCK_LENGTH_KEY));
+                }
+            }
+        }
+
+        // readers of these segments get the same mode instance as writers with the same parameters
+        assertSame(
+            CompressionModes.get(CodecServices.DEFAULT, mode, compressionLevel, BlockLayout.CURRENT, subBlockLength),
+            CompressionModes.get(CodecServices.DEFAULT, mode, compressionLevel, BlockLayout.CURRENT, subBlockLength)
+        );
+        assertNotSame(
+            CompressionModes.get(CodecServices.DEFAULT, mode, compressionLevel, BlockLayout.CURRENT, subBlockLength),
+            CompressionModes.get(CodecServices.DEFAULT, mode, compressionLevel % 6 + 1, BlockLayout.CURRENT, subBlockLength)
+        );
+    }
+
+    private static void addDocument(IndexWriter iw, int id, String value) throws IOException {
+        Document doc = new Document();
+        doc.add(new StoredField("id", id));
+        doc.add(new StoredField("value", value));
+        iw.addDocument(doc);
+    }
+
+    private static void assertValues(DirectoryReader reader, String[] values, BlockLayout layout) throws IOException {
+        int numDocs = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+            SegmentInfo si = ((SegmentReader) context.reader()).getSegmentInfo().info;
+            assertEquals(layout, BlockLayout.fromAttribute(si.getAttribute(Lucene104CustomStoredFieldsFormat.LAYOUT_KEY)));
+            StoredFields storedFields = context.reader().storedFields();
+            for (int doc = 0; doc < context.reader().maxDoc(); ++doc) {
+                Document document = storedFields.document(doc);
+                assertEquals(values[document.getField("id").numericValue().intValue()], document.get("value"));
+                numDocs++;
+            }
+        }
+        assertEquals(reader.numDocs(), numDocs);
+    }
+
 }
@@ -8,8 +8,21 @@
 
 package org.opensearch.index.codec.customcodecs;
 
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.lucene104.Lucene104Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.store.Directory;
 import org.opensearch.test.OpenSearchTestCase;
 
+import java.io.IOException;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99QatCodec.DEFAULT_QAT_MODE;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assume.assumeThat;
 
@@ -87,4 +100,63 @@ public class Lucene104QatStoredFieldsFormatTests extends OpenSearchTestCase {
         Lucene104QatStoredFieldsFormat lucene104QatStoredFieldsFormat = new Lucene104QatStoredFieldsFormat(Lucene104QatCodec.Mode.QAT_ZSTD);
         assertTrue(lucene104QatStoredFieldsFormat.getCompressionMode() instanceof QatCompressionMode);
     }
+
+    public void testReadersGetTheCompressionModeOfWriters() {
+        final int compressionLevel = randomIntBetween(1, 6);
+        final int mergeCompressionLevel = randomValueOtherThan(compressionLevel, () -> randomIntBetween(1, 6));
+        final Lucene104QatStoredFieldsFormat format = new Lucene104QatStoredFieldsFormat(
+            randomFrom(Lucene104QatCodec.Mode.values()),
+            StoredFieldsParameters.of(compressionLevel).withMergeCompressionLevel(mergeCompressionLevel),
+            () -> DEFAULT_QAT_MODE
+        );
+
+        final CompressionMode flushMode = format.compressionMode(CodecServices.DEFAULT, BlockLayout.CURRENT, compressionLevel);
+        assertSame(format.getCompressionMode(), ((BlockCachingCompressionMode) flushMode).getDelegate());
+        final CompressionMode mergeMode = format.compressionMode(CodecServices.DEFAULT, BlockLayout.CURRENT, mergeCompressionLevel);
+        assertSame(format.getMergeCompressionMode(), ((BlockCachingCompressionMode) mergeMode).getDelegate());
+        assertSame(mergeMode, format.compressionMode(CodecServices.DEFAULT, BlockLayout.CURRENT, mergeCompressionLevel));
+
+        final CompressionMode interleavedMode = format.compressionMode(CodecServices.DEFAULT, BlockLayout.INTERLEAVED, compressionLevel);
+        assertNotSame(flushMode, interleavedMode);
+        assertSame(interleavedMode, format.compressionMode(CodecServices.DEFAULT, BlockLayout.INTERLEAVED, compressionLevel));
+    }
+
+    public void testMergesRecordTheirCompressionLevel() throws IOException {
+        assumeThat("Qat library is available", QatZipperFactory.isQatAvailable(), is(true));
+        final int compressionLevel = randomIntBetween(1, 6);
+        final int mergeCompressionLevel = randomValueOtherThan(compressionLevel, () -> randomIntBetween(1, 6));
+        final Codec codec = new QatLz4104Codec(
+            StoredFieldsParameters.of(compressionLevel).withMergeCompressionLevel(mergeCompressionLevel),
+            () -> DEFAULT_QAT_MODE,
+            Lucene104Codec::new
+        );
+
+        try (Directory dir = newDirectory()) {
+            final String[] values = new String[randomIntBetween(2, 2000)];
+            try (IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null).setCodec(codec))) {
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = randomAlphaOfLengthBetween(1, 500);
+                    final Document doc = new Document();
+                    doc.add(new StoredField("value", values[i]));
+                    iw.addDocument(doc);
+                    if (i == 0 || rarely()) {
+                        iw.commit();
+                    }
+                }
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertEquals(1, reader.leaves().size());
+                    final SegmentReader segmentReader = (SegmentReader) reader.leaves().get(0).reader();
+                    assertEquals(
+                        Integer.toString(mergeCompressionLevel),
+                        segmentReader.getSegmentInfo().info.getAttribute(Lucene104QatStoredFieldsFormat.COMPRESSION_LEVEL_KEY)
+                    );
+                    final StoredFields storedFields = segmentReader.storedFields();
+                    for (int i = 0; i < values.length; ++i) {
+                        assertEquals(values[i], storedFields.document(i).get("value"));
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class QatCircuitBreakerTests extends OpenSearchTestCase {
+
+    private static final long FAST = TimeValue.timeValueMillis(1).nanos();
+    private static final long SLOW = TimeValue.timeValueMillis(100).nanos();
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private QatCircuitBreaker newBreaker() {
+        QatCircuitBreaker breaker = new QatCircuitBreaker(nanoTime::get);
+        breaker.setSlowCallThreshold(TimeValue.timeValueMillis(50));
+        breaker.setOpenDuration(TimeValue.timeValueSeconds(30));
+        return breaker;
+    }
+
+    public void testOpensOnceMostBlocksAreSlowOrFail() {
+        QatCircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < QatCircuitBreaker.MIN_CALLS - 1; i++) {
+            assertTrue(breaker.allowHardware());
+            if (randomBoolean()) {
+                breaker.onHardwareBlock(SLOW, false);
+            } else {
+                breaker.onHardwareBlock(FAST, true);
+            }
+        }
+        // too few blocks to tell
+        assertEquals(QatCircuitBreaker.State.CLOSED, breaker.stats().state());
+        assertTrue(breaker.allowHardware());
+        breaker.onHardwareBlock(SLOW, false);
+        assertEquals(QatCircuitBreaker.State.OPEN, breaker.stats().state());
+        assertFalse(breaker.allowHardware());
+        breaker.onSoftwareBlock();
+
+        QatCircuitBreaker.Stats stats = breaker.stats();
+        assertEquals(QatCircuitBreaker.MIN_CALLS, stats.hardwareBlocks());
+        assertEquals(QatCircuitBreaker.MIN_CALLS, stats.failedBlocks() + stats.slowBlocks());
+        assertEquals(1, stats.softwareBlocks());
+        assertEquals(1, stats.trips());
+    }
+
+    public void testStaysClosedWhileMostBlocksAreFast() {
+        QatCircuitBreaker breaker = newBreaker();
+        for (int i = 0; i < 10 * QatCircuitBreaker.WINDOW_SIZE; i++) {
+            assertTrue(breaker.allowHardware());
+            // one bad block out of three
+            breaker.onHardwareBlock(i % 3 == 0 ? SLOW : FAST, false);
+        }
+        assertEquals(QatCircuitBreaker.State.CLOSED, breaker.stats().state());
+        assertEquals(0, breaker.stats().trips());
+    }
+
+    public void testProbesAfterOpenDuration() {
+        QatCircuitBreaker breaker = newBreaker();
+        trip(breaker);
+
+        nanoTime.addAndGet(TimeValue.timeValueSeconds(29).nanos());
+        assertFalse(breaker.allowHardware());
+        nanoTime.addAndGet(TimeValue.timeValueSeconds(1).nanos());
+        assertTrue(breaker.allowHardware());
+        assertEquals(QatCircuitBreaker.State.HALF_OPEN, breaker.stats().state());
+        // a single block probes at a time
+        assertFalse(breaker.allowHardware());
+
+        // a failed probe opens the breaker again
+        breaker.onHardwareBlock(FAST, true);
+        assertEquals(QatCircuitBreaker.State.OPEN, breaker.stats().state());
+        assertEquals(2, breaker.stats().trips());
+        assertFalse(breaker.allowHardware());
+
+        nanoTime.addAndGet(TimeValue.timeValueSeconds(30).nanos());
+        assertTrue(breaker.allowHardware());
+        breaker.onHardwareBlock(FAST, false);
+        assertEquals(QatCircuitBreaker.State.CLOSED, breaker.stats().state());
+        assertTrue(breaker.allowHardware());
+    }
+
+    public void testDisabledBreakerNeverOpens() {
+        QatCircuitBreaker breaker = newBreaker();
+        breaker.setEnabled(false);
+        for (int i = 0; i < QatCircuitBreaker.WINDOW_SIZE; i++) {
+            assertTrue(breaker.allowHardware());
+            breaker.onHardwareBlock(FAST, true);
+        }
+        assertEquals(QatCircuitBreaker.State.CLOSED, breaker.stats().state());
+        assertEquals(QatCircuitBreaker.WINDOW_SIZE, breaker.stats().failedBlocks());
+
+        // disabling an open breaker sends every block to QAT again
+        breaker.setEnabled(true);
+        trip(breaker);
+        breaker.setEnabled(false);
+        assertTrue(breaker.allowHardware());
+    }
+
+    private static void trip(QatCircuitBreaker breaker) {
+        for (int i = 0; i < QatCircuitBreaker.MIN_CALLS; i++) {
+            assertTrue(breaker.allowHardware());
+            breaker.onHardwareBlock(FAST, true);
+        }
+        assertEquals(QatCircuitBreaker.State.OPEN, breaker.stats().state());
+    }
+}
@@ -34,11 +34,15 @@ package org.opensearch.index.codec.customcodecs;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
 import org.opensearch.common.settings.Settings;
@@ -56,8 +60,12 @@ import org.opensearch.test.OpenSearchTestCase;
 import org.junit.Before;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+
+import com.intel.qat.QatZipper;
 
 import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99QatCodec.DEFAULT_COMPRESSION_LEVEL;
 import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99QatCodec.INDEX_CODEC_QAT_MODE_SETTING;
@@ -72,7 +80,7 @@ public class QatCodecTests extends OpenSearchTestCase {
 
     @Before
     public void setup() {
-        plugin = new CustomCodecPlugin();
+        plugin = new CustomCodecPlugin(Settings.EMPTY);
     }
 
     public void testQatLz4() throws Exception {
@@ -137,6 +145,71 @@ public class QatCodecTests extends OpenSearchTestCase {
         assertTrue(qatZstdCodec.supports(INDEX_CODEC_COMPRESSION_LEVEL_SETTING));
     }
 
+    public void testQatPollingModeSetting() {
+        QatCompressionMode.PollingPolicy policy = QatCompressionMode.POLLING_MODE_SETTING.get(Settings.EMPTY);
+        assertEquals(QatCompressionMode.PollingPolicy.AUTO, policy);
+        // flushes and searches poll busily, merges periodically
+        assertEquals(QatZipper.PollingMode.BUSY, policy.pollingMode(false));
+        assertEquals(QatZipper.PollingMode.PERIODICAL, policy.pollingMode(true));
+
+        for (String value : List.of("busy", "periodical")) {
+            policy = QatCompressionMode.POLLING_MODE_SETTING.get(
+                Settings.builder().put(QatCompressionMode.POLLING_MODE_SETTING.getKey(), value).build()
+            );
+            assertEquals(value, policy.pollingMode(false).name().toLowerCase(Locale.ROOT));
+            assertEquals(value, policy.pollingMode(true).name().toLowerCase(Locale.ROOT));
+        }
+
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> QatCompressionMode.POLLING_MODE_SETTING.get(
+                Settings.builder().put(QatCompressionMode.POLLING_MODE_SETTING.getKey(), "spin").build()
+            )
+        );
+        assertTrue(e.getMessage().contains("must be one of [auto, busy, periodical]"));
+    }
+
+    public void testQatPollingModeOfMerges() throws IOException {
+        final QatCompressionMode mode = new QatCompressionMode(randomFrom(QatZipper.Algorithm.values()));
+        try (Compressor flush = mode.newCompressor(); Compressor merge = QatCompressionMode.forMerge(mode::newCompressor)) {
+            assertEquals(QatZipper.PollingMode.BUSY, ((QatCompressionMode.QatCompressor) flush).sessionKey().pollingMode());
+            assertEquals(QatZipper.PollingMode.PERIODICAL, ((QatCompressionMode.QatCompressor) merge).sessionKey().pollingMode());
+        }
+
+        // readers clone their decompressor for every search, and for their merge instances
+        final Decompressor search = mode.newDecompressor();
+        assertEquals(QatZipper.PollingMode.BUSY, ((QatCompressionMode.QatDecompressor) search.clone()).sessionKey().pollingMode());
+        final List<Decompressor> mergeDecompressors = new ArrayList<>();
+        final StoredFieldsReader reader = QatCompressionMode.withMergePolling(new StoredFieldsReader() {
+            @Override
+            public void document(int docID, StoredFieldVisitor visitor) {}
+
+            @Override
+            public StoredFieldsReader clone() {
+                return this;
+            }
+
+            @Override
+            public StoredFieldsReader getMergeInstance() {
+                mergeDecompressors.add(search.clone());
+                return this;
+            }
+
+            @Override
+            public void checkIntegrity() {}
+
+            @Override
+            public void close() {}
+        });
+        reader.getMergeInstance();
+        reader.clone().getMergeInstance();
+        assertEquals(2, mergeDecompressors.size());
+        for (Decompressor decompressor : mergeDecompressors) {
+            assertEquals(QatZipper.PollingMode.PERIODICAL, ((QatCompressionMode.QatDecompressor) decompressor).sessionKey().pollingMode());
+        }
+        assertEquals(QatZipper.PollingMode.BUSY, ((QatCompressionMode.QatDecompressor) search.clone()).sessionKey().pollingMode());
+    }
+
     public void testQatLz4MapperServiceNull() throws Exception {
         assumeThat("Qat library is available", QatZipperFactory.isQatAvailable(), is(true));
         Codec codec = createCodecService(true).codec("qat_lz4");
@@ -0,0 +1,256 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.Zstd;
+
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.compress.LZ4;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.intel.qat.QatZipper;
+
+/** Test decoding the frames that QAT writes without the QAT library. */
+public class QatSoftwareDecoderTests extends OpenSearchTestCase {
+
+    public void testLz4Frames() throws IOException {
+        final byte[] bytes = randomData();
+        final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        // several frames, with linked, independent and uncompressed blocks
+        int start = 0;
+        while (start < bytes.length) {
+            final int end = Math.min(bytes.length, start + randomIntBetween(1, 32 * 1024));
+            writeLz4Frame(bytes, start, end, out);
+            start = end;
+        }
+        assertDecompressed(QatZipper.Algorithm.LZ4, bytes, out.toArrayCopy());
+    }
+
+    public void testGzipMembers() throws IOException {
+        final byte[] bytes = randomData();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int start = 0;
+        while (start < bytes.length) {
+            final int end = Math.min(bytes.length, start + randomIntBetween(1, 32 * 1024));
+            if (randomBoolean()) {
+                // QAT writes its member lengths into an extra field
+                out.write(new byte[] { 0x1f, (byte) 0x8b, 8, 0x04, 0, 0, 0, 0, 0, (byte) 0xff, 12, 0, 'Q', 'Z', 8, 0 });
+                out.write(new byte[8]);
+                final Deflater deflater = new Deflater(randomIntBetween(1, 9), true);
+                out.write(deflate(deflater, bytes, start, end));
+                // the trailer is not checked
+                out.write(new byte[8]);
+            } else {
+                final ByteArrayOutputStream member = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+                    gzip.write(bytes, start, end - start);
+                }
+                out.write(member.toByteArray());
+            }
+            start = end;
+        }
+        assertDecompressed(QatZipper.Algorithm.DEFLATE, bytes, out.toByteArray());
+    }
+
+    public void testRawDeflate() throws IOException {
+        final byte[] bytes = randomData();
+        final Deflater deflater = new Deflater(randomIntBetween(0, 9), true);
+        assertDecompressed(QatZipper.Algorithm.DEFLATE, bytes, deflate(deflater, bytes, 0, bytes.length));
+    }
+
+    public void testZstdFrames() throws IOException {
+        final byte[] bytes = randomData();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int start = 0;
+        while (start < bytes.length) {
+            final int end = Math.min(bytes.length, start + randomIntBetween(1, 32 * 1024));
+            out.write(Zstd.compress(ArrayUtil.copyOfSubArray(bytes, start, end), randomIntBetween(1, 6)));
+            start = end;
+        }
+        assertDecompressed(QatZipper.Algorithm.ZSTD, bytes, out.toByteArray());
+    }
+
+    public void testTruncatedFrames() throws IOException {
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(1024, 16 * 1024));
+        final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        writeLz4Frame(bytes, 0, bytes.length, out);
+        final byte[] lz4 = out.toArrayCopy();
+        final byte[] zstd = Zstd.compress(bytes);
+        final byte[] deflate = deflate(new Deflater(6, true), bytes, 0, bytes.length);
+        for (QatZipper.Algorithm algorithm : QatZipper.Algorithm.values()) {
+            final byte[] compressed = switch (algorithm) {
+                case LZ4 -> lz4;
+                case DEFLATE -> deflate;
+                case ZSTD -> zstd;
+            };
+            final int truncatedLength = randomIntBetween(0, compressed.length - 5);
+            expectThrows(
+                CorruptIndexException.class,
+                () -> new QatSoftwareDecoder(algorithm).decompress(compressed, 0, truncatedLength, new byte[bytes.length], 0, bytes.length)
+            );
+        }
+    }
+
+    public void testSoftwareEncoder() throws IOException {
+        for (QatZipper.Algorithm algorithm : QatZipper.Algorithm.values()) {
+            try (QatSoftwareEncoder encoder = new QatSoftwareEncoder(algorithm, randomIntBetween(1, 9))) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] bytes = randomBoolean() ? randomData() : randomByteArrayOfLength(randomIntBetween(0, 64 * 1024));
+                // the same encoder writes several frames
+                int start = 0;
+                do {
+                    final int end = Math.min(bytes.length, start + randomIntBetween(1, 32 * 1024));
+                    final int dstOffset = randomIntBetween(0, 16);
+                    final byte[] frame = new byte[dstOffset + encoder.maxCompressedLength(end - start)];
+                    final int compressedLength = encoder.compress(bytes, start, end - start, frame, dstOffset, frame.length - dstOffset);
+                    out.write(frame, dstOffset, compressedLength);
+                    start = end;
+                } while (start < bytes.length);
+                assertDecompressed(algorithm, bytes, out.toByteArray());
+            }
+        }
+    }
+
+    public void testQatDecompressorWithoutQat() throws IOException {
+        assumeFalse("Qat library is not available", QatZipperFactory.isQatAvailable());
+        final byte[] bytes = randomData();
+        final BlockLayout layout = BlockLayout.CURRENT;
+        final int blockLength = OffsetTable.blockLength(bytes.length, 10, randomFrom(0, 16 * 1024));
+        final int numSubBlocks = OffsetTable.numSubBlocks(bytes.length, blockLength);
+        final int[] compressedLengths = new int[numSubBlocks];
+        final FixedBitSet raw = new FixedBitSet(numSubBlocks);
+        final ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (int i = 0; i < numSubBlocks; ++i) {
+            final int start = i * blockLength;
+            final int end = Math.min(bytes.length, start + blockLength);
+            final byte[] frame;
+            if (rarely()) {
+                raw.set(i);
+                frame = ArrayUtil.copyOfSubArray(bytes, start, end);
+            } else {
+                frame = Zstd.compress(ArrayUtil.copyOfSubArray(bytes, start, end));
+            }
+            compressedLengths[i] = frame.length;
+            frames.write(frame);
+        }
+        final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        out.writeVInt(blockLength);
+        OffsetTable.write(out, layout, compressedLengths, raw, numSubBlocks);
+        out.writeBytes(frames.toByteArray());
+
+        final Decompressor decompressor = new QatCompressionMode(QatZipper.Algorithm.ZSTD, 1, () -> QatZipper.Mode.AUTO, layout)
+            .newDecompressor();
+        final int offset = randomIntBetween(0, bytes.length - 1);
+        final int length = randomIntBetween(1, bytes.length - offset);
+        final BytesRef restored = new BytesRef();
+        decompressor.decompress(new ByteArrayDataInput(out.toArrayCopy()), bytes.length, offset, length, restored);
+        assertEquals(new BytesRef(bytes, offset, length), restored);
+    }
+
+    private byte[] randomData() {
+        final byte[] bytes = new byte[randomIntBetween(1, 128 * 1024)];
+        // a small alphabet compresses, and long runs exercise overlapping matches
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = rarely() ? (byte) random().nextInt() : (byte) ('a' + random().nextInt(4));
+        }
+        if (randomBoolean()) {
+            final int start = randomIntBetween(0, bytes.length - 1);
+            final int end = randomIntBetween(start, bytes.length);
+            for (int i = start; i < end; ++i) {
+                bytes[i] = 'z';
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeLz4Frame(byte[] bytes, int start, int end, ByteBuffersDataOutput out) throws IOException {
+        final boolean blockChecksum = randomBoolean();
+        final boolean contentSize = randomBoolean();
+        final boolean contentChecksum = randomBoolean();
+        final boolean independent = randomBoolean();
+        out.writeInt(0x184D2204);
+        out.writeByte(
+            (byte) (0x40 | (independent ? 0x20 : 0) | (blockChecksum ? 0x10 : 0) | (contentSize ? 0x08 : 0) | (contentChecksum ? 0x04 : 0))
+        );
+        out.writeByte((byte) 0x70);
+        if (contentSize) {
+            out.writeLong(end - start);
+        }
+        // the header checksum is not checked
+        out.writeByte((byte) 0);
+        final LZ4.FastCompressionHashTable hashTable = new LZ4.FastCompressionHashTable();
+        int blockStart = start;
+        while (blockStart < end) {
+            final int blockEnd = Math.min(end, blockStart + randomIntBetween(1, 8 * 1024));
+            if (rarely()) {
+                out.writeInt(0x80000000 | (blockEnd - blockStart));
+                out.writeBytes(bytes, blockStart, blockEnd - blockStart);
+            } else {
+                final ByteBuffersDataOutput block = new ByteBuffersDataOutput();
+                if (independent) {
+                    LZ4.compress(bytes, blockStart, blockEnd - blockStart, block, hashTable);
+                } else {
+                    // linked blocks reference the previous blocks of the frame
+                    final int dictLength = Math.min(blockStart - start, 32 * 1024);
+                    LZ4.compressWithDictionary(bytes, blockStart - dictLength, dictLength, blockEnd - blockStart, block, hashTable);
+                }
+                out.writeInt(Math.toIntExact(block.size()));
+                block.copyTo(out);
+            }
+            if (blockChecksum) {
+                out.writeInt(0);
+            }
+            blockStart = blockEnd;
+        }
+        out.writeInt(0);
+        if (contentChecksum) {
+            out.writeInt(0);
+        }
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] bytes, int start, int end) {
+        deflater.setInput(bytes, start, end - start);
+        deflater.finish();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        while (deflater.finished() == false) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static void assertDecompressed(QatZipper.Algorithm algorithm, byte[] bytes, byte[] compressed) throws IOException {
+        final int dstOffset = randomIntBetween(0, 16);
+        final byte[] restored = new byte[dstOffset + bytes.length];
+        final int srcOffset = randomIntBetween(0, 16);
+        final byte[] src = new byte[srcOffset + compressed.length];
+        System.arraycopy(compressed, 0, src, srcOffset, compressed.length);
+        final int written = new QatSoftwareDecoder(algorithm).decompress(
+            src,
+            srcOffset,
+            compressed.length,
+            restored,
+            dstOffset,
+            bytes.length
+        );
+        assertEquals(bytes.length, written);
+        assertArrayEquals(bytes, ArrayUtil.copyOfSubArray(restored, dstOffset, restored.length));
+    }
+}
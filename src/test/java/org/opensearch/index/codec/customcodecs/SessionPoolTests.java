@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+package org.opensearch.index.codec.customcodecs;
+
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionPoolTests extends OpenSearchTestCase {
+
+    /** a session that records whether it was freed */
+    private static final class Session {
+        final String key;
+        boolean closed;
+
+        Session(String key) {
+            this.key = key;
+        }
+    }
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private SessionPool<String, Session> newPool(int maxIdle, TimeValue idleTimeout) {
+        return new SessionPool<>(Session::new, session -> {
+            assertFalse(session.closed);
+            session.closed = true;
+        }, maxIdle, idleTimeout, nanoTime::get);
+    }
+
+    public void testReusesReturnedSessionOfSameKey() {
+        SessionPool<String, Session> pool = newPool(2, TimeValue.timeValueMinutes(5));
+        Session session = pool.acquire("lz4");
+        pool.release("lz4", session);
+        assertEquals(1, pool.idleCount());
+        assertNotSame(session, pool.acquire("zstd"));
+        assertSame(session, pool.acquire("lz4"));
+        assertEquals(0, pool.idleCount());
+        pool.release("lz4", session);
+        pool.clear();
+        assertTrue(session.closed);
+        assertEquals(0, pool.idleCount());
+    }
+
+    public void testIdleSessionsAreBounded() {
+        int maxIdle = randomIntBetween(0, 4);
+        SessionPool<String, Session> pool = newPool(maxIdle, TimeValue.timeValueMinutes(5));
+        List<Session> leased = new ArrayList<>();
+        for (int i = 0; i < maxIdle + randomIntBetween(1, 4); i++) {
+            leased.add(pool.acquire(randomFrom("lz4", "deflate", "zstd")));
+        }
+        leased.forEach(session -> pool.release(session.key, session));
+        assertEquals(maxIdle, pool.idleCount());
+        assertEquals(leased.size() - maxIdle, leased.stream().filter(session -> session.closed).count());
+        pool.clear();
+        assertEquals(0, pool.idleCount());
+        assertTrue(leased.stream().allMatch(session -> session.closed));
+    }
+
+    public void testEvictsSessionsIdleForLongerThanTimeout() {
+        SessionPool<String, Session> pool = newPool(4, TimeValue.timeValueSeconds(10));
+        Session old = pool.acquire("lz4");
+        Session recent = pool.acquire("lz4");
+        pool.release("lz4", old);
+        nanoTime.addAndGet(TimeValue.timeValueSeconds(6).nanos());
+        pool.release("lz4", recent);
+        assertEquals(2, pool.idleCount());
+
+        nanoTime.addAndGet(TimeValue.timeValueSeconds(6).nanos());
+        Session other = pool.acquire("zstd");
+        pool.release("zstd", other);
+        assertTrue(old.closed);
+        assertFalse(recent.closed);
+        assertEquals(2, pool.idleCount());
+        // the most recently returned session is leased first
+        assertSame(recent, pool.acquire("lz4"));
+        pool.clear();
+    }
+}
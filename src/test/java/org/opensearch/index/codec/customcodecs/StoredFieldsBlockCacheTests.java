@@ -0,0 +1,171 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@SuppressCodecs("*")
+public class StoredFieldsBlockCacheTests extends OpenSearchTestCase {
+
+    public void testDisabledByDefault() {
+        assertEquals(0L, StoredFieldsBlockCache.BLOCK_CACHE_SIZE_SETTING.get(Settings.EMPTY).getBytes());
+        assertFalse(new CodecServices(Settings.EMPTY, null).blockCache().isEnabled());
+    }
+
+    public void testAdmitOnSecondRead() {
+        StoredFieldsBlockCache cache = new StoredFieldsBlockCache(1024);
+        BytesRef segmentId = new BytesRef(randomByteArrayOfLength(16));
+        assertFalse(cache.admit(segmentId, 42));
+        assertTrue(cache.admit(segmentId, 42));
+        assertFalse(cache.admit(segmentId, 42));
+        cache.acquire(segmentId);
+        cache.put(segmentId, 42, new BytesRef(new byte[10]), 100);
+        assertEquals(1, cache.count());
+        cache.release(new BytesRef(randomByteArrayOfLength(16)));
+        assertEquals(1, cache.count());
+        cache.release(segmentId);
+        assertEquals(0, cache.count());
+    }
+
+    public void testBlocksAreOffHeap() {
+        StoredFieldsBlockCache cache = new StoredFieldsBlockCache(1024 * 1024);
+        BytesRef segmentId = new BytesRef(randomByteArrayOfLength(16));
+        byte[] bytes = randomByteArrayOfLength(randomIntBetween(1, 1000));
+        int offset = randomIntBetween(0, bytes.length - 1);
+        cache.acquire(segmentId);
+        cache.put(segmentId, 0, new BytesRef(bytes, offset, bytes.length - offset), 42);
+        StoredFieldsBlockCache.Block block = cache.get(segmentId, 0);
+        assertTrue(block.bytes().isDirect());
+        assertTrue(block.bytes().isReadOnly());
+        assertEquals(42, block.endPointer());
+        byte[] copy = new byte[block.length()];
+        block.bytes().get(0, copy, 0, copy.length);
+        assertEquals(new BytesRef(bytes, offset, bytes.length - offset), new BytesRef(copy));
+
+        CodecCacheStats stats = cache.stats();
+        assertEquals(1, stats.count());
+        assertTrue(stats.sizeInBytes() >= block.length());
+        assertEquals(1, stats.hits());
+    }
+
+    public void testDoesNotCacheBlocksOfClosedSegments() {
+        StoredFieldsBlockCache cache = new StoredFieldsBlockCache(1024 * 1024);
+        BytesRef segmentId = new BytesRef(randomByteArrayOfLength(16));
+        StoredFieldsBlockCache.Block block = cache.put(segmentId, 0, new BytesRef(new byte[10]), 10);
+        assertEquals(10, block.length());
+        assertEquals(0, cache.count());
+        assertNull(cache.get(segmentId, 0));
+    }
+
+    public void testInvalidatesBlocksOfSegmentWhenLastReaderCloses() {
+        StoredFieldsBlockCache cache = new StoredFieldsBlockCache(1024 * 1024);
+        byte[] id = randomByteArrayOfLength(16);
+        BytesRef segmentId = new BytesRef(id);
+        // the blocks of the files of a segment with a segment suffix are keyed by the id and the suffix
+        BytesRef suffixedSegmentId = new BytesRef(ArrayUtil.growExact(id, 16 + 7));
+        BytesRef otherSegmentId = new BytesRef(randomByteArrayOfLength(16));
+        // the segment is open through two cores, e.g. the reader of a commit and the index writer
+        cache.acquire(segmentId);
+        cache.acquire(segmentId);
+        cache.acquire(otherSegmentId);
+        int numBlocks = randomIntBetween(1, 100);
+        for (int i = 0; i < numBlocks; ++i) {
+            cache.put(segmentId, i, new BytesRef(new byte[10]), i + 1);
+            cache.put(suffixedSegmentId, i, new BytesRef(new byte[10]), i + 1);
+            cache.put(otherSegmentId, i, new BytesRef(new byte[10]), i + 1);
+        }
+        assertEquals(3 * numBlocks, cache.count());
+        cache.release(segmentId);
+        assertEquals(3 * numBlocks, cache.count());
+        cache.release(segmentId);
+        assertEquals(numBlocks, cache.count());
+        assertNotNull(cache.get(otherSegmentId, 0));
+        cache.release(otherSegmentId);
+        assertEquals(0, cache.count());
+    }
+
+    public void testReadThroughCache() throws IOException {
+        final Settings settings = Settings.builder().put(StoredFieldsBlockCache.BLOCK_CACHE_SIZE_SETTING.getKey(), "16mb").build();
+        final Path path = createTempDir();
+        // codecs instantiated by name resolve the cache of the node whose data path holds the segment
+        final Codec codec = randomFrom(
+            new Zstd104Codec(),
+            new ZstdNoDict104Codec(),
+            new ZstdTrainedDict104Codec(),
+            new ZstdHybrid104Codec()
+        );
+        try (CodecServices services = CodecServices.forNode(settings, null, new Path[] { path }); Directory dir = newFSDirectory(path)) {
+            final StoredFieldsBlockCache cache = services.blockCache();
+            assertTrue(cache.isEnabled());
+            final IndexWriterConfig iwc = newIndexWriterConfig(null).setCodec(codec);
+            final int numDocs = randomIntBetween(1, 500);
+            final byte[][] values = new byte[numDocs][];
+            // large documents are read in slices
+            final int largeDoc = randomBoolean() ? randomIntBetween(0, numDocs - 1) : -1;
+            try (IndexWriter iw = new IndexWriter(dir, iwc)) {
+                for (int i = 0; i < numDocs; ++i) {
+                    values[i] = randomByteArrayOfLength(i == largeDoc ? randomIntBetween(1_000_000, 2_000_000) : randomIntBetween(1, 1000));
+                    Document doc = new Document();
+                    doc.add(new StoredField("id", i));
+                    doc.add(new StoredField("value", values[i]));
+                    iw.addDocument(doc);
+                }
+                iw.forceMerge(1);
+            }
+
+            final CodecCacheStats before = cache.stats();
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                LeafReader leaf = reader.leaves().get(0).reader();
+                final int[] docIDs = new int[randomIntBetween(1, 20)];
+                for (int i = 0; i < docIDs.length; ++i) {
+                    docIDs[i] = largeDoc >= 0 && randomBoolean() ? largeDoc : randomIntBetween(0, numDocs - 1);
+                }
+                // blocks are cached on the second read and served from the cache on the third
+                for (int round = 0; round < 3; ++round) {
+                    StoredFields storedFields = leaf.storedFields();
+                    for (int docID : docIDs) {
+                        Document doc = storedFields.document(docID);
+                        int id = doc.getField("id").numericValue().intValue();
+                        assertEquals(new BytesRef(values[id]), doc.getBinaryValue("value"));
+                    }
+                }
+                assertTrue(cache.count() > 0);
+                assertTrue(cache.stats().hits() > before.hits());
+
+                // a second reader of the segment keeps its blocks cached when the first one is closed
+                try (DirectoryReader other = DirectoryReader.open(dir)) {
+                    final int count = cache.count();
+                    reader.close();
+                    assertEquals(count, cache.count());
+                    Document doc = other.leaves().get(0).reader().storedFields().document(docIDs[0]);
+                    assertEquals(new BytesRef(values[doc.getField("id").numericValue().intValue()]), doc.getBinaryValue("value"));
+                }
+            }
+            assertEquals(0, cache.count());
+            // so are the dictionaries of zstd blocks
+            assertEquals(0, services.dictionaryCache().count());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MergeInfo;
+import org.apache.lucene.util.BytesRef;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.test.OpenSearchTestCase;
+import org.opensearch.threadpool.TestThreadPool;
+import org.opensearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+public class SubBlockExecutorTests extends OpenSearchTestCase {
+
+    private static final IOContext MERGE = IOContext.merge(new MergeInfo(1, 1, false, 1));
+
+    public void testThreadPoolIsOnlyRegisteredIfEnabled() throws IOException {
+        assertNull(SubBlockExecutor.executorBuilder(Settings.EMPTY));
+        final SubBlockExecutor executor = new SubBlockExecutor();
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            executor.setThreadPool(threadPool);
+            assertNull(executor.forWriter(MERGE, executor::poolForNewCompressor));
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testOnlyMergeWritersUsePool() throws IOException {
+        SubBlockExecutor executor = new SubBlockExecutor();
+        assertNull(executor.forWriter(MERGE, executor::poolForNewCompressor));
+        final ThreadPool threadPool = threadPool(2);
+        try {
+            executor.setThreadPool(threadPool);
+            assertNull(executor.forWriter(IOContext.DEFAULT, executor::poolForNewCompressor));
+            final SubBlockExecutor.Pool pool = executor.forWriter(MERGE, executor::poolForNewCompressor);
+            assertNotNull(pool);
+            assertEquals(2, pool.parallelism());
+            assertNull(executor.poolForNewCompressor());
+        } finally {
+            executor.close();
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+        assertNull(executor.forWriter(MERGE, executor::poolForNewCompressor));
+    }
+
+    public void testRejectedSubBlocksRunOnCallingThread() {
+        final ThreadPool threadPool = threadPool(randomIntBetween(1, 4));
+        final SubBlockExecutor.Pool pool = new SubBlockExecutor.Pool(
+            threadPool.executor(SubBlockExecutor.THREAD_POOL_NAME),
+            threadPool.info(SubBlockExecutor.THREAD_POOL_NAME).getMax()
+        );
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+
+        final int numSubBlocks = randomIntBetween(1, 20);
+        final Thread[] threads = new Thread[numSubBlocks];
+        SubBlockExecutor.run(pool, numSubBlocks, i -> threads[i] = Thread.currentThread());
+        for (Thread thread : threads) {
+            assertSame(Thread.currentThread(), thread);
+        }
+    }
+
+    public void testZstdParallelCompressionIsIdentical() throws IOException {
+        final int subBlockLength = randomSubBlockLength();
+        doTestParallelCompressionIsIdentical(
+            executor -> new ZstdCompressionMode(
+                DEFAULT_COMPRESSION_LEVEL,
+                BlockLayout.CURRENT,
+                subBlockLength,
+                ZstdParameters.DEFAULT,
+                executor,
+                CodecServices.DEFAULT.dictionaryCache()
+            )
+        );
+    }
+
+    public void testZstdNoDictParallelCompressionIsIdentical() throws IOException {
+        final int subBlockLength = randomSubBlockLength();
+        doTestParallelCompressionIsIdentical(
+            executor -> new ZstdNoDictCompressionMode(DEFAULT_COMPRESSION_LEVEL, BlockLayout.CURRENT, subBlockLength, executor)
+        );
+    }
+
+    public void testZstdNoDictParallelDecompression() throws IOException {
+        final SubBlockExecutor executor = new SubBlockExecutor();
+        final CompressionMode mode = new ZstdNoDictCompressionMode(
+            DEFAULT_COMPRESSION_LEVEL,
+            BlockLayout.CURRENT,
+            randomSubBlockLength(),
+            executor
+        );
+        final ThreadPool threadPool = threadPool(randomIntBetween(1, 4));
+        executor.setThreadPool(threadPool);
+        executor.setParallelDecompressionThreshold(randomIntBetween(1, 64 * 1024));
+        try (Compressor compressor = mode.newCompressor()) {
+            final Decompressor decompressor = mode.newDecompressor();
+            for (int i = 0; i < 10; i++) {
+                final byte[] bytes = randomBytes(randomIntBetween(1, 200 * 1024));
+                final byte[] compressed = compress(compressor, bytes);
+                final int offset = randomIntBetween(0, bytes.length - 1);
+                final int length = randomIntBetween(1, bytes.length - offset);
+                final BytesRef restored = new BytesRef();
+                decompressor.decompress(new ByteArrayDataInput(compressed), bytes.length, offset, length, restored);
+                assertEquals(new BytesRef(bytes, offset, length), restored);
+            }
+        } finally {
+            executor.setParallelDecompressionThreshold(0);
+            executor.close();
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testSmallReadsDecompressOnCallingThread() {
+        final SubBlockExecutor executor = new SubBlockExecutor();
+        final ThreadPool threadPool = threadPool(1);
+        try {
+            executor.setThreadPool(threadPool);
+            assertNull(executor.poolForDecompression(1 << 20));
+            executor.setParallelDecompressionThreshold(1024);
+            assertNull(executor.poolForDecompression(1023));
+            assertNotNull(executor.poolForDecompression(1024));
+        } finally {
+            executor.close();
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static byte[] randomCompressibleBytes(int length) {
+        final byte[] bytes = new byte[length];
+        for (int j = 0; j < bytes.length; j++) {
+            // compressible, but not trivially so
+            bytes[j] = (byte) (randomBoolean() ? j % 7 : randomByte());
+        }
+        return bytes;
+    }
+
+    /* incompressible bytes make sub-blocks be stored raw */
+    private static byte[] randomBytes(int length) {
+        return randomBoolean() ? randomCompressibleBytes(length) : randomByteArrayOfLength(length);
+    }
+
+    private static int randomSubBlockLength() {
+        return randomBoolean() ? 0 : randomIntBetween(1, 16 * 1024);
+    }
+
+    private void doTestParallelCompressionIsIdentical(Function<SubBlockExecutor, CompressionMode> modeFactory) throws IOException {
+        final SubBlockExecutor executor = new SubBlockExecutor();
+        final CompressionMode mode = modeFactory.apply(executor);
+        final ThreadPool threadPool = threadPool(randomIntBetween(1, 4));
+        executor.setThreadPool(threadPool);
+        try (Compressor serial = mode.newCompressor(); Compressor parallel = executor.forWriter(MERGE, mode::newCompressor)) {
+            for (int i = 0; i < 10; i++) {
+                final byte[] bytes = randomBytes(randomIntBetween(0, 200 * 1024));
+                final byte[] expected = compress(serial, bytes);
+                final byte[] actual = compress(parallel, bytes);
+                assertArrayEquals(expected, actual);
+
+                if (bytes.length > 0) {
+                    final int offset = randomIntBetween(0, bytes.length - 1);
+                    final int length = randomIntBetween(1, bytes.length - offset);
+                    final Decompressor decompressor = mode.newDecompressor();
+                    final BytesRef restored = new BytesRef();
+                    decompressor.decompress(new ByteArrayDataInput(actual), bytes.length, offset, length, restored);
+                    assertEquals(new BytesRef(bytes, offset, length), restored);
+                }
+            }
+        } finally {
+            executor.close();
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ThreadPool threadPool(int threads) {
+        final Settings settings = Settings.builder().put(SubBlockExecutor.THREADS_SETTING.getKey(), threads).build();
+        return new TestThreadPool(getTestName(), SubBlockExecutor.executorBuilder(settings));
+    }
+
+    private static byte[] compress(Compressor compressor, byte[] bytes) throws IOException {
+        final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        compressor.compress(new ByteBuffersDataInput(List.of(ByteBuffer.wrap(bytes))), out);
+        return out.toArrayCopy();
+    }
+}
@@ -7,8 +7,22 @@
  */
 package org.opensearch.index.codec.customcodecs;
 
+import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.codecs.compressing.Compressor;
 import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.ByteBuffersDataInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
 
 /** Test ZSTD compression (with dictionary enabled) */
 public class ZstdCompressorTests extends AbstractCompressorTests {
@@ -25,4 +39,74 @@ public class ZstdCompressorTests extends AbstractCompressorTests {
     Decompressor decompressor() {
         return decompressor;
     }
+
+    public void testDictionaryCache() throws IOException {
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(1000, 100000));
+        final ZstdDictionaryCache cache = new ZstdDictionaryCache(ZstdDictionaryCache.DEFAULT_MAX_WEIGHT);
+        final ZstdCompressionMode mode = new ZstdCompressionMode(
+            DEFAULT_COMPRESSION_LEVEL,
+            BlockLayout.INTERLEAVED,
+            0,
+            ZstdParameters.DEFAULT,
+            CodecServices.DEFAULT.subBlockExecutor(),
+            cache
+        );
+        final byte[] segmentId = StringHelper.randomId();
+        try (Directory dir = newDirectory()) {
+            final long blockOffset;
+            try (IndexOutput out = dir.createOutput("block", IOContext.DEFAULT); Compressor compressor = mode.newCompressor()) {
+                // dictionaries are keyed by the segment in the header of the stored fields data
+                CodecUtil.writeIndexHeader(out, "test", 0, segmentId, "");
+                blockOffset = out.getFilePointer();
+                compressor.compress(new ByteBuffersDataInput(List.of(ByteBuffer.wrap(bytes))), out);
+            }
+
+            final BytesRef segment = new BytesRef(segmentId);
+            cache.acquire(segment);
+            // other decompressors of the segment share the cached dictionary, not only the clones
+            final Decompressor[] decompressors = new Decompressor[] { mode.newDecompressor(), mode.newDecompressor() };
+            try (IndexInput in = dir.openInput("block", IOContext.DEFAULT)) {
+                for (int i = 0; i < 3; ++i) {
+                    final int offset = randomIntBetween(0, bytes.length - 1);
+                    final int length = randomIntBetween(1, bytes.length - offset);
+                    final BytesRef bytesRef = new BytesRef();
+                    in.seek(blockOffset);
+                    final Decompressor decompressor = i == 0 ? decompressors[0] : randomFrom(decompressors).clone();
+                    decompressor.decompress(in, bytes.length, offset, length, bytesRef);
+                    assertEquals(new BytesRef(bytes, offset, length), bytesRef);
+                }
+            }
+            final CodecCacheStats stats = cache.stats();
+            assertEquals(1, stats.misses());
+            assertEquals(2, stats.hits());
+            assertEquals(1, stats.count());
+
+            // the dictionaries of a segment are invalidated once its last reader is closed
+            cache.acquire(segment);
+            cache.release(segment);
+            assertEquals(1, cache.count());
+            cache.release(segment);
+            assertEquals(0, cache.count());
+        }
+    }
+
+    public void testEvictedDictionariesAreFreedOnceUnused() {
+        final ZstdDictionaryCache cache = new ZstdDictionaryCache(ZstdDictionaryCache.DEFAULT_MAX_WEIGHT);
+        final BytesRef segment = new BytesRef(StringHelper.randomId());
+        final ZstdDictionaryCache.Dictionary dictionary = new ZstdDictionaryCache.Dictionary(randomByteArrayOfLength(1000));
+        cache.put(segment, 0L, dictionary);
+        dictionary.decRef();
+        assertEquals(1, dictionary.refCount());
+        assertNull(cache.get(new BytesRef(StringHelper.randomId()), 0L));
+
+        // a read holds on to the dictionary while it is evicted
+        final ZstdDictionaryCache.Dictionary cached = cache.get(segment, 0L);
+        assertSame(dictionary, cached);
+        cache.clear();
+        assertEquals(1, dictionary.refCount());
+        assertNull(cache.get(segment, 0L));
+        cached.decRef();
+        assertEquals(0, dictionary.refCount());
+        assertFalse(dictionary.tryIncRef());
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ZstdDecompressCtxPoolTests extends OpenSearchTestCase {
+
+    public void testReusesReleasedContext() {
+        ZstdDecompressCtxPool pool = new ZstdDecompressCtxPool(2);
+        ZstdDecompressCtx dctx = pool.acquire();
+        pool.release(dctx);
+        assertEquals(1, pool.idleCount());
+        assertSame(dctx, pool.acquire());
+        assertEquals(0, pool.idleCount());
+        pool.release(dctx);
+        pool.clear();
+    }
+
+    public void testIdleContextsAreBounded() {
+        int maxIdle = randomIntBetween(1, 4);
+        ZstdDecompressCtxPool pool = new ZstdDecompressCtxPool(maxIdle);
+        List<ZstdDecompressCtx> leased = new ArrayList<>();
+        for (int i = 0; i < maxIdle + randomIntBetween(1, 4); i++) {
+            leased.add(pool.acquire());
+        }
+        leased.forEach(pool::release);
+        assertEquals(maxIdle, pool.idleCount());
+        pool.clear();
+        assertEquals(0, pool.idleCount());
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+
+/** Test ZSTD compression (with no dictionary) at negative compression levels. */
+public class ZstdFastCompressorTests extends AbstractCompressorTests {
+
+    private final int compressionLevel = -randomIntBetween(1, 100);
+    private final Compressor compressor = new ZstdNoDictCompressionMode(compressionLevel, BlockLayout.CURRENT).newCompressor();
+    private final Decompressor decompressor = new ZstdNoDictCompressionMode(compressionLevel, BlockLayout.CURRENT).newDecompressor();
+
+    @Override
+    Compressor compressor() {
+        return compressor;
+    }
+
+    @Override
+    Decompressor decompressor() {
+        return decompressor;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.compressing.Compressor;
+import org.apache.lucene.codecs.compressing.Decompressor;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+/** Test ZSTD compression (with dictionary) with the offset table sub-block layout. */
+public class ZstdOffsetTableCompressorTests extends AbstractCompressorTests {
+
+    // sub-blocks either have a random target length or blocks are split into a fixed number of them
+    private final int subBlockLength = randomBoolean() ? 0 : randomIntBetween(1, 64 * 1024);
+    private final Compressor compressor = new ZstdCompressionMode(DEFAULT_COMPRESSION_LEVEL, BlockLayout.OFFSET_TABLE, subBlockLength)
+        .newCompressor();
+    private final Decompressor decompressor = new ZstdCompressionMode(DEFAULT_COMPRESSION_LEVEL, BlockLayout.OFFSET_TABLE)
+        .newDecompressor();
+
+    @Override
+    Compressor compressor() {
+        return compressor;
+    }
+
+    @Override
+    Decompressor decompressor() {
+        return decompressor;
+    }
+}
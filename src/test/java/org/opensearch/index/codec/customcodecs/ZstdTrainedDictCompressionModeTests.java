@@ -0,0 +1,202 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * The OpenSearch Contributors require contributions made to
+ * this file be licensed under the Apache-2.0 license or a
+ * compatible open source license.
+ */
+
+package org.opensearch.index.codec.customcodecs;
+
+import org.apache.lucene.codecs.lucene104.Lucene104Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.util.LuceneTestCase.SuppressCodecs;
+import org.opensearch.test.OpenSearchTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.opensearch.index.codec.customcodecs.backward_codecs.lucene99.Lucene99CustomCodec.DEFAULT_COMPRESSION_LEVEL;
+
+@SuppressCodecs("*")
+public class ZstdTrainedDictCompressionModeTests extends OpenSearchTestCase {
+
+    public void testTrainDictionary() {
+        final byte[] bytes = randomJsonDocs(2000).getBytes(StandardCharsets.UTF_8);
+        final byte[] dictionary = ZstdTrainedDictCompressionMode.trainDictionary(bytes, 0, bytes.length);
+        assertTrue(dictionary.length > 0);
+        assertTrue(dictionary.length <= ZstdTrainedDictCompressionMode.MAX_DICT_SIZE);
+    }
+
+    public void testTrainDictionaryWithTooFewSamples() {
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(0, 10 * ZstdTrainedDictCompressionMode.SAMPLE_SIZE));
+        assertEquals(0, ZstdTrainedDictCompressionMode.trainDictionary(bytes, 0, bytes.length).length);
+    }
+
+    public void testIndexAndMerge() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = newIndexWriterConfig(null).setCodec(new ZstdTrainedDict104Codec(randomIntBetween(1, 6)));
+            // keep segment files out of compound files so that the dictionary file can be checked
+            iwc.setUseCompoundFile(false);
+            iwc.getMergePolicy().setNoCFSRatio(0.0);
+            final int numDocs = randomIntBetween(1, 3000);
+            final String[] sources = new String[numDocs];
+            try (IndexWriter iw = new IndexWriter(dir, iwc)) {
+                for (int i = 0; i < numDocs; ++i) {
+                    sources[i] = randomJsonDocs(1);
+                    Document doc = new Document();
+                    doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                    doc.add(new StoredField("_source", sources[i]));
+                    iw.addDocument(doc);
+                    if (rarely()) {
+                        iw.commit();
+                    }
+                }
+                iw.commit();
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertSources(reader, sources);
+                }
+
+                iw.deleteDocuments(new Term("id", "0"));
+                sources[0] = null;
+                iw.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(iw)) {
+                    assertEquals(1, reader.leaves().size());
+                    assertSources(reader, sources);
+                }
+            }
+        }
+    }
+
+    public void testMergesTrainOnDocumentsOfEveryMergedSegment() throws IOException {
+        // documents of different types share no field names or values, and the first block only holds the first type
+        final int numTypes = 4;
+        final List<String> sources = new ArrayList<>();
+        for (int type = 0; type < numTypes; ++type) {
+            final String[] words = new String[50];
+            for (int i = 0; i < words.length; ++i) {
+                words[i] = randomAlphaOfLength(12);
+            }
+            for (int i = 0; i < 800; ++i) {
+                final StringBuilder sb = new StringBuilder("{");
+                for (int field = 0; field < 10; ++field) {
+                    sb.append('"').append(words[field]).append("\":\"").append(randomFrom(words)).append(' ').append(randomFrom(words));
+                    sb.append("\",");
+                }
+                sources.add(sb.append("\"n\":").append(randomInt(1000)).append('}').toString());
+            }
+        }
+
+        final long firstBlockTrained = storedFieldsLength(sources, false);
+        final long sampleTrained = storedFieldsLength(sources, true);
+        assertTrue(firstBlockTrained + " <= " + sampleTrained, sampleTrained < firstBlockTrained * 0.95);
+    }
+
+    /**
+     * Returns the length of the stored fields of a segment holding the given documents, which is either flushed or merged
+     * from one segment per 800 documents.
+     */
+    private static long storedFieldsLength(List<String> sources, boolean merged) throws IOException {
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = new IndexWriterConfig(null).setCodec(
+                new ZstdTrainedDict104Codec(
+                    StoredFieldsParameters.of(DEFAULT_COMPRESSION_LEVEL).withSubBlockLength(4 * 1024),
+                    Lucene104Codec::new
+                )
+            )
+                .setUseCompoundFile(false)
+                .setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH)
+                .setRAMBufferSizeMB(256)
+                .setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter iw = new IndexWriter(dir, iwc)) {
+                for (int i = 0; i < sources.size(); ++i) {
+                    Document doc = new Document();
+                    doc.add(new StoredField("_source", sources.get(i)));
+                    iw.addDocument(doc);
+                    if (merged && (i + 1) % 800 == 0) {
+                        iw.flush();
+                    }
+                }
+                if (merged) {
+                    // keeps the order of the documents
+                    final LogDocMergePolicy mergePolicy = new LogDocMergePolicy();
+                    mergePolicy.setNoCFSRatio(0.0);
+                    iw.getConfig().setMergePolicy(mergePolicy);
+                    iw.forceMerge(1);
+                }
+                iw.commit();
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertEquals(1, reader.leaves().size());
+                final SegmentReader segmentReader = (SegmentReader) reader.leaves().get(0).reader();
+                long length = 0;
+                for (String file : segmentReader.getSegmentInfo().files()) {
+                    if (file.endsWith(".fdt") || file.endsWith("." + ZstdTrainedDictCompressionMode.DICT_EXTENSION)) {
+                        length += dir.fileLength(file);
+                    }
+                }
+                return length;
+            }
+        }
+    }
+
+    private static void assertSources(DirectoryReader reader, String[] sources) throws IOException {
+        int numDocs = 0;
+        for (LeafReaderContext context : reader.leaves()) {
+            SegmentReader segmentReader = (SegmentReader) context.reader();
+            assertTrue(
+                segmentReader.getSegmentInfo()
+                    .files()
+                    .contains(ZstdTrainedDictCompressionMode.dictionaryFileName(segmentReader.getSegmentInfo().info))
+            );
+            StoredFields storedFields = segmentReader.storedFields();
+            for (int doc = 0; doc < segmentReader.maxDoc(); ++doc) {
+                if (segmentReader.getLiveDocs() != null && segmentReader.getLiveDocs().get(doc) == false) {
+                    continue;
+                }
+                Document document = storedFields.document(doc);
+                int id = Integer.parseInt(document.get("id"));
+                assertEquals(sources[id], document.get("_source"));
+                numDocs++;
+            }
+        }
+        assertEquals(reader.numDocs(), numDocs);
+    }
+
+    private static String randomJsonDocs(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            sb.append(
+                String.format(
+                    Locale.ROOT,
+                    "{\"@timestamp\":\"2024-01-%02dT%02d:%02d:%02dZ\",\"level\":\"%s\",\"service\":\"%s\",\"message\":\"%s\",\"status\":%d}",
+                    randomIntBetween(1, 28),
+                    randomIntBetween(0, 23),
+                    randomIntBetween(0, 59),
+                    randomIntBetween(0, 59),
+                    randomFrom("INFO", "WARN", "ERROR", "DEBUG"),
+                    randomFrom("checkout", "payments", "search", "auth"),
+                    randomAlphaOfLengthBetween(5, 40),
+                    randomFrom(200, 201, 404, 500)
+                )
+            );
+        }
+        return sb.toString();
+    }
+}